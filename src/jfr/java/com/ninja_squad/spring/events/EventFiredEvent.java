@@ -0,0 +1,25 @@
+package com.ninja_squad.spring.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event emitted for each call of {@link EventFirer#fire(Object)}. Its duration includes the calls of
+ * the in-progress synchronous observers.
+ * @author JB Nizet
+ */
+@Name("com.ninja_squad.spring.events.EventFired")
+@Label("Event Fired")
+@Category({"Spring Events"})
+@Description("An event has been fired to its observers")
+final class EventFiredEvent extends jdk.jfr.Event {
+
+    @Label("Event Class")
+    Class<?> eventClass;
+
+    @Label("Observer Count")
+    @Description("The number of observers of the event, whatever their moment")
+    int observerCount;
+}
@@ -0,0 +1,43 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Hook emitting {@link EventFiredEvent}s and {@link ObserverInvocationEvent}s. When these events are disabled in the
+ * recording settings, or when no recording is running, the cost is limited to a check of <code>shouldCommit()</code>
+ * on an event object which doesn't escape, and is thus not allocated by the JIT compiler.
+ * @author JB Nizet
+ */
+final class JfrFlightRecorderHook implements FlightRecorderHook {
+
+    @Override
+    public void fire(Object event, EventFirer[] firers) {
+        EventFiredEvent jfrEvent = new EventFiredEvent();
+        jfrEvent.begin();
+        for (EventFirer firer : firers) {
+            firer.fire(event);
+        }
+        jfrEvent.end();
+        commit(jfrEvent, event, firers.length);
+    }
+
+    @Override
+    public void fire(Object event, EventFirer firer, int observerCount) {
+        EventFiredEvent jfrEvent = new EventFiredEvent();
+        jfrEvent.begin();
+        firer.fire(event);
+        jfrEvent.end();
+        commit(jfrEvent, event, observerCount);
+    }
+
+    private static void commit(EventFiredEvent jfrEvent, Object event, int observerCount) {
+        if (jfrEvent.shouldCommit()) {
+            jfrEvent.eventClass = event.getClass();
+            jfrEvent.observerCount = observerCount;
+            jfrEvent.commit();
+        }
+    }
+
+    @Override
+    public ObserverInvoker decorate(ObserverInvoker invoker, ObserverDescriptor observer) {
+        return new JfrObserverInvoker(invoker, observer);
+    }
+}
@@ -0,0 +1,50 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Invoker emitting an {@link ObserverInvocationEvent} for each call of the observer method
+ * @author JB Nizet
+ */
+final class JfrObserverInvoker implements ObserverInvoker {
+
+    private final ObserverInvoker delegate;
+    private final String beanName;
+    private final String methodName;
+    private final Class<?> eventType;
+    private final String moment;
+    private final boolean deferred;
+    private final boolean async;
+
+    JfrObserverInvoker(ObserverInvoker delegate, ObserverDescriptor observer) {
+        this.delegate = delegate;
+        this.beanName = observer.getBeanName();
+        this.methodName = observer.getMethod().getName();
+        this.eventType = observer.getEventType();
+        this.moment = observer.getMoment().name();
+        this.deferred = observer.getMoment() != EventMoment.IN_PROGRESS;
+        this.async = observer.isAsync();
+    }
+
+    @Override
+    public void invoke(Object event) {
+        ObserverInvocationEvent jfrEvent = new ObserverInvocationEvent();
+        jfrEvent.begin();
+        boolean failed = true;
+        try {
+            delegate.invoke(event);
+            failed = false;
+        }
+        finally {
+            jfrEvent.end();
+            if (jfrEvent.shouldCommit()) {
+                jfrEvent.beanName = beanName;
+                jfrEvent.methodName = methodName;
+                jfrEvent.eventType = eventType;
+                jfrEvent.moment = moment;
+                jfrEvent.deferred = deferred;
+                jfrEvent.async = async;
+                jfrEvent.failed = failed;
+                jfrEvent.commit();
+            }
+        }
+    }
+}
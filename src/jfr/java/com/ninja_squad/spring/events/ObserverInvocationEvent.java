@@ -0,0 +1,41 @@
+package com.ninja_squad.spring.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event emitted for each call of an observer method, in the thread calling it
+ * @author JB Nizet
+ */
+@Name("com.ninja_squad.spring.events.ObserverInvocation")
+@Label("Observer Invocation")
+@Category({"Spring Events"})
+@Description("An observer method has been called")
+final class ObserverInvocationEvent extends jdk.jfr.Event {
+
+    @Label("Bean Name")
+    String beanName;
+
+    @Label("Method Name")
+    String methodName;
+
+    @Label("Event Type")
+    @Description("The type of the observed events")
+    Class<?> eventType;
+
+    @Label("Moment")
+    String moment;
+
+    @Label("Deferred")
+    @Description("Whether the event has been deferred until the commit or the rollback of the transaction")
+    boolean deferred;
+
+    @Label("Async")
+    boolean async;
+
+    @Label("Failed")
+    @Description("Whether the observer method has thrown an exception")
+    boolean failed;
+}
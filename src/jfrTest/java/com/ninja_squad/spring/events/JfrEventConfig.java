@@ -0,0 +1,51 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Configuration containing observers whose calls are recorded by the Java Flight Recorder
+ * @author JB Nizet
+ */
+@Configuration
+@EnableEvents
+public class JfrEventConfig {
+
+    @Bean
+    public TracedEventObserver tracedEventObserver() {
+        return new TracedEventObserver();
+    }
+
+    public static class TracedEvent {
+        private final String name;
+
+        public TracedEvent(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static class TracedEventObserver {
+        private final List<String> result = new CopyOnWriteArrayList<String>();
+
+        @Observes
+        public void first(TracedEvent event) {
+            result.add("first-" + event.getName());
+        }
+
+        @Observes
+        public void second(TracedEvent event) {
+            result.add("second-" + event.getName());
+        }
+
+        public List<String> getResult() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.ninja_squad.spring.events;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Test for the flight recorder events emitted by the {@link JfrFlightRecorderHook} and the {@link JfrObserverInvoker}
+ * @author JB Nizet
+ */
+public class JfrFlightRecorderHookTest {
+
+    private static final String EVENT_FIRED = "com.ninja_squad.spring.events.EventFired";
+    private static final String OBSERVER_INVOCATION = "com.ninja_squad.spring.events.ObserverInvocation";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Recording recording;
+
+    @Before
+    public void prepare() {
+        recording = new Recording();
+        recording.enable(EVENT_FIRED).withThreshold(Duration.ZERO);
+        recording.enable(OBSERVER_INVOCATION).withThreshold(Duration.ZERO);
+        recording.start();
+    }
+
+    @After
+    public void cleanup() {
+        recording.close();
+    }
+
+    @Test
+    public void shouldRecordFiredEventsAndObserverInvocations() throws IOException {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(JfrEventConfig.class);
+        try {
+            BatchEventFirer eventFirer = context.getBean(BatchEventFirer.class);
+            eventFirer.fire(new JfrEventConfig.TracedEvent("a"));
+            eventFirer.fireAll(Arrays.asList(new JfrEventConfig.TracedEvent("b"), new JfrEventConfig.TracedEvent("c")));
+            assertThat(context.getBean(JfrEventConfig.TracedEventObserver.class).getResult()).hasSize(6);
+        }
+        finally {
+            context.close();
+        }
+
+        List<RecordedEvent> events = stopRecording();
+
+        List<RecordedEvent> firedEvents = filter(events, EVENT_FIRED);
+        assertThat(firedEvents).hasSize(3);
+        for (RecordedEvent firedEvent : firedEvents) {
+            assertThat(firedEvent.getClass("eventClass").getName())
+                .isEqualTo(JfrEventConfig.TracedEvent.class.getName());
+            assertThat(firedEvent.getInt("observerCount")).isEqualTo(2);
+        }
+
+        List<RecordedEvent> invocations = filter(events, OBSERVER_INVOCATION);
+        assertThat(invocations).hasSize(6);
+        List<String> methodNames = new ArrayList<String>();
+        for (RecordedEvent invocation : invocations) {
+            assertThat(invocation.getString("beanName")).isEqualTo("tracedEventObserver");
+            assertThat(invocation.getClass("eventType").getName())
+                .isEqualTo(JfrEventConfig.TracedEvent.class.getName());
+            assertThat(invocation.getString("moment")).isEqualTo(EventMoment.IN_PROGRESS.name());
+            assertThat(invocation.getBoolean("deferred")).isFalse();
+            assertThat(invocation.getBoolean("async")).isFalse();
+            assertThat(invocation.getBoolean("failed")).isFalse();
+            methodNames.add(invocation.getString("methodName"));
+        }
+        assertThat(methodNames).containsOnly("first", "second");
+    }
+
+    @Test
+    public void shouldRecordFailedInvocations() throws Exception {
+        ObserverDescriptor observer =
+            new ObserverDescriptor("tracedEventObserver",
+                                   JfrEventConfig.TracedEventObserver.class.getMethod("first",
+                                                                                      JfrEventConfig.TracedEvent.class),
+                                   JfrEventConfig.TracedEvent.class,
+                                   EventMoment.AFTER_COMMIT,
+                                   true,
+                                   false,
+                                   0);
+        ObserverInvoker failingInvoker = new ObserverInvoker() {
+            @Override
+            public void invoke(Object event) {
+                throw new IllegalStateException("failure");
+            }
+        };
+        ObserverInvoker invoker = new JfrFlightRecorderHook().decorate(failingInvoker, observer);
+        try {
+            invoker.invoke(new JfrEventConfig.TracedEvent("a"));
+            fail("expected an IllegalStateException");
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+
+        List<RecordedEvent> invocations = filter(stopRecording(), OBSERVER_INVOCATION);
+        assertThat(invocations).hasSize(1);
+        RecordedEvent invocation = invocations.get(0);
+        assertThat(invocation.getString("methodName")).isEqualTo("first");
+        assertThat(invocation.getString("moment")).isEqualTo(EventMoment.AFTER_COMMIT.name());
+        assertThat(invocation.getBoolean("deferred")).isTrue();
+        assertThat(invocation.getBoolean("async")).isTrue();
+        assertThat(invocation.getBoolean("failed")).isTrue();
+    }
+
+    private List<RecordedEvent> stopRecording() throws IOException {
+        recording.stop();
+        Path file = folder.newFile("recording.jfr").toPath();
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static List<RecordedEvent> filter(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> result = new ArrayList<RecordedEvent>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,102 @@
+package com.ninja_squad.spring.events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+/**
+ * Measures the cost of transactions firing events delivered to after-commit and after-rollback observers, using a
+ * stub transaction manager. The score is the number of transactions per second.
+ * @author JB Nizet
+ */
+@State(Scope.Benchmark)
+public class AfterCommitBenchmark {
+
+    @Param({"1", "100"})
+    public int eventsPerTransaction;
+
+    private AnnotationConfigApplicationContext context;
+    private EventFirer eventFirer;
+    private PlatformTransactionManager txManager;
+    private final DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(BenchmarkConfig.class);
+        eventFirer = context.getBean(EventFirer.class);
+        txManager = context.getBean(PlatformTransactionManager.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void commit() {
+        TransactionStatus status = txManager.getTransaction(definition);
+        for (int i = 0; i < eventsPerTransaction; i++) {
+            eventFirer.fire(new TransactionalEvent());
+        }
+        txManager.commit(status);
+    }
+
+    @Benchmark
+    public void rollback() {
+        TransactionStatus status = txManager.getTransaction(definition);
+        for (int i = 0; i < eventsPerTransaction; i++) {
+            eventFirer.fire(new TransactionalEvent());
+        }
+        txManager.rollback(status);
+    }
+
+    public static class TransactionalEvent {
+    }
+
+    public static class TransactionalObserver {
+        private int count;
+
+        @Observes(when = EventMoment.AFTER_COMMIT)
+        public void afterCommit1(TransactionalEvent event) {
+            count++;
+        }
+
+        @Observes(when = EventMoment.AFTER_COMMIT)
+        public void afterCommit2(TransactionalEvent event) {
+            count++;
+        }
+
+        @Observes(when = EventMoment.AFTER_ROLLBACK)
+        public void afterRollback1(TransactionalEvent event) {
+            count++;
+        }
+
+        @Observes(when = EventMoment.AFTER_ROLLBACK)
+        public void afterRollback2(TransactionalEvent event) {
+            count++;
+        }
+    }
+
+    @Configuration
+    @EnableEvents
+    public static class BenchmarkConfig {
+        @Bean
+        public TransactionalObserver transactionalObserver() {
+            return new TransactionalObserver();
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager() {
+            return new StubTransactionManager();
+        }
+    }
+}
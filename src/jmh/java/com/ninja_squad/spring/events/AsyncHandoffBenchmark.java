@@ -0,0 +1,107 @@
+package com.ninja_squad.spring.events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Measures the round trip of an event handed off to an asynchronous observer: each invocation fires an event, and
+ * waits for the observer to have received it. The built-in async delivery is compared with <code>@Async</code>
+ * observers.
+ * @author JB Nizet
+ */
+@State(Scope.Benchmark)
+public class AsyncHandoffBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private EventFirer eventFirer;
+    private AsyncObserver observer;
+    private SpringAsyncObserver springAsyncObserver;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(BenchmarkConfig.class);
+        eventFirer = context.getBean(EventFirer.class);
+        observer = context.getBean(AsyncObserver.class);
+        springAsyncObserver = context.getBean(SpringAsyncObserver.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void observesAsync() {
+        long target = observer.getCount() + 1;
+        eventFirer.fire(new AsyncEvent());
+        while (observer.getCount() < target) {
+            Thread.yield();
+        }
+    }
+
+    @Benchmark
+    public void springAsync() {
+        // the observer is a proxy, so its count must be read through a method
+        long target = springAsyncObserver.getCount() + 1;
+        eventFirer.fire(new SpringAsyncEvent());
+        while (springAsyncObserver.getCount() < target) {
+            Thread.yield();
+        }
+    }
+
+    public static class AsyncEvent {
+    }
+
+    public static class SpringAsyncEvent {
+    }
+
+    public static class AsyncObserver {
+        private volatile long count;
+
+        @Observes(async = true)
+        public void observe(AsyncEvent event) {
+            count++;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    public static class SpringAsyncObserver {
+        private volatile long count;
+
+        @Observes
+        @Async
+        public void observe(SpringAsyncEvent event) {
+            count++;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    @Configuration
+    @EnableEvents
+    @EnableAsync
+    public static class BenchmarkConfig {
+        @Bean
+        public AsyncObserver asyncObserver() {
+            return new AsyncObserver();
+        }
+
+        @Bean
+        public SpringAsyncObserver springAsyncObserver() {
+            return new SpringAsyncObserver();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.ninja_squad.spring.events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+
+/**
+ * Measures the cost of transactions firing an event delivered to a durable after-commit observer, using a stub
+ * transaction manager, from several threads at once, so that concurrent commits share the forcing of the journal. The
+ * score is the number of transactions per second.
+ * @author JB Nizet
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class DurableAfterCommitBenchmark {
+
+    @Param({"true", "false"})
+    public boolean forced;
+
+    private File directory;
+    private AnnotationConfigApplicationContext context;
+    private EventFirer eventFirer;
+    private PlatformTransactionManager txManager;
+    private final DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("events-journal").toFile();
+        context = new AnnotationConfigApplicationContext();
+        EventJournal journal = new EventJournal(directory, EventJournal.DEFAULT_SEGMENT_SIZE, forced);
+        context.getBeanFactory().registerSingleton("eventJournal", journal);
+        context.register(BenchmarkConfig.class);
+        context.refresh();
+        eventFirer = context.getBean(EventFirer.class);
+        txManager = context.getBean(PlatformTransactionManager.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void commit() {
+        TransactionStatus status = txManager.getTransaction(definition);
+        eventFirer.fire(new DurableEvent(42L));
+        txManager.commit(status);
+    }
+
+    public static class DurableEvent implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final long id;
+
+        public DurableEvent(long id) {
+            this.id = id;
+        }
+
+        public long getId() {
+            return id;
+        }
+    }
+
+    public static class DurableObserver {
+        private volatile long lastId;
+
+        @Observes(when = EventMoment.AFTER_COMMIT, durable = true)
+        public void afterCommit(DurableEvent event) {
+            lastId = event.getId();
+        }
+    }
+
+    @Configuration
+    @EnableEvents
+    public static class BenchmarkConfig {
+        @Bean
+        public DurableObserver durableObserver() {
+            return new DurableObserver();
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager() {
+            return new StubTransactionManager();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.ninja_squad.spring.events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Measures the cost of firing an event synchronously, depending on the number of observers (fan-out)
+ * @author JB Nizet
+ */
+@State(Scope.Benchmark)
+public class FireBenchmark {
+
+    @Param({"0", "1", "10", "100"})
+    public int observerCount;
+
+    private AnnotationConfigApplicationContext context;
+    private EventFirer eventFirer;
+    private final BenchmarkEvent event = new BenchmarkEvent();
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.register(EventConfiguration.class);
+        for (int i = 0; i < observerCount; i++) {
+            context.registerBeanDefinition("observer" + i, new RootBeanDefinition(BenchmarkObserver.class));
+        }
+        context.refresh();
+        eventFirer = context.getBean(EventFirer.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void fire() {
+        eventFirer.fire(event);
+    }
+
+    @Benchmark
+    public void fireNewEvent() {
+        eventFirer.fire(new BenchmarkEvent());
+    }
+
+    public static class BenchmarkEvent {
+    }
+
+    public static class BenchmarkObserver {
+        private int count;
+
+        @Observes
+        public void observe(BenchmarkEvent event) {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.ninja_squad.spring.events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Measures the cost of firing events having deep class and interface hierarchies, like the FakeEvent,
+ * AbstractFakeEvent, FakeEventSuperInterface chain used by the tests, compared to an event without any supertype.
+ * @author JB Nizet
+ */
+@State(Scope.Benchmark)
+public class HierarchyBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private EventFirer eventFirer;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(BenchmarkConfig.class);
+        eventFirer = context.getBean(EventFirer.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void flatEvent() {
+        eventFirer.fire(new FlatEvent());
+    }
+
+    @Benchmark
+    public void deepEvent() {
+        eventFirer.fire(new DeepEvent());
+    }
+
+    public interface SuperInterface {
+    }
+
+    public interface Interface1 extends SuperInterface {
+    }
+
+    public interface Interface2 extends SuperInterface {
+    }
+
+    public abstract static class AbstractEvent1 implements Interface1 {
+    }
+
+    public abstract static class AbstractEvent2 extends AbstractEvent1 implements Interface2 {
+    }
+
+    public abstract static class AbstractEvent3 extends AbstractEvent2 implements Interface1, Interface2 {
+    }
+
+    public static class DeepEvent extends AbstractEvent3 implements SuperInterface {
+    }
+
+    public static class FlatEvent {
+    }
+
+    public static class HierarchyObserver {
+        private int count;
+
+        @Observes
+        public void onFlat(FlatEvent event) {
+            count++;
+        }
+
+        @Observes
+        public void onDeep(DeepEvent event) {
+            count++;
+        }
+
+        @Observes
+        public void onAbstract1(AbstractEvent1 event) {
+            count++;
+        }
+
+        @Observes
+        public void onAbstract3(AbstractEvent3 event) {
+            count++;
+        }
+
+        @Observes
+        public void onSuperInterface(SuperInterface event) {
+            count++;
+        }
+
+        @Observes
+        public void onInterface2(Interface2 event) {
+            count++;
+        }
+    }
+
+    @Configuration
+    @EnableEvents
+    public static class BenchmarkConfig {
+        @Bean
+        public HierarchyObserver hierarchyObserver() {
+            return new HierarchyObserver();
+        }
+    }
+}
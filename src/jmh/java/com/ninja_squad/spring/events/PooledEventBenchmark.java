@@ -0,0 +1,90 @@
+package com.ninja_squad.spring.events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Compares firing a newly allocated event with firing a pooled event, delivered to a synchronous observer. It's meant
+ * to be run with the GC profiler (<code>-prof gc</code>), which shows the allocation rate of each variant.
+ * @author JB Nizet
+ */
+@State(Scope.Benchmark)
+public class PooledEventBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private EventObserverBeanPostProcessor eventFirer;
+    private long value;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.register(EventConfiguration.class);
+        context.registerBeanDefinition("observer", new RootBeanDefinition(MetricObserver.class));
+        context.refresh();
+        eventFirer = context.getBean(EventObserverBeanPostProcessor.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void fireAllocated() {
+        eventFirer.fire(new AllocatedMetric(value++));
+    }
+
+    @Benchmark
+    public void firePooled() {
+        eventFirer.fire(eventFirer.acquire(PooledMetric.class).init(value++));
+    }
+
+    public static class AllocatedMetric {
+        private final long value;
+
+        public AllocatedMetric(long value) {
+            this.value = value;
+        }
+
+        public long getValue() {
+            return value;
+        }
+    }
+
+    public static class PooledMetric extends PooledEvent {
+        private long value;
+
+        public PooledMetric init(long value) {
+            this.value = value;
+            return this;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        @Override
+        protected void reset() {
+            value = 0L;
+        }
+    }
+
+    public static class MetricObserver {
+        private long sum;
+
+        @Observes
+        public void observe(AllocatedMetric metric) {
+            sum += metric.getValue();
+        }
+
+        @Observes
+        public void observe(PooledMetric metric) {
+            sum += metric.getValue();
+        }
+    }
+}
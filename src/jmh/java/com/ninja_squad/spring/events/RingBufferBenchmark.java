@@ -0,0 +1,111 @@
+package com.ninja_squad.spring.events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the throughput of asynchronous observers called through a regular executor, and through a
+ * {@link RingBufferEventDispatcher}. Each benchmark invocation fires a batch of events, and waits for the observer to
+ * have received all of them.
+ * @author JB Nizet
+ */
+@State(Scope.Benchmark)
+public class RingBufferBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private AnnotationConfigApplicationContext context;
+    private EventFirer eventFirer;
+    private CountingObserver observer;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(BenchmarkConfig.class);
+        eventFirer = context.getBean(EventFirer.class);
+        observer = context.getBean(CountingObserver.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void executor() {
+        long target = observer.executorCount.get() + BATCH_SIZE;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            eventFirer.fire(new ExecutorEvent());
+        }
+        while (observer.executorCount.get() < target) {
+            Thread.yield();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void ringBuffer() {
+        long target = observer.ringBufferCount.get() + BATCH_SIZE;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            eventFirer.fire(new RingBufferEvent());
+        }
+        while (observer.ringBufferCount.get() < target) {
+            Thread.yield();
+        }
+    }
+
+    public static class ExecutorEvent {
+    }
+
+    public static class RingBufferEvent {
+    }
+
+    public static class CountingObserver {
+        private final AtomicLong executorCount = new AtomicLong();
+        private final AtomicLong ringBufferCount = new AtomicLong();
+
+        @Observes(async = true, executor = "executor")
+        public void onExecutorEvent(ExecutorEvent event) {
+            executorCount.incrementAndGet();
+        }
+
+        @Observes(async = true, executor = "ringBufferDispatcher")
+        public void onRingBufferEvent(RingBufferEvent event) {
+            ringBufferCount.incrementAndGet();
+        }
+    }
+
+    @Configuration
+    @EnableEvents
+    public static class BenchmarkConfig {
+        @Bean
+        public CountingObserver countingObserver() {
+            return new CountingObserver();
+        }
+
+        @Bean
+        public ThreadPoolTaskExecutor executor() {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(1);
+            return executor;
+        }
+
+        @Bean
+        public RingBufferEventDispatcher ringBufferDispatcher() {
+            return new RingBufferEventDispatcher(4096,
+                                                 RingBufferEventDispatcher.ProducerType.SINGLE,
+                                                 RingBufferEventDispatcher.WaitStrategy.YIELDING,
+                                                 "ring-buffer-benchmark");
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * A transaction manager which doesn't do anything but managing the transaction synchronizations, as the one used by
+ * EventTestConfig
+ * @author JB Nizet
+ */
+public class StubTransactionManager extends AbstractPlatformTransactionManager {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected Object doGetTransaction() throws TransactionException {
+        return new Object();
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) throws TransactionException {
+        // nothing
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) throws TransactionException {
+        // nothing
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) throws TransactionException {
+        // nothing
+    }
+}
@@ -0,0 +1,26 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Base class for the firers created for each observer method. It holds the optional condition of the observer, which
+ * must be checked before an event is delivered, deferred or handed off.
+ * @author JB Nizet
+ */
+abstract class AbstractEventFirer implements EventFirer {
+
+    private final EventCondition condition;
+
+    protected AbstractEventFirer() {
+        this(null);
+    }
+
+    protected AbstractEventFirer(EventCondition condition) {
+        this.condition = condition;
+    }
+
+    /**
+     * Tells if the given event satisfies the condition of the observer, if any
+     */
+    final boolean accepts(Object event) {
+        return condition == null || condition.matches(event);
+    }
+}
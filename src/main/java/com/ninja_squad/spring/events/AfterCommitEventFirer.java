@@ -1,35 +1,66 @@
 package com.ninja_squad.spring.events;
 
-import org.springframework.transaction.support.TransactionSynchronizationAdapter;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
-import org.springframework.util.ReflectionUtils;
-
-import java.lang.reflect.Method;
-
 /**
- * Event firer which registers an transaction synchronization in order to call an observing method afer the transaction
- * is committed. If transaction synchronization is not active, this firer dosn't do anything.
+ * Event firer which adds the event to the {@link TransactionalEventBuffer} of the current transaction in order to call
+ * an observing method afer the transaction is committed. If transaction synchronization is not active, this firer
+ * dosn't do anything.
  * @author JB Nizet
  */
-class AfterCommitEventFirer implements EventFirer {
+class AfterCommitEventFirer extends AbstractEventFirer implements DeferredEventFirer {
+
+    private final ObserverInvoker invoker;
+    private final boolean timestamped;
+    private final EventCoalescer coalescer;
+    private final JournalingObserverInvoker journalingInvoker;
+
+    public AfterCommitEventFirer(ObserverInvoker invoker) {
+        this(invoker, false, null, null, null);
+    }
 
-    private final Object bean;
-    private final Method method;
+    /**
+     * Creates a firer
+     * @param invoker the invoker of the observer method
+     * @param timestamped if true, the events are buffered as {@link TimestampedEvent}s, in order to measure the time
+     * they spend in the buffer
+     * @param condition the condition that events must satisfy to be buffered, or null
+     * @param coalescer the coalescer of the buffered events, or null if they must not be coalesced
+     * @param journalingInvoker the invoker acknowledging the journaled events, found in the invoker chain, or null if
+     * the events must not be journaled
+     */
+    public AfterCommitEventFirer(ObserverInvoker invoker,
+                                 boolean timestamped,
+                                 EventCondition condition,
+                                 EventCoalescer coalescer,
+                                 JournalingObserverInvoker journalingInvoker) {
+        super(condition);
+        this.invoker = invoker;
+        this.timestamped = timestamped;
+        this.coalescer = coalescer;
+        this.journalingInvoker = journalingInvoker;
+    }
 
-    public AfterCommitEventFirer(Object bean, Method method) {
-        this.bean = bean;
-        this.method = method;
+    @Override
+    public void fire(Object event) {
+        // the condition is checked first, so that rejected events don't cause a synchronization to be registered
+        if (accepts(event)) {
+            TransactionalEventBuffer buffer = TransactionalEventBuffer.current();
+            if (buffer != null) {
+                defer(event, buffer);
+            }
+        }
     }
 
     @Override
-    public void fire(final Object event) {
-        if (TransactionSynchronizationManager.isSynchronizationActive()) {
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
-                @Override
-                public void afterCommit() {
-                    ReflectionUtils.invokeMethod(method, bean, event);
-                }
-            });
+    public void defer(Object event, TransactionalEventBuffer buffer) {
+        Object bufferedEvent = timestamped ? new TimestampedEvent(event) : event;
+        if (journalingInvoker != null) {
+            bufferedEvent = journalingInvoker.wrap(bufferedEvent);
+        }
+        if (coalescer == null) {
+            buffer.addAfterCommit(invoker, bufferedEvent);
+        }
+        else {
+            buffer.coalesceAfterCommit(invoker, bufferedEvent, coalescer.getKey(event), coalescer.getPolicy());
         }
     }
 }
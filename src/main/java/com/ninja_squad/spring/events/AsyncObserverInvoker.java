@@ -0,0 +1,46 @@
+package com.ninja_squad.spring.events;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Invoker which hands the event off to an executor, which then calls the observing method. Exceptions thrown by the
+ * observing method can't be propagated to the firer, and are thus logged.
+ * @author JB Nizet
+ */
+class AsyncObserverInvoker implements ObserverInvoker {
+
+    private static final Log logger = LogFactory.getLog(AsyncObserverInvoker.class);
+
+    private final ObserverInvoker delegate;
+    private final Executor executor;
+
+    public AsyncObserverInvoker(ObserverInvoker delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public void invoke(final Object event) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                invokeDelegate(delegate, event);
+            }
+        });
+    }
+
+    /**
+     * Calls the given invoker from an executor thread, and logs the exception it throws, if any
+     */
+    static void invokeDelegate(ObserverInvoker delegate, Object event) {
+        try {
+            delegate.invoke(event);
+        }
+        catch (Throwable e) {
+            logger.error("Unexpected exception thrown by asynchronous observer", e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Extension of {@link EventFirer} allowing to fire several events at once. The bean added to the application context
+ * by {@link EnableEvents} implements this interface, and can thus be autowired as a BatchEventFirer where batches of
+ * events need to be fired.
+ * @author JB Nizet
+ */
+public interface BatchEventFirer extends EventFirer {
+    /**
+     * Fires all the given events. This is equivalent to firing each event in turn, in the iteration order, but is
+     * faster when many events of the same class are fired: the observers of each class of event are resolved once,
+     * and the events to deliver after the transaction completes are buffered all at once.
+     */
+    void fireAll(Iterable<?> events);
+
+    /**
+     * Fires all the given events, which are expected to be instances of the given class (and not of a subclass).
+     * This is equivalent to {@link #fireAll(Iterable)}, but avoids checking the class of each event.
+     * Events which are not direct instances of the given class are supported, though, and fired as usual.
+     */
+    <E> void fireAll(Class<E> eventClass, Iterable<? extends E> events);
+}
@@ -0,0 +1,15 @@
+package com.ninja_squad.spring.events;
+
+import java.util.List;
+
+/**
+ * Invoker of an observing method taking a list (or a collection) of events as argument. Such an invoker can be
+ * invoked with a single event, or with several events at once.
+ * @author JB Nizet
+ */
+interface BatchInvoker extends ObserverInvoker {
+    /**
+     * Delivers all the given events. The list must not be modified after this call.
+     */
+    void invokeAll(List<Object> events);
+}
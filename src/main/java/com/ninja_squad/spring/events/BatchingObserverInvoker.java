@@ -0,0 +1,107 @@
+package com.ninja_squad.spring.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invoker which accumulates events, and asynchronously calls an observing method taking a list of events as argument
+ * once the maximum batch size is reached, or once the maximum delay since the first accumulated event has elapsed.
+ * @author JB Nizet
+ */
+class BatchingObserverInvoker implements BatchInvoker {
+
+    private final ObserverInvoker delegate;
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final int maxBatchSize;
+    private final long maxBatchDelayMillis;
+
+    private final Object lock = new Object();
+    private List<Object> pendingEvents;
+    private ScheduledFuture<?> scheduledFlush;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            List<Object> batch;
+            synchronized (lock) {
+                batch = takePendingEvents();
+            }
+            submit(batch);
+        }
+    };
+
+    public BatchingObserverInvoker(ObserverInvoker delegate,
+                                   Executor executor,
+                                   ScheduledExecutorService scheduler,
+                                   int maxBatchSize,
+                                   long maxBatchDelayMillis) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayMillis = maxBatchDelayMillis;
+    }
+
+    @Override
+    public void invoke(Object event) {
+        invokeAll(Collections.singletonList(event));
+    }
+
+    @Override
+    public void invokeAll(List<Object> events) {
+        List<List<Object>> fullBatches = null;
+        synchronized (lock) {
+            for (Object event : events) {
+                if (pendingEvents == null) {
+                    pendingEvents = new ArrayList<Object>();
+                    scheduledFlush = scheduler.schedule(flushTask, maxBatchDelayMillis, TimeUnit.MILLISECONDS);
+                }
+                pendingEvents.add(event);
+                if (pendingEvents.size() >= maxBatchSize) {
+                    if (fullBatches == null) {
+                        fullBatches = new ArrayList<List<Object>>();
+                    }
+                    fullBatches.add(takePendingEvents());
+                }
+            }
+        }
+        if (fullBatches != null) {
+            for (List<Object> batch : fullBatches) {
+                submit(batch);
+            }
+        }
+    }
+
+    /**
+     * Takes the pending events, and cancels the scheduled flush. Must be called with the lock held.
+     * @return the pending events, or null if there is none
+     */
+    private List<Object> takePendingEvents() {
+        List<Object> result = pendingEvents;
+        pendingEvents = null;
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return result;
+    }
+
+    private void submit(List<Object> batch) {
+        if (batch == null) {
+            return;
+        }
+        final List<Object> events = Collections.unmodifiableList(batch);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                AsyncObserverInvoker.invokeDelegate(delegate, events);
+            }
+        });
+    }
+}
@@ -0,0 +1,634 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.objenesis.Objenesis;
+import org.springframework.objenesis.ObjenesisStd;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compact binary codec of {@link Distributed} events. The events are encoded field by field, without any field name:
+ * the fields of a class (including the inherited ones, but not the static and transient ones) are encoded in a fixed
+ * order, which only depends on the class itself. Integral values are encoded as variable-length integers, and each
+ * class name is only written once per message. The fields can be of a primitive type, or contain strings, boxed
+ * primitives, enums, UUIDs, dates, big decimals, lists, sets, maps, or objects of non-JDK classes, which are encoded
+ * field by field in the same way.<br>
+ * Decoded events are instantiated without calling any constructor, and their fields are set directly. Since a
+ * received message could thus instantiate any class, only messages containing distributed events can be decoded, and
+ * the objects and enums of non-JDK classes they contain, at any depth, must also be of a distributed class, or of one
+ * of the allowed classes (or of one of their subclasses) given to the constructor. Events which don't respect these
+ * rules can't be encoded either. The sending and receiving nodes must use the same version of the event classes.<br>
+ * The lists, sets, maps and objects can't be nested more than {@value #MAX_DEPTH} levels deep, so that a received
+ * message can't exhaust the stack of the receiving thread.
+ * @author JB Nizet
+ */
+public class BinaryEventCodec implements EventCodec {
+
+    private static final byte NULL = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte BYTE = 2;
+    private static final byte SHORT = 3;
+    private static final byte CHAR = 4;
+    private static final byte INT = 5;
+    private static final byte LONG = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DOUBLE = 8;
+    private static final byte STRING = 9;
+    private static final byte ENUM = 10;
+    private static final byte UUID_VALUE = 11;
+    private static final byte DATE = 12;
+    private static final byte BIG_DECIMAL = 13;
+    private static final byte LIST = 14;
+    private static final byte SET = 15;
+    private static final byte MAP = 16;
+    private static final byte OBJECT = 17;
+
+    /**
+     * The maximum number of nested lists, sets, maps and objects in an event
+     */
+    static final int MAX_DEPTH = 64;
+
+    private static final Comparator<Field> FIELD_ORDER = new Comparator<Field>() {
+        @Override
+        public int compare(Field f1, Field f2) {
+            return f1.getName().compareTo(f2.getName());
+        }
+    };
+
+    private final ClassLoader classLoader;
+    private final Set<Class<?>> allowedClasses;
+    private final Objenesis objenesis = new ObjenesisStd(true);
+
+    /**
+     * The encoded fields of each class
+     */
+    private final ClassValue<Field[]> fieldsByClass = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            return findFields(type);
+        }
+    };
+
+    /**
+     * Creates a codec decoding the classes with the default class loader
+     */
+    public BinaryEventCodec() {
+        this(ClassUtils.getDefaultClassLoader());
+    }
+
+    /**
+     * Creates a codec decoding the classes with the given class loader
+     */
+    public BinaryEventCodec(ClassLoader classLoader) {
+        this(classLoader, Collections.<Class<?>>emptySet());
+    }
+
+    /**
+     * Creates a codec decoding the classes with the given class loader
+     * @param allowedClasses the classes, not annotated with {@link Distributed}, of the objects and enums contained in
+     * the events. Their subclasses are also allowed.
+     */
+    public BinaryEventCodec(ClassLoader classLoader, Collection<Class<?>> allowedClasses) {
+        this.classLoader = classLoader;
+        this.allowedClasses = new LinkedHashSet<Class<?>>(allowedClasses);
+    }
+
+    @Override
+    public byte[] encode(List<?> events) {
+        Output out = new Output();
+        Map<Class<?>, Integer> classTable = new HashMap<Class<?>, Integer>();
+        out.writeVarInt(events.size());
+        for (Object event : events) {
+            writeClass(out, classTable, event.getClass());
+            writeFields(out, classTable, event, 0);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public List<Object> decode(byte[] message) {
+        Input in = new Input(message);
+        List<Class<?>> classTable = new ArrayList<Class<?>>();
+        int count = in.readVarInt();
+        List<Object> result = new ArrayList<Object>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            Class<?> eventClass = readClass(in, classTable);
+            if (AnnotationUtils.findAnnotation(eventClass, Distributed.class) == null) {
+                throw new IllegalStateException("The received event class " + eventClass.getName()
+                                                    + " is not distributed");
+            }
+            result.add(readFields(in, classTable, eventClass, 0));
+        }
+        if (in.position != message.length) {
+            throw new IllegalStateException("Unexpected bytes at the end of the message");
+        }
+        return result;
+    }
+
+    private void writeFields(Output out, Map<Class<?>, Integer> classTable, Object object, int depth) {
+        for (Field field : fieldsByClass.get(object.getClass())) {
+            try {
+                Class<?> type = field.getType();
+                if (type == boolean.class) {
+                    out.writeByte(field.getBoolean(object) ? 1 : 0);
+                }
+                else if (type == byte.class) {
+                    out.writeByte(field.getByte(object));
+                }
+                else if (type == short.class) {
+                    out.writeVarInt(zigZag(field.getShort(object)));
+                }
+                else if (type == char.class) {
+                    out.writeVarInt(field.getChar(object));
+                }
+                else if (type == int.class) {
+                    out.writeVarInt(zigZag(field.getInt(object)));
+                }
+                else if (type == long.class) {
+                    out.writeVarLong(zigZag(field.getLong(object)));
+                }
+                else if (type == float.class) {
+                    out.writeFixedInt(Float.floatToIntBits(field.getFloat(object)));
+                }
+                else if (type == double.class) {
+                    out.writeFixedLong(Double.doubleToLongBits(field.getDouble(object)));
+                }
+                else {
+                    writeValue(out, classTable, field.get(object), depth);
+                }
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException("Unable to read the field " + field, e);
+            }
+        }
+    }
+
+    private Object readFields(Input in, List<Class<?>> classTable, Class<?> type, int depth) {
+        Object object = objenesis.newInstance(type);
+        for (Field field : fieldsByClass.get(type)) {
+            try {
+                Class<?> fieldType = field.getType();
+                if (fieldType == boolean.class) {
+                    field.setBoolean(object, in.readByte() != 0);
+                }
+                else if (fieldType == byte.class) {
+                    field.setByte(object, in.readByte());
+                }
+                else if (fieldType == short.class) {
+                    field.setShort(object, (short) unZigZag(in.readVarInt()));
+                }
+                else if (fieldType == char.class) {
+                    field.setChar(object, (char) in.readVarInt());
+                }
+                else if (fieldType == int.class) {
+                    field.setInt(object, unZigZag(in.readVarInt()));
+                }
+                else if (fieldType == long.class) {
+                    field.setLong(object, unZigZag(in.readVarLong()));
+                }
+                else if (fieldType == float.class) {
+                    field.setFloat(object, Float.intBitsToFloat(in.readFixedInt()));
+                }
+                else if (fieldType == double.class) {
+                    field.setDouble(object, Double.longBitsToDouble(in.readFixedLong()));
+                }
+                else {
+                    Object value = readValue(in, classTable, depth);
+                    if (value != null && !ClassUtils.isAssignableValue(fieldType, value)) {
+                        throw new IllegalStateException(
+                            String.format("The received value of the field %s has the unexpected type %s",
+                                          field,
+                                          value.getClass().getName()));
+                    }
+                    field.set(object, value);
+                }
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException("Unable to write the field " + field, e);
+            }
+        }
+        return object;
+    }
+
+    private void writeValue(Output out, Map<Class<?>, Integer> classTable, Object value, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("The values of the event are nested more than " + MAX_DEPTH
+                                                   + " levels deep, and can't be encoded");
+        }
+        if (value == null) {
+            out.writeByte(NULL);
+        }
+        else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeString((String) value);
+        }
+        else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeVarInt(zigZag((Integer) value));
+        }
+        else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeVarLong(zigZag((Long) value));
+        }
+        else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeByte((Boolean) value ? 1 : 0);
+        }
+        else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        }
+        else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeVarInt(zigZag((Short) value));
+        }
+        else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeVarInt((Character) value);
+        }
+        else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFixedInt(Float.floatToIntBits((Float) value));
+        }
+        else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeFixedLong(Double.doubleToLongBits((Double) value));
+        }
+        else if (value instanceof Enum) {
+            Class<?> enumClass = ((Enum<?>) value).getDeclaringClass();
+            if (!isJdkClass(enumClass) && !isAllowed(enumClass)) {
+                throw new IllegalArgumentException("The enum " + enumClass.getName() + " is neither distributed nor "
+                                                       + "allowed, and can't be encoded");
+            }
+            out.writeByte(ENUM);
+            writeClass(out, classTable, enumClass);
+            out.writeVarInt(((Enum<?>) value).ordinal());
+        }
+        else if (value instanceof UUID) {
+            out.writeByte(UUID_VALUE);
+            out.writeFixedLong(((UUID) value).getMostSignificantBits());
+            out.writeFixedLong(((UUID) value).getLeastSignificantBits());
+        }
+        else if (value.getClass() == Date.class) {
+            out.writeByte(DATE);
+            out.writeVarLong(zigZag(((Date) value).getTime()));
+        }
+        else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            out.writeString(value.toString());
+        }
+        else if (value instanceof List || value instanceof Set) {
+            out.writeByte(value instanceof List ? LIST : SET);
+            Collection<?> collection = (Collection<?>) value;
+            out.writeVarInt(collection.size());
+            for (Object element : collection) {
+                writeValue(out, classTable, element, depth + 1);
+            }
+        }
+        else if (value instanceof Map) {
+            out.writeByte(MAP);
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, classTable, entry.getKey(), depth + 1);
+                writeValue(out, classTable, entry.getValue(), depth + 1);
+            }
+        }
+        else if (isJdkClass(value.getClass()) || value.getClass().isArray()) {
+            throw new IllegalArgumentException("Values of type " + value.getClass().getName() + " can't be encoded");
+        }
+        else if (!isAllowed(value.getClass())) {
+            throw new IllegalArgumentException("The class " + value.getClass().getName() + " is neither distributed "
+                                                   + "nor allowed, and can't be encoded");
+        }
+        else {
+            out.writeByte(OBJECT);
+            writeClass(out, classTable, value.getClass());
+            writeFields(out, classTable, value, depth + 1);
+        }
+    }
+
+    private Object readValue(Input in, List<Class<?>> classTable, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalStateException("The values of the received event are nested more than " + MAX_DEPTH
+                                                + " levels deep");
+        }
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return in.readString();
+            case INT:
+                return unZigZag(in.readVarInt());
+            case LONG:
+                return unZigZag(in.readVarLong());
+            case BOOLEAN:
+                return in.readByte() != 0;
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return (short) unZigZag(in.readVarInt());
+            case CHAR:
+                return (char) in.readVarInt();
+            case FLOAT:
+                return Float.intBitsToFloat(in.readFixedInt());
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readFixedLong());
+            case ENUM:
+                return readEnum(in, classTable);
+            case UUID_VALUE:
+                return new UUID(in.readFixedLong(), in.readFixedLong());
+            case DATE:
+                return new Date(unZigZag(in.readVarLong()));
+            case BIG_DECIMAL:
+                return new BigDecimal(in.readString());
+            case LIST:
+            case SET:
+                int size = in.readVarInt();
+                Collection<Object> collection =
+                    tag == LIST ? new ArrayList<Object>(Math.min(size, 1024)) : new LinkedHashSet<Object>();
+                for (int i = 0; i < size; i++) {
+                    collection.add(readValue(in, classTable, depth + 1));
+                }
+                return collection;
+            case MAP:
+                int entryCount = in.readVarInt();
+                Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+                for (int i = 0; i < entryCount; i++) {
+                    map.put(readValue(in, classTable, depth + 1), readValue(in, classTable, depth + 1));
+                }
+                return map;
+            case OBJECT:
+                Class<?> type = readClass(in, classTable);
+                if (isJdkClass(type) || type.isArray() || type.isInterface() || !isAllowed(type)) {
+                    throw new IllegalStateException("The received class " + type.getName() + " can't be decoded");
+                }
+                return readFields(in, classTable, type, depth + 1);
+            default:
+                throw new IllegalStateException("Unknown value tag " + tag);
+        }
+    }
+
+    private Object readEnum(Input in, List<Class<?>> classTable) {
+        Class<?> type = readClass(in, classTable);
+        if (!type.isEnum()) {
+            throw new IllegalStateException("The received class " + type.getName() + " is not an enum");
+        }
+        if (!isJdkClass(type) && !isAllowed(type)) {
+            throw new IllegalStateException("The received enum " + type.getName() + " can't be decoded");
+        }
+        Object[] constants = type.getEnumConstants();
+        int ordinal = in.readVarInt();
+        if (ordinal < 0 || ordinal >= constants.length) {
+            throw new IllegalStateException("Unknown ordinal " + ordinal + " of the enum " + type.getName());
+        }
+        return constants[ordinal];
+    }
+
+    /**
+     * Writes the name of the class the first time it's written in a message, and its index in the message otherwise
+     */
+    private void writeClass(Output out, Map<Class<?>, Integer> classTable, Class<?> type) {
+        Integer index = classTable.get(type);
+        if (index != null) {
+            out.writeVarInt(index + 1);
+        }
+        else {
+            out.writeVarInt(0);
+            out.writeString(type.getName());
+            classTable.put(type, classTable.size());
+        }
+    }
+
+    private Class<?> readClass(Input in, List<Class<?>> classTable) {
+        int index = in.readVarInt();
+        if (index > 0) {
+            if (index > classTable.size()) {
+                throw new IllegalStateException("Unknown class index " + index);
+            }
+            return classTable.get(index - 1);
+        }
+        String name = in.readString();
+        try {
+            Class<?> type = ClassUtils.forName(name, classLoader);
+            classTable.add(type);
+            return type;
+        }
+        catch (ClassNotFoundException e) {
+            throw new IllegalStateException("The received class " + name + " can't be found", e);
+        }
+    }
+
+    /**
+     * Tells if the objects or enums of the given class can be contained in an event: it must be a distributed class,
+     * or an allowed one
+     */
+    private boolean isAllowed(Class<?> type) {
+        if (AnnotationUtils.findAnnotation(type, Distributed.class) != null) {
+            return true;
+        }
+        for (Class<?> allowedClass : allowedClasses) {
+            if (allowedClass.isAssignableFrom(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isJdkClass(Class<?> type) {
+        return type.getName().startsWith("java.");
+    }
+
+    /**
+     * Finds the encoded fields of a class: the fields of its super classes first, and then its own fields, sorted by
+     * name
+     */
+    private static Field[] findFields(Class<?> type) {
+        List<Field> result = new ArrayList<Field>();
+        if (type.getSuperclass() != null && type.getSuperclass() != Object.class) {
+            result.addAll(Arrays.asList(findFields(type.getSuperclass())));
+        }
+        List<Field> ownFields = new ArrayList<Field>();
+        for (Field field : type.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                ReflectionUtils.makeAccessible(field);
+                ownFields.add(field);
+            }
+        }
+        Collections.sort(ownFields, FIELD_ORDER);
+        result.addAll(ownFields);
+        return result.toArray(new Field[result.size()]);
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1L);
+    }
+
+    /**
+     * Growable byte array to which values are written
+     */
+    private static final class Output {
+        private byte[] bytes = new byte[64];
+        private int size;
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0L) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeFixedInt(int value) {
+            ensureCapacity(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeFixedLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(utf8.length);
+            ensureCapacity(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensureCapacity(int count) {
+            if (size + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + count));
+            }
+        }
+    }
+
+    /**
+     * Reader of the values of a message
+     */
+    private static final class Input {
+        private final byte[] bytes;
+        private int position;
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        byte readByte() {
+            require(1);
+            return bytes[position++];
+        }
+
+        int readVarInt() {
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = readByte();
+                result |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new IllegalStateException("Malformed variable-length integer");
+        }
+
+        long readVarLong() {
+            long result = 0L;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new IllegalStateException("Malformed variable-length long");
+        }
+
+        int readFixedInt() {
+            require(4);
+            int result = 0;
+            for (int i = 0; i < 4; i++) {
+                result = (result << 8) | (bytes[position++] & 0xFF);
+            }
+            return result;
+        }
+
+        long readFixedLong() {
+            require(8);
+            long result = 0L;
+            for (int i = 0; i < 8; i++) {
+                result = (result << 8) | (bytes[position++] & 0xFF);
+            }
+            return result;
+        }
+
+        String readString() {
+            int length = readVarInt();
+            require(length);
+            String result = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return result;
+        }
+
+        private void require(int count) {
+            if (count < 0 || position + count > bytes.length) {
+                throw new IllegalStateException("Truncated message");
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.ninja_squad.spring.events;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation isolating an observer method, annotated with {@link Observes}, so that a slow or failing observer can't
+ * stall the thread firing or delivering the events, and the other observers:
+ * <ul>
+ *     <li>the number of concurrent calls of the observer can be limited. When the limit is reached, events are not
+ *     delivered to the observer, and are counted as rejected;</li>
+ *     <li>the time the delivering thread waits for the observer can be limited. The observer is then called by
+ *     another thread, and when the timeout expires, the delivering thread stops waiting, and the call is either
+ *     interrupted or left running in the background, depending on the {@link #onTimeout() timeout policy};</li>
+ *     <li>a circuit breaker can stop calling the observer once it fails or times out several times in a row. Events
+ *     are then not delivered to the observer, and are counted as short-circuited. Once the circuit has been open for
+ *     the configured duration, a single trial call is allowed: if it succeeds, the circuit is closed again and the
+ *     observer is called as usual; otherwise, the circuit is opened again.</li>
+ * </ul>
+ * Several observers can share the same bulkhead, and thus the same concurrency limit and circuit breaker, by using the
+ * same group. The bulkhead annotations of the observers of a group must then be identical.<br>
+ * Note that observers having a timeout are called by another thread, which doesn't see the transaction, or any other
+ * thread-bound state, of the delivering thread. Exceptions thrown by the observer before the timeout expires are
+ * propagated to the delivering thread, as usual. Exceptions thrown after are logged. A timeout should be combined with
+ * a concurrency limit, in order to bound the number of threads which can be stuck in a slow observer.<br>
+ * The events rejected or short-circuited by the bulkhead of a durable observer are not acknowledged, and are thus
+ * delivered again when the application restarts.
+ * @author JB Nizet
+ * @see EventObserverBeanPostProcessor#getBulkheadStatistics()
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Bulkhead {
+    /**
+     * The name of the group of observers sharing this bulkhead. If empty (the default), the bulkhead is specific to
+     * the annotated observer.
+     */
+    String group() default "";
+
+    /**
+     * The maximum number of concurrent calls of the observer (or of the observers of the group). 0, the default,
+     * means that the number of concurrent calls is not limited.
+     */
+    int maxConcurrentCalls() default 0;
+
+    /**
+     * The maximum time, in milliseconds, the delivering thread waits for the observer. 0, the default, means that
+     * the observer is called by the delivering thread itself, without any timeout.
+     */
+    long timeout() default 0L;
+
+    /**
+     * Tells what happens to a call which hasn't completed when the timeout expires. By default, the call is left
+     * running in the background.
+     */
+    TimeoutPolicy onTimeout() default TimeoutPolicy.CONTINUE_IN_BACKGROUND;
+
+    /**
+     * The number of consecutive failures or timeouts after which the circuit breaker opens. 0, the default, means
+     * that there is no circuit breaker.
+     */
+    int failureThreshold() default 0;
+
+    /**
+     * The time, in milliseconds, during which the circuit breaker stays open before a trial call is allowed. The
+     * default is 30 seconds.
+     */
+    long openDuration() default 30000L;
+}
@@ -0,0 +1,176 @@
+package com.ninja_squad.spring.events;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Invoker which calls its delegate through an {@link ObserverBulkhead}. Deliveries are skipped when the bulkhead
+ * rejects them. If the bulkhead has a timeout, the delegate is called by an executor thread, and the calling thread
+ * waits for it at most during the timeout. It's placed before the batching and asynchronous invokers in the invoker
+ * chain, so that it isolates the actual calls of the observer rather than their submission, and after the journaling
+ * invoker, so that skipped deliveries are not acknowledged. The {@link PooledEvent}s are retained until the call
+ * completes, since it can outlive the timeout.
+ * @author JB Nizet
+ */
+class BulkheadObserverInvoker implements ObserverInvoker {
+
+    private static final Log logger = LogFactory.getLog(BulkheadObserverInvoker.class);
+
+    private final ObserverInvoker delegate;
+    private final ObserverBulkhead bulkhead;
+    private final String observerName;
+    private final Executor executor;
+
+    /**
+     * Creates an invoker
+     * @param delegate the invoker of the observer
+     * @param bulkhead the bulkhead, possibly shared with other observers
+     * @param observerName the name of the observer, used for logging
+     * @param executor the executor calling the observer when the bulkhead has a timeout, or null if it hasn't
+     */
+    public BulkheadObserverInvoker(ObserverInvoker delegate,
+                                   ObserverBulkhead bulkhead,
+                                   String observerName,
+                                   Executor executor) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+        this.observerName = observerName;
+        this.executor = executor;
+    }
+
+    @Override
+    public void invoke(Object event) {
+        if (!bulkhead.tryEnter()) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Event not delivered to " + observerName + " by its bulkhead: " + event);
+            }
+            return;
+        }
+        if (executor == null) {
+            boolean success = false;
+            try {
+                delegate.invoke(event);
+                success = true;
+            }
+            finally {
+                bulkhead.exit(success);
+            }
+        }
+        else {
+            invokeWithTimeout(event);
+        }
+    }
+
+    private void invokeWithTimeout(Object event) {
+        Call call = new Call(event);
+        FutureTask<Void> task = new FutureTask<Void>(call, null);
+        PooledEvent.retainIfPooled(event);
+        try {
+            executor.execute(task);
+        }
+        catch (RejectedExecutionException e) {
+            PooledEvent.releaseIfPooled(event);
+            bulkhead.exit(false);
+            throw e;
+        }
+
+        Bulkhead configuration = bulkhead.getConfiguration();
+        try {
+            task.get(configuration.timeout(), TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e) {
+            logger.warn("The call of " + observerName + " hasn't completed in " + configuration.timeout() + " ms");
+            if (call.claimResult()) {
+                bulkhead.recordTimeout();
+            }
+            if (configuration.onTimeout() == TimeoutPolicy.INTERRUPT) {
+                if (call.claimStart()) {
+                    // the call hasn't even started, and never will
+                    PooledEvent.releaseIfPooled(event);
+                    bulkhead.release();
+                }
+                task.cancel(true);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new UndeclaredThrowableException(cause);
+        }
+    }
+
+    /**
+     * The call of the delegate by the executor thread, which leaves the bulkhead once completed. Its result is
+     * recorded either by the executor thread once completed, or by the calling thread when the timeout expires,
+     * whichever comes first.
+     */
+    private final class Call implements Runnable {
+        private final Object event;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final AtomicBoolean resultRecorded = new AtomicBoolean();
+
+        Call(Object event) {
+            this.event = event;
+        }
+
+        boolean claimStart() {
+            return started.compareAndSet(false, true);
+        }
+
+        boolean claimResult() {
+            return resultRecorded.compareAndSet(false, true);
+        }
+
+        @Override
+        public void run() {
+            if (!claimStart()) {
+                return;
+            }
+            boolean success = false;
+            try {
+                delegate.invoke(event);
+                success = true;
+            }
+            catch (RuntimeException e) {
+                logIfTimedOut(e);
+                throw e;
+            }
+            catch (Error e) {
+                logIfTimedOut(e);
+                throw e;
+            }
+            finally {
+                PooledEvent.releaseIfPooled(event);
+                if (claimResult()) {
+                    bulkhead.exit(success);
+                }
+                else {
+                    bulkhead.release();
+                }
+            }
+        }
+
+        private void logIfTimedOut(Throwable e) {
+            if (resultRecorded.get()) {
+                logger.error("Unexpected exception thrown by " + observerName + " after its timeout", e);
+            }
+        }
+    }
+}
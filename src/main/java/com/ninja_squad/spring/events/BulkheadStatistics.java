@@ -0,0 +1,44 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Statistics about a {@link Bulkhead}, shared by all the observers of its group.
+ * @author JB Nizet
+ * @see EventObserverBeanPostProcessor#getBulkheadStatistics()
+ */
+public interface BulkheadStatistics {
+    /**
+     * Gets the name of the bulkhead: its group if it has one, or the name of its observer otherwise
+     */
+    String getName();
+
+    /**
+     * Gets the maximum number of concurrent calls, or 0 if it's not limited
+     */
+    int getMaxConcurrentCalls();
+
+    /**
+     * Gets the number of calls currently in progress, including the ones which have timed out but are still running
+     * in the background
+     */
+    int getActiveCalls();
+
+    /**
+     * Gets the number of deliveries rejected because the maximum number of concurrent calls was reached
+     */
+    long getRejectedCount();
+
+    /**
+     * Gets the number of calls which haven't completed before the timeout expired
+     */
+    long getTimedOutCount();
+
+    /**
+     * Gets the number of deliveries skipped because the circuit breaker was open
+     */
+    long getShortCircuitedCount();
+
+    /**
+     * Tells if the circuit breaker is currently open (or half-open, waiting for the result of a trial call)
+     */
+    boolean isCircuitOpen();
+}
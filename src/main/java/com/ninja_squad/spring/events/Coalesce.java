@@ -0,0 +1,37 @@
+package com.ninja_squad.spring.events;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation that makes the events deferred until the end of a transaction coalesced: among the events having the same
+ * key, fired during a transaction for a given observer, only one is delivered after the transaction is committed or
+ * rollbacked. For example, if an <code>InvoiceUpdated</code> event is fired hundreds of times for the same invoice
+ * during a bulk update, an observer reindexing the invoice after commit is only called once for this invoice.
+ * <br>
+ * This annotation can be set on an event class (or on one of its super classes or interfaces), in which case it
+ * applies to all the observers of this event type called after commit or after rollback, or on a method annotated with
+ * {@link Observes}, in which case it only applies to this observer. Observers called in progress ignore the annotation
+ * of the event class, and can't be annotated.<br>
+ * For observers taking a list of events, the coalescing is applied to each event of the list.
+ * @author JB Nizet
+ */
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Coalesce {
+    /**
+     * The name of a readable property, or of a method without argument, of the observed event type, returning the
+     * coalescing key of the events. If empty (the default), the events themselves are the keys, and events are thus
+     * coalesced if they're equal.
+     */
+    String key() default "";
+
+    /**
+     * Tells which of the events having the same key is delivered. By default, the last one is delivered.
+     */
+    CoalescingPolicy keep() default CoalescingPolicy.KEEP_LAST;
+}
@@ -0,0 +1,19 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Tells which of the events having the same key, deferred to the same observer during a transaction, is delivered.
+ * @author JB Nizet
+ * @see Coalesce#keep()
+ */
+public enum CoalescingPolicy {
+    /**
+     * Indicates that the first event must be delivered, and the next ones ignored
+     */
+    KEEP_FIRST,
+
+    /**
+     * Indicates that the last event must be delivered, at the position of the first one, which thus reflects the
+     * latest state at the end of the transaction
+     */
+    KEEP_LAST;
+}
@@ -0,0 +1,15 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Firer which doesn't call its observing method immediately, but defers it until the completion of the current
+ * transaction. This interface allows firing batches of events without looking up the transactional buffer for each
+ * event and observer.
+ * @author JB Nizet
+ */
+interface DeferredEventFirer extends EventFirer {
+    /**
+     * Adds the event to the given buffer, which is the buffer of the current transaction. The event is supposed to
+     * satisfy the condition of the observer.
+     */
+    void defer(Object event, TransactionalEventBuffer buffer);
+}
@@ -0,0 +1,70 @@
+package com.ninja_squad.spring.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Snapshot of the resolved dispatch list of a concrete event class, exposed by the {@link EventRegistry}
+ * @author JB Nizet
+ */
+public final class DispatchSummary {
+    private final String eventClass;
+    private final List<String> observers;
+    private final int resolutionCount;
+    private final long lookupCount;
+    private final double hitRate;
+
+    DispatchSummary(Class<?> eventClass, EventDispatchTable.Dispatch dispatch) {
+        this.eventClass = eventClass.getName();
+        List<String> observerNames = new ArrayList<String>();
+        for (ObserverDescriptor observer : dispatch.getObservers()) {
+            observerNames.add(observer.getName());
+        }
+        this.observers = Collections.unmodifiableList(observerNames);
+        this.resolutionCount = dispatch.getResolutionCount();
+        this.lookupCount = dispatch.getLookupCount();
+        this.hitRate = dispatch.getHitRate();
+    }
+
+    /**
+     * Gets the name of the concrete event class
+     */
+    public String getEventClass() {
+        return eventClass;
+    }
+
+    /**
+     * Gets the names of the observers called for this event class, in the order they're called
+     */
+    public List<String> getObservers() {
+        return observers;
+    }
+
+    /**
+     * Gets the number of times the dispatch list has been resolved
+     */
+    public int getResolutionCount() {
+        return resolutionCount;
+    }
+
+    /**
+     * Gets the number of times the dispatch list has been looked up since the statistics have been reset
+     */
+    public long getLookupCount() {
+        return lookupCount;
+    }
+
+    /**
+     * Gets the ratio of lookups which have found the dispatch list already resolved since the statistics have been
+     * reset, or NaN if there wasn't any lookup
+     */
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    @Override
+    public String toString() {
+        return eventClass + " -> " + observers;
+    }
+}
@@ -0,0 +1,27 @@
+package com.ninja_squad.spring.events;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation marking an event class (or one of its super classes or interfaces) as distributed: the events of this
+ * class fired on a node are also sent, through the {@link EventTransport} bean, to the other nodes of the application,
+ * where they're fired to the local observers. This is typically used for cache invalidation events.<br>
+ * Distributed events fired in a transaction are sent once the transaction is committed, and are not sent if it's
+ * rollbacked. Distributed events fired outside of a transaction are sent immediately. In both cases, the events are
+ * handed off to a sender thread, which encodes all the events waiting to be sent in a single message, so firing a
+ * distributed event never waits for the network.<br>
+ * On the receiving nodes, the events are fired outside of any transaction, by the receiving thread of the transport:
+ * only the observers called in progress are called, and slow observers should be asynchronous. Received events are
+ * not sent again. The events are encoded by the {@link EventCodec} bean, or by a {@link BinaryEventCodec} if there is
+ * none.
+ * @author JB Nizet
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Distributed {
+}
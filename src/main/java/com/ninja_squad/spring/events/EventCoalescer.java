@@ -0,0 +1,39 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Computes the coalescing keys of the events deferred to an observer, as specified by a {@link Coalesce} annotation
+ * @author JB Nizet
+ */
+class EventCoalescer {
+
+    /**
+     * The key extractor, or null if the events are their own keys
+     */
+    private final EventKeyExtractor keyExtractor;
+    private final CoalescingPolicy policy;
+
+    EventCoalescer(EventKeyExtractor keyExtractor, CoalescingPolicy policy) {
+        this.keyExtractor = keyExtractor;
+        this.policy = policy;
+    }
+
+    /**
+     * Creates a coalescer
+     * @param coalesce the annotation of the observer method or of the event type
+     * @param eventType the observed event type
+     * @throws IllegalStateException if the key of the annotation isn't a property or method of the event type
+     */
+    public static EventCoalescer create(Coalesce coalesce, Class<?> eventType) {
+        EventKeyExtractor keyExtractor =
+            coalesce.key().isEmpty() ? null : EventKeyExtractor.create(eventType, coalesce.key());
+        return new EventCoalescer(keyExtractor, coalesce.keep());
+    }
+
+    public Object getKey(Object event) {
+        return keyExtractor == null ? event : keyExtractor.extractKey(event);
+    }
+
+    public CoalescingPolicy getPolicy() {
+        return policy;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ninja_squad.spring.events;
+
+import java.util.List;
+
+/**
+ * Encodes the {@link Distributed} events into the messages sent by the {@link EventTransport}, and decodes the
+ * received messages
+ * @author JB Nizet
+ * @see BinaryEventCodec
+ */
+public interface EventCodec {
+    /**
+     * Encodes the given events into a single message
+     * @throws IllegalArgumentException if an event can't be encoded
+     */
+    byte[] encode(List<?> events);
+
+    /**
+     * Decodes the events of a message
+     * @throws IllegalStateException if the message is malformed, or contains events which are not distributed
+     */
+    List<Object> decode(byte[] message);
+}
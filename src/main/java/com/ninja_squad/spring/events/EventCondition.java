@@ -0,0 +1,13 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Condition that an event must satisfy to be delivered to an observer, created from the <code>condition</code>
+ * attribute of the {@link Observes} annotation
+ * @author JB Nizet
+ */
+interface EventCondition {
+    /**
+     * Tells if the given event must be delivered to the observer
+     */
+    boolean matches(Object event);
+}
@@ -0,0 +1,94 @@
+package com.ninja_squad.spring.events;
+
+import com.google.common.base.Predicate;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.context.expression.BeanFactoryResolver;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.util.regex.Pattern;
+
+/**
+ * Factory of {@link EventCondition} instances. A condition is either a reference to a bean implementing
+ * {@link Predicate}, of the form <code>@beanName</code>, which is then called directly, or a SpEL expression, which is
+ * compiled to bytecode as soon as it has been evaluated once.
+ * @author JB Nizet
+ */
+final class EventConditions {
+
+    private static final Pattern BEAN_REFERENCE = Pattern.compile("@[\\w.$-]+");
+
+    private EventConditions() {
+    }
+
+    /**
+     * Creates a condition
+     * @param condition the predicate bean reference or the SpEL expression
+     * @param beanFactory the bean factory used to resolve the bean references
+     * @param classLoader the class loader used to compile the expression
+     * @throws IllegalArgumentException if the expression can't be parsed
+     */
+    public static EventCondition create(String condition, BeanFactory beanFactory, ClassLoader classLoader) {
+        String trimmed = condition.trim();
+        if (BEAN_REFERENCE.matcher(trimmed).matches()) {
+            Object bean = beanFactory.getBean(trimmed.substring(1));
+            if (bean instanceof Predicate) {
+                @SuppressWarnings("unchecked")
+                Predicate<Object> predicate = (Predicate<Object>) bean;
+                return new PredicateEventCondition(predicate);
+            }
+        }
+
+        SpelExpressionParser parser =
+            new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE, classLoader));
+        try {
+            Expression expression = parser.parseExpression(trimmed);
+            StandardEvaluationContext context = new StandardEvaluationContext();
+            context.setBeanResolver(new BeanFactoryResolver(beanFactory));
+            return new ExpressionEventCondition(expression, context);
+        }
+        catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid condition expression '" + condition + "'", e);
+        }
+    }
+
+    /**
+     * Condition delegating to a Guava predicate
+     */
+    private static final class PredicateEventCondition implements EventCondition {
+        private final Predicate<Object> predicate;
+
+        public PredicateEventCondition(Predicate<Object> predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean matches(Object event) {
+            return predicate.apply(event);
+        }
+    }
+
+    /**
+     * Condition evaluating a SpEL expression, with the event as root object. The evaluation context is shared by all
+     * the evaluations, and is never modified once created, so it can be used concurrently.
+     */
+    private static final class ExpressionEventCondition implements EventCondition {
+        private final Expression expression;
+        private final EvaluationContext context;
+
+        public ExpressionEventCondition(Expression expression, EvaluationContext context) {
+            this.expression = expression;
+            this.context = context;
+        }
+
+        @Override
+        public boolean matches(Object event) {
+            return Boolean.TRUE.equals(expression.getValue(context, event, Boolean.class));
+        }
+    }
+}
@@ -0,0 +1,515 @@
+package com.ninja_squad.spring.events;
+
+import com.google.common.collect.ImmutableList;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Table containing the firers to call for each concrete class of fired event. The firers of a class are resolved once,
+ * the first time an event of this class is fired, and stored in a flat array associated with the class itself using a
+ * {@link ClassValue}. Reading the table thus doesn't need any lock and doesn't allocate anything, and the entries don't
+ * prevent the event classes and their class loader from being garbage collected.<br>
+ * The classes for which the firers have been resolved are also tracked, weakly, so that the resolved dispatch lists can
+ * be inspected through the {@link EventRegistry}. Their dispatches are referenced weakly too, and only kept by the
+ * class value of their class, since the firers cached for each type of a resolvable event reference the event class.
+ * If lookup counting is enabled, each lookup of a dispatch list is counted, which allows computing the hit rate of the
+ * table.<br>
+ * The firers of an event class are sorted by order, and then by observer name, so that the observers are always called
+ * in the same, deterministic order. When an event class has several parallel observers, their firers are grouped into
+ * a single {@link ParallelEventFirer}, placed at the position of the first of them.<br>
+ * Observers of generic event types only receive the events matching their type arguments. For most event classes, the
+ * type arguments are resolved from the class, and the matching is thus done once, when the firers of the class are
+ * resolved. For event classes implementing {@link ResolvableEvent}, the type of each event is only known at runtime,
+ * so the firers are resolved, and cached, for each distinct event type.<br>
+ * If a remote firer is set, it's added after the firers of the observers of the {@link Distributed} event classes, so
+ * that checking whether an event must be sent to the other nodes costs nothing when it's fired.<br>
+ * Observers can be registered and unregistered at any time, concurrently with the firing threads. The registrations
+ * of each observed type are an immutable list, replaced at each change of this type only, so that registering all the
+ * observers at startup costs time proportional to the number of observers of each type, and not to the total number
+ * of observers. Only the resolved classes of events observed by the registered or unregistered observer are resolved
+ * again. Firing events thus never waits for a registration. A class resolved concurrently with a registration is
+ * resolved again if the registrations have changed while it was being resolved, since it's not yet among the resolved
+ * classes that the registration refreshes.
+ * @author JB Nizet
+ */
+class EventDispatchTable {
+
+    private static final EventFirer[] NO_FIRER = new EventFirer[0];
+
+    private static final Comparator<Registration> REGISTRATION_ORDER = new Comparator<Registration>() {
+        @Override
+        public int compare(Registration r1, Registration r2) {
+            int order1 = r1.observer.getOrder();
+            int order2 = r2.observer.getOrder();
+            if (order1 != order2) {
+                return order1 < order2 ? -1 : 1;
+            }
+            return r1.observer.getName().compareTo(r2.observer.getName());
+        }
+    };
+
+    /**
+     * Map containing, for each observed type of event collected by scanning the arguments of the @Observes annotated
+     * methods, the associated registrations. The list of a type is replaced, while holding the registration lock, at
+     * each change of this type.
+     */
+    private final ConcurrentMap<Class<?>, ImmutableList<Registration>> registrations =
+        new ConcurrentHashMap<Class<?>, ImmutableList<Registration>>();
+
+    private final Object registrationLock = new Object();
+
+    /**
+     * Incremented, while holding the registration lock, after each change of the registrations. A resolution which
+     * started before a change is done again.
+     */
+    private volatile long registrationVersion;
+
+    /**
+     * Contains, for each concrete class of fired event, the firers to call.
+     */
+    private final ClassValue<Dispatch> eventClassToDispatch = new ClassValue<Dispatch>() {
+        @Override
+        protected Dispatch computeValue(Class<?> eventClass) {
+            return resolve(eventClass);
+        }
+    };
+
+    /**
+     * The dispatches resolved so far, by concrete event class. Only used for inspection.
+     */
+    private final Map<Class<?>, WeakReference<Dispatch>> resolvedDispatches =
+        new WeakHashMap<Class<?>, WeakReference<Dispatch>>();
+
+    private volatile boolean lookupCounting;
+
+    /**
+     * The pool used to call the parallel observers
+     */
+    private ForkJoinPool parallelPool;
+
+    /**
+     * The firer sending the distributed events to the other nodes, or null if events are not distributed
+     */
+    private RemoteEventFirer remoteFirer;
+
+    /**
+     * Registers the given firer for the given observer. If events observed by the observer have already been fired,
+     * their dispatch lists are resolved again.
+     * @return the registration, which can be passed to {@link #unregister(Registration)}
+     */
+    public Registration register(ObserverDescriptor observer, ResolvableType observedType, EventFirer firer) {
+        Registration registration = new Registration(observer, observedType, firer);
+        Class<?> eventType = observer.getEventType();
+        synchronized (registrationLock) {
+            ImmutableList<Registration> typeRegistrations = registrations.get(eventType);
+            ImmutableList.Builder<Registration> builder = ImmutableList.builder();
+            if (typeRegistrations != null) {
+                builder.addAll(typeRegistrations);
+            }
+            registrations.put(eventType, builder.add(registration).build());
+            registrationVersion++;
+            refresh(eventType);
+        }
+        return registration;
+    }
+
+    /**
+     * Unregisters the given registration, and resolves again the dispatch lists of the events it observes. Does
+     * nothing if it has already been unregistered.
+     */
+    public void unregister(Registration registration) {
+        Class<?> eventType = registration.observer.getEventType();
+        synchronized (registrationLock) {
+            ImmutableList<Registration> typeRegistrations = registrations.get(eventType);
+            if (typeRegistrations == null || !typeRegistrations.contains(registration)) {
+                return;
+            }
+            if (typeRegistrations.size() == 1) {
+                registrations.remove(eventType);
+            }
+            else {
+                ImmutableList.Builder<Registration> builder = ImmutableList.builder();
+                for (Registration typeRegistration : typeRegistrations) {
+                    if (typeRegistration != registration) {
+                        builder.add(typeRegistration);
+                    }
+                }
+                registrations.put(eventType, builder.build());
+            }
+            registrationVersion++;
+            refresh(eventType);
+        }
+    }
+
+    /**
+     * Resolves again the dispatch lists of the resolved event classes which are subtypes of the given observed type.
+     * The resolution is done eagerly, rather than by the next firing thread, so that the inspected dispatch lists are
+     * up to date. It's counted as a miss.
+     */
+    private void refresh(Class<?> observedType) {
+        List<Class<?>> affectedClasses = new ArrayList<Class<?>>();
+        synchronized (resolvedDispatches) {
+            for (Class<?> eventClass : resolvedDispatches.keySet()) {
+                if (observedType.isAssignableFrom(eventClass)) {
+                    affectedClasses.add(eventClass);
+                }
+            }
+        }
+        for (Class<?> eventClass : affectedClasses) {
+            // the removal is ignored by the class value while a firing thread resolves the dispatch of the class. The
+            // dispatch it installs may have been resolved from the previous registrations, and is then removed again.
+            do {
+                eventClassToDispatch.remove(eventClass);
+            } while (eventClassToDispatch.get(eventClass).registrationVersion != registrationVersion);
+        }
+    }
+
+    /**
+     * Gets the firers to call for the given event. The returned array must not be modified.
+     */
+    public EventFirer[] getFirers(Object event) {
+        Dispatch dispatch = eventClassToDispatch.get(event.getClass());
+        if (lookupCounting) {
+            dispatch.lookupCount.incrementAndGet();
+        }
+        if (dispatch.firersByEventType == null) {
+            return dispatch.firers;
+        }
+        return getFirers(dispatch, ((ResolvableEvent) event).getResolvableType());
+    }
+
+    /**
+     * Gets the firers to call for events of the given concrete class, or null if they depend on each event because
+     * the class implements {@link ResolvableEvent}. The returned array must not be modified.
+     */
+    public EventFirer[] getClassFirers(Class<?> eventClass) {
+        Dispatch dispatch = eventClassToDispatch.get(eventClass);
+        if (lookupCounting) {
+            dispatch.lookupCount.incrementAndGet();
+        }
+        return dispatch.firersByEventType == null ? dispatch.firers : null;
+    }
+
+    private EventFirer[] getFirers(Dispatch dispatch, ResolvableType eventType) {
+        if (eventType == null) {
+            return dispatch.firers;
+        }
+        EventFirer[] result = dispatch.firersByEventType.get(eventType);
+        if (result == null) {
+            result = createFirers(filter(dispatch.candidates, eventType), dispatch.distributed);
+            EventFirer[] existing = dispatch.firersByEventType.putIfAbsent(eventType, result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets the pool used to call the parallel observers. Must be set before the first event is fired if there is at
+     * least one parallel observer.
+     */
+    public void setParallelPool(ForkJoinPool parallelPool) {
+        this.parallelPool = parallelPool;
+    }
+
+    /**
+     * Sets the firer sending the distributed events to the other nodes. Must be set before the first event is fired.
+     */
+    public void setRemoteFirer(RemoteEventFirer remoteFirer) {
+        this.remoteFirer = remoteFirer;
+    }
+
+    /**
+     * Enables or disables the counting of the lookups, disabled by default
+     */
+    public void setLookupCounting(boolean lookupCounting) {
+        this.lookupCounting = lookupCounting;
+    }
+
+    public boolean isLookupCounting() {
+        return lookupCounting;
+    }
+
+    /**
+     * Gets all the registered observers
+     */
+    public List<ObserverDescriptor> getObservers() {
+        List<ObserverDescriptor> result = new ArrayList<ObserverDescriptor>();
+        for (List<Registration> typeRegistrations : registrations.values()) {
+            for (Registration registration : typeRegistrations) {
+                result.add(registration.observer);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the dispatches resolved so far, by concrete event class
+     */
+    public Map<Class<?>, Dispatch> getResolvedDispatches() {
+        Map<Class<?>, Dispatch> result = new WeakHashMap<Class<?>, Dispatch>();
+        synchronized (resolvedDispatches) {
+            for (Map.Entry<Class<?>, WeakReference<Dispatch>> entry : resolvedDispatches.entrySet()) {
+                Dispatch dispatch = entry.getValue().get();
+                if (dispatch != null) {
+                    result.put(entry.getKey(), dispatch);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Resets the lookup counters of all the resolved dispatches
+     */
+    public void resetLookupCounts() {
+        for (Dispatch dispatch : getResolvedDispatches().values()) {
+            dispatch.lookupCount.set(0L);
+            dispatch.missCount.set(0L);
+        }
+    }
+
+    /**
+     * Resolves the dispatch of the given class, and records it among the resolved dispatches. If the registrations
+     * change during the resolution, the registration may have refreshed the resolved classes before this one was
+     * recorded among them, so the resolution is done again.
+     */
+    private Dispatch resolve(Class<?> eventClass) {
+        while (true) {
+            long version = registrationVersion;
+            Dispatch dispatch = resolve(eventClass, version);
+            if (dispatch != null) {
+                return dispatch;
+            }
+        }
+    }
+
+    /**
+     * Resolves the dispatch of the given class, and records it among the resolved dispatches, unless the registrations
+     * have changed since the given version, in which case null is returned
+     */
+    private Dispatch resolve(Class<?> eventClass, long version) {
+        List<Registration> candidates = new ArrayList<Registration>();
+        for (Class<?> type : getAllTypes(eventClass)) {
+            List<Registration> typeRegistrations = registrations.get(type);
+            if (typeRegistrations != null) {
+                candidates.addAll(typeRegistrations);
+            }
+        }
+        Collections.sort(candidates, REGISTRATION_ORDER);
+
+        // the candidates of a resolvable event class are kept, to be filtered for each actual event type
+        boolean resolvable = ResolvableEvent.class.isAssignableFrom(eventClass);
+        List<Registration> matching = filter(candidates, ResolvableType.forClass(eventClass));
+        List<Registration> inspected = resolvable ? candidates : matching;
+        ObserverDescriptor[] observers = new ObserverDescriptor[inspected.size()];
+        for (int i = 0; i < inspected.size(); i++) {
+            observers[i] = inspected.get(i).observer;
+        }
+        boolean distributed =
+            remoteFirer != null && AnnotationUtils.findAnnotation(eventClass, Distributed.class) != null;
+        EventFirer[] firers = createFirers(matching, distributed);
+
+        synchronized (resolvedDispatches) {
+            if (version != registrationVersion) {
+                return null;
+            }
+            WeakReference<Dispatch> previousReference = resolvedDispatches.get(eventClass);
+            Dispatch previous = previousReference == null ? null : previousReference.get();
+            Dispatch dispatch = new Dispatch(firers,
+                                             observers,
+                                             resolvable ? candidates : null,
+                                             distributed,
+                                             version,
+                                             previous == null ? 1 : previous.resolutionCount + 1);
+            if (lookupCounting) {
+                // the lookup which caused the resolution will be counted, but is a miss
+                dispatch.missCount.incrementAndGet();
+            }
+            resolvedDispatches.put(eventClass, new WeakReference<Dispatch>(dispatch));
+            return dispatch;
+        }
+    }
+
+    /**
+     * Keeps the registrations whose observed type matches the given event type. If the type arguments of the event
+     * type can't be resolved, the raw classes, which already match, are considered sufficient.
+     */
+    private static List<Registration> filter(List<Registration> candidates, ResolvableType eventType) {
+        if (eventType.hasUnresolvableGenerics()) {
+            return candidates;
+        }
+        List<Registration> result = new ArrayList<Registration>(candidates.size());
+        for (Registration candidate : candidates) {
+            if (!candidate.observedType.hasGenerics() || candidate.observedType.isAssignableFrom(eventType)) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates the array of firers of the given registrations, grouping the parallel ones, and followed by the remote
+     * firer if the events are distributed
+     */
+    private EventFirer[] createFirers(List<Registration> registrations, boolean distributed) {
+        List<EventFirer> firerList = new ArrayList<EventFirer>(registrations.size());
+        List<EventFirer> parallelFirers = new ArrayList<EventFirer>();
+        int parallelIndex = -1;
+        for (Registration registration : registrations) {
+            if (registration.observer.isParallel()) {
+                if (parallelIndex < 0) {
+                    parallelIndex = firerList.size();
+                }
+                parallelFirers.add(registration.firer);
+            }
+            else {
+                firerList.add(registration.firer);
+            }
+        }
+        if (parallelFirers.size() == 1) {
+            firerList.add(parallelIndex, parallelFirers.get(0));
+        }
+        else if (parallelFirers.size() > 1) {
+            firerList.add(parallelIndex,
+                          new ParallelEventFirer(parallelFirers.toArray(new EventFirer[parallelFirers.size()]),
+                                                 parallelPool));
+        }
+        if (distributed) {
+            firerList.add(remoteFirer);
+        }
+        return firerList.isEmpty() ? NO_FIRER : firerList.toArray(new EventFirer[firerList.size()]);
+    }
+
+    private static Set<Class<?>> getAllTypes(Class<?> type) {
+        Set<Class<?>> result = new HashSet<Class<?>>();
+        fillAllTypes(type, result);
+        return result;
+    }
+
+    private static void fillAllTypes(Class<?> type, Set<Class<?>> result) {
+        result.add(type);
+        for (Class<?> i : type.getInterfaces()) {
+            fillAllTypes(i, result);
+        }
+        Class<?> superclass = type.getSuperclass();
+        if (superclass != null) {
+            fillAllTypes(superclass, result);
+        }
+    }
+
+    /**
+     * A registered observer, the full type of the events it observes, and its firer
+     */
+    static final class Registration {
+        private final ObserverDescriptor observer;
+        private final ResolvableType observedType;
+        private final EventFirer firer;
+
+        public Registration(ObserverDescriptor observer, ResolvableType observedType, EventFirer firer) {
+            this.observer = observer;
+            this.observedType = observedType;
+            this.firer = firer;
+        }
+
+        public ObserverDescriptor getObserver() {
+            return observer;
+        }
+    }
+
+    /**
+     * The resolved dispatch list of a concrete event class
+     */
+    static final class Dispatch {
+        private final EventFirer[] firers;
+        private final ObserverDescriptor[] observers;
+
+        /**
+         * The candidate registrations of a resolvable event class, or null if the event class is not resolvable
+         */
+        private final List<Registration> candidates;
+
+        /**
+         * The firers of each actual type of event of a resolvable event class, or null if the event class is not
+         * resolvable
+         */
+        private final ConcurrentMap<ResolvableType, EventFirer[]> firersByEventType;
+
+        private final boolean distributed;
+
+        /**
+         * The version of the registrations the dispatch has been resolved from
+         */
+        private final long registrationVersion;
+
+        private final int resolutionCount;
+        private final AtomicLong lookupCount = new AtomicLong();
+        private final AtomicLong missCount = new AtomicLong();
+
+        private Dispatch(EventFirer[] firers,
+                         ObserverDescriptor[] observers,
+                         List<Registration> candidates,
+                         boolean distributed,
+                         long registrationVersion,
+                         int resolutionCount) {
+            this.firers = firers;
+            this.observers = observers;
+            this.candidates = candidates;
+            this.firersByEventType =
+                candidates == null ? null : new ConcurrentHashMap<ResolvableType, EventFirer[]>();
+            this.distributed = distributed;
+            this.registrationVersion = registrationVersion;
+            this.resolutionCount = resolutionCount;
+        }
+
+        /**
+         * Gets the observers called for the event class, in the order they're called. For resolvable event classes,
+         * these are all the observers which can be called, depending on the actual type of each event.
+         */
+        public List<ObserverDescriptor> getObservers() {
+            return Collections.unmodifiableList(Arrays.asList(observers));
+        }
+
+        /**
+         * Gets the number of times the dispatch list has been resolved since the application context has started
+         */
+        public int getResolutionCount() {
+            return resolutionCount;
+        }
+
+        /**
+         * Gets the number of times the dispatch list has been looked up since the last reset
+         */
+        public long getLookupCount() {
+            return lookupCount.get();
+        }
+
+        /**
+         * Gets the ratio of lookups, since the last reset, which have found the dispatch list already resolved, or
+         * NaN if it hasn't been looked up since the last reset
+         */
+        public double getHitRate() {
+            long lookups = lookupCount.get();
+            if (lookups == 0L) {
+                return Double.NaN;
+            }
+            return (double) Math.max(lookups - missCount.get(), 0L) / lookups;
+        }
+    }
+}
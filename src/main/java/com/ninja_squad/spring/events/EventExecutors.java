@@ -0,0 +1,56 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Factory methods for executors suitable for asynchronous observers (i.e. observers whose <code>@Observes</code>
+ * annotation has its <code>async</code> attribute set to true).
+ * @author JB Nizet
+ */
+public final class EventExecutors {
+
+    /**
+     * The factory method of virtual-thread-per-task executors, or null if the JVM doesn't support virtual threads
+     */
+    private static final Method VIRTUAL_THREAD_EXECUTOR_FACTORY =
+        ReflectionUtils.findMethod(Executors.class, "newVirtualThreadPerTaskExecutor");
+
+    private EventExecutors() {
+    }
+
+    /**
+     * Tells if the JVM supports virtual threads
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREAD_EXECUTOR_FACTORY != null;
+    }
+
+    /**
+     * Creates an executor which starts a new virtual thread for each event
+     * @throws UnsupportedOperationException if the JVM doesn't support virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isVirtualThreadSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM");
+        }
+        return (ExecutorService) ReflectionUtils.invokeMethod(VIRTUAL_THREAD_EXECUTOR_FACTORY, null);
+    }
+
+    /**
+     * Creates the executor used by asynchronous observers which don't specify any executor: a virtual-thread-per-task
+     * executor if the JVM supports it, and a cached thread pool of daemon threads otherwise.
+     */
+    public static ExecutorService newDefaultExecutor() {
+        if (isVirtualThreadSupported()) {
+            return newVirtualThreadPerTaskExecutor();
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("spring-events-");
+        threadFactory.setDaemon(true);
+        return Executors.newCachedThreadPool(threadFactory);
+    }
+}
@@ -0,0 +1,548 @@
+package com.ninja_squad.spring.events;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.ConfigurableObjectInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal, stored in memory-mapped files, of the events delivered to durable observers (see
+ * {@link Observes#durable()}). It allows delivering these events even if the JVM stops between the commit of the
+ * transaction and the end of their delivery.<br>
+ * To use it, declare a bean of this type. It's automatically used by the {@link EventObserverBeanPostProcessor}:
+ * <pre>
+ *     &#64;Bean
+ *     public EventJournal eventJournal() {
+ *         return new EventJournal(new File("/var/lib/myapp/events"));
+ *     }
+ * </pre>
+ * The events of a transaction are serialized, using Java serialization, and appended to the journal just before the
+ * transaction is committed. Since the journal is memory-mapped, appending an event is a memory copy, and the events
+ * survive a crash of the JVM as soon as they're appended. If the journal is forced (the default), committing also
+ * waits for the appended events to be written to the storage device, so that they also survive a crash of the
+ * operating system. Concurrent transactions share the cost of this write: a single thread forces the journal for all
+ * the transactions waiting for it (group commit).<br>
+ * Each event is acknowledged once the observer has been called successfully, and the files of the journal are deleted
+ * once all their events have been acknowledged. When the application context starts, the events which haven't been
+ * acknowledged are delivered again to their observer. Delivery is thus at least once: an observer which fails, or
+ * which is interrupted by a crash, is called again with the same event at the next startup.
+ * @author JB Nizet
+ */
+public class EventJournal implements DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(EventJournal.class);
+
+    /**
+     * The default size of the files of the journal: 16 MB
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "events-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    /**
+     * Each record starts with the length of its body, the CRC32 of its body, and an acknowledgement flag. The length
+     * is written last, so that a record is only visible once complete. A zero length marks the end of the records.
+     */
+    private static final int LENGTH_OFFSET = 0;
+    private static final int CRC_OFFSET = 4;
+    private static final int ACK_OFFSET = 8;
+    private static final int HEADER_SIZE = 9;
+
+    private static final byte ACKNOWLEDGED = 1;
+
+    private final File directory;
+    private final int segmentSize;
+    private final boolean forced;
+
+    /**
+     * The segments having events which haven't been acknowledged yet, by index
+     */
+    private final ConcurrentMap<Long, Segment> segments = new ConcurrentHashMap<Long, Segment>();
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    /**
+     * The segment to which records are appended, guarded by the append lock
+     */
+    private Segment current;
+
+    /**
+     * The position, in the whole journal, of the end of the last appended record, guarded by the append lock
+     */
+    private long writtenPosition;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+
+    /**
+     * Tells if a thread is currently forcing the journal, guarded by the sync lock
+     */
+    private boolean syncing;
+
+    /**
+     * The position, in the whole journal, up to which the records have been forced, guarded by the sync lock
+     */
+    private long durablePosition;
+
+    /**
+     * Creates a forced journal, using the default segment size
+     * @param directory the directory containing the files of the journal, created if it doesn't exist
+     */
+    public EventJournal(File directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE, true);
+    }
+
+    /**
+     * Creates a journal
+     * @param directory the directory containing the files of the journal, created if it doesn't exist
+     * @param segmentSize the size of each file of the journal, which bounds the size of a serialized event
+     * @param forced if true, committing a transaction waits for its events to be written to the storage device. If
+     * false, the events survive a crash of the JVM, but not a crash of the operating system.
+     */
+    public EventJournal(File directory, int segmentSize, boolean forced) {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("The segment size is too small");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.forced = forced;
+    }
+
+    /**
+     * Opens the journal, and delivers the events which haven't been acknowledged to the given invokers. Must be called
+     * once, before appending any event.
+     * @param invokers the invokers of the durable observers, by observer name
+     * @param classLoader the class loader used to deserialize the events
+     */
+    void replay(Map<String, ObserverInvoker> invokers, ClassLoader classLoader) {
+        List<PendingRecord> pendingRecords = new ArrayList<PendingRecord>();
+        appendLock.lock();
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IllegalStateException("Unable to create the journal directory " + directory);
+            }
+            long nextIndex = 0L;
+            for (File file : listSegmentFiles()) {
+                Segment segment = scan(file, pendingRecords);
+                nextIndex = segment.index + 1L;
+            }
+            current = openSegment(nextIndex);
+            writtenPosition = nextIndex * segmentSize;
+        }
+        finally {
+            appendLock.unlock();
+        }
+        syncLock.lock();
+        try {
+            durablePosition = writtenPosition;
+        }
+        finally {
+            syncLock.unlock();
+        }
+
+        if (!pendingRecords.isEmpty()) {
+            logger.info("Replaying " + pendingRecords.size() + " journaled event(s)");
+        }
+        for (PendingRecord record : pendingRecords) {
+            deliver(record, invokers, classLoader);
+        }
+    }
+
+    /**
+     * Appends the given events to the journal, and sets their ID. If the journal is forced, waits for them to be
+     * written to the storage device.
+     */
+    void append(List<JournaledEvent> events) {
+        byte[][] records = new byte[events.size()][];
+        for (int i = 0; i < records.length; i++) {
+            JournaledEvent event = events.get(i);
+            records[i] = createRecord(event.getObserverName(), TimestampedEvent.unwrap(event.getEvent()));
+        }
+
+        long position;
+        appendLock.lock();
+        try {
+            if (current == null) {
+                throw new IllegalStateException("The event journal hasn't been opened");
+            }
+            for (int i = 0; i < records.length; i++) {
+                events.get(i).setId(write(records[i]));
+            }
+            position = writtenPosition;
+        }
+        finally {
+            appendLock.unlock();
+        }
+
+        if (forced) {
+            awaitDurable(position);
+        }
+    }
+
+    /**
+     * Acknowledges the event with the given ID, which won't be replayed anymore. Deletes its segment if all its events
+     * are acknowledged.
+     */
+    void acknowledge(long id) {
+        Segment segment = segments.get(id >>> 32);
+        if (segment == null) {
+            return;
+        }
+        segment.buffer.put((int) id + ACK_OFFSET, ACKNOWLEDGED);
+        if (segment.pending.decrementAndGet() == 0 && segment.sealed) {
+            delete(segment);
+        }
+    }
+
+    /**
+     * Gets the number of appended events which haven't been acknowledged yet
+     */
+    public int getPendingCount() {
+        int result = 0;
+        for (Segment segment : segments.values()) {
+            result += segment.pending.get();
+        }
+        return result;
+    }
+
+    /**
+     * Forces the journal, if it's forced. The files of the journal are kept, so that the events which haven't been
+     * acknowledged are replayed at the next startup.
+     */
+    @Override
+    public void destroy() {
+        appendLock.lock();
+        try {
+            if (current != null && forced) {
+                current.buffer.force();
+            }
+            current = null;
+        }
+        finally {
+            appendLock.unlock();
+        }
+    }
+
+    private File[] listSegmentFiles() {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (files == null) {
+            throw new IllegalStateException("Unable to list the files of the journal directory " + directory);
+        }
+        // the indices are padded with zeros, so the alphabetical order is the order of the segments
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * Maps an existing segment file, and collects its records which haven't been acknowledged
+     */
+    private Segment scan(File file, List<PendingRecord> pendingRecords) {
+        String name = file.getName();
+        long index = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        Segment segment = new Segment(index, file, map(file, (int) file.length()));
+        ByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position + LENGTH_OFFSET);
+            if (length <= 0) {
+                break;
+            }
+            if (position + HEADER_SIZE + length > buffer.capacity()) {
+                logger.warn("Truncated record at position " + position + " of the journal file " + file);
+                break;
+            }
+            byte[] body = new byte[length];
+            ByteBuffer bodyBuffer = buffer.duplicate();
+            bodyBuffer.position(position + HEADER_SIZE);
+            bodyBuffer.get(body);
+            if (crc(body) != buffer.getInt(position + CRC_OFFSET)) {
+                // the write of the record has been interrupted by a crash
+                logger.warn("Corrupted record at position " + position + " of the journal file " + file);
+                break;
+            }
+            if (buffer.get(position + ACK_OFFSET) != ACKNOWLEDGED) {
+                segment.pending.incrementAndGet();
+                pendingRecords.add(new PendingRecord((index << 32) | position, body));
+            }
+            position += HEADER_SIZE + length;
+        }
+        segment.sealed = true;
+        segments.put(index, segment);
+        if (segment.pending.get() == 0) {
+            delete(segment);
+        }
+        return segment;
+    }
+
+    private void deliver(PendingRecord record, Map<String, ObserverInvoker> invokers, ClassLoader classLoader) {
+        String observerName;
+        Object event;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.body));
+            observerName = in.readUTF();
+            event = new ConfigurableObjectInputStream(in, classLoader).readObject();
+        }
+        catch (IOException e) {
+            logger.error("Unable to read a journaled event. It is discarded.", e);
+            acknowledge(record.id);
+            return;
+        }
+        catch (ClassNotFoundException e) {
+            logger.error("Unable to read a journaled event. It is discarded.", e);
+            acknowledge(record.id);
+            return;
+        }
+
+        ObserverInvoker invoker = invokers.get(observerName);
+        if (invoker == null) {
+            logger.warn("The observer " + observerName + " of a journaled event doesn't exist anymore, or isn't "
+                            + "durable anymore. The event is discarded.");
+            acknowledge(record.id);
+            return;
+        }
+        JournaledEvent journaledEvent = new JournaledEvent(this, observerName, event);
+        journaledEvent.setId(record.id);
+        try {
+            invoker.invoke(journaledEvent);
+        }
+        catch (Throwable e) {
+            logger.error("Observer called with a replayed event threw exception. The event will be replayed again at "
+                             + "the next startup.", e);
+        }
+    }
+
+    private byte[] createRecord(String observerName, Object event) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            bytes.write(new byte[HEADER_SIZE]);
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeUTF(observerName);
+            ObjectOutputStream out = new ObjectOutputStream(data);
+            out.writeObject(event);
+            out.flush();
+
+            byte[] record = bytes.toByteArray();
+            int length = record.length - HEADER_SIZE;
+            if (HEADER_SIZE + length > segmentSize) {
+                throw new IllegalStateException(
+                    String.format("The serialized event %s is larger than the segments of the journal", event));
+            }
+            CRC32 crc = new CRC32();
+            crc.update(record, HEADER_SIZE, length);
+            ByteBuffer header = ByteBuffer.wrap(record);
+            header.putInt(LENGTH_OFFSET, length);
+            header.putInt(CRC_OFFSET, (int) crc.getValue());
+            return record;
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize the event " + event + " in order to journal it", e);
+        }
+    }
+
+    /**
+     * Writes a record to the current segment, rolling it if it's full. Must be called with the append lock held.
+     * @return the ID of the record
+     */
+    private long write(byte[] record) {
+        if (current.position + record.length > current.buffer.capacity()) {
+            roll();
+        }
+        Segment segment = current;
+        int position = segment.position;
+        ByteBuffer writeBuffer = segment.writeBuffer;
+        writeBuffer.position(position + CRC_OFFSET);
+        writeBuffer.put(record, CRC_OFFSET, record.length - CRC_OFFSET);
+        // the length is written last: the record doesn't exist until then
+        writeBuffer.putInt(position + LENGTH_OFFSET, record.length - HEADER_SIZE);
+        segment.position += record.length;
+        segment.pending.incrementAndGet();
+        writtenPosition = segment.index * segmentSize + segment.position;
+        return (segment.index << 32) | position;
+    }
+
+    /**
+     * Seals the current segment and replaces it by a new one. Must be called with the append lock held.
+     */
+    private void roll() {
+        Segment old = current;
+        if (forced) {
+            // the records of the sealed segment are thus durable before the new segment is forced
+            old.buffer.force();
+        }
+        current = openSegment(old.index + 1L);
+        old.sealed = true;
+        if (old.pending.get() == 0) {
+            delete(old);
+        }
+    }
+
+    private Segment openSegment(long index) {
+        File file = new File(directory, String.format("%s%016d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        Segment segment = new Segment(index, file, map(file, segmentSize));
+        segments.put(index, segment);
+        return segment;
+    }
+
+    private MappedByteBuffer map(File file, int size) {
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(size);
+                // the mapping stays valid once the file is closed
+                return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, size);
+            }
+            finally {
+                raf.close();
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Unable to map the journal file " + file, e);
+        }
+    }
+
+    private void delete(Segment segment) {
+        if (segment.deleted.compareAndSet(false, true)) {
+            segments.remove(segment.index);
+            if (!segment.file.delete()) {
+                logger.warn("Unable to delete the journal file " + segment.file + ". It will be deleted at the next "
+                                + "startup.");
+            }
+        }
+    }
+
+    /**
+     * Waits until the records have been forced up to the given position. If no other thread is forcing the journal,
+     * the current thread forces it, for itself and for all the threads which have appended records until then.
+     */
+    private void awaitDurable(long position) {
+        syncLock.lock();
+        try {
+            while (durablePosition < position) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                long target = -1L;
+                syncLock.unlock();
+                try {
+                    target = force();
+                }
+                finally {
+                    syncLock.lock();
+                    syncing = false;
+                    durablePosition = Math.max(durablePosition, target);
+                    synced.signalAll();
+                }
+            }
+        }
+        finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Forces the current segment (the previous ones are forced when they're sealed)
+     * @return the position up to which the records are forced
+     */
+    private long force() {
+        Segment segment;
+        long target;
+        appendLock.lock();
+        try {
+            segment = current;
+            target = writtenPosition;
+        }
+        finally {
+            appendLock.unlock();
+        }
+        if (segment != null) {
+            segment.buffer.force();
+        }
+        return target;
+    }
+
+    private static int crc(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A file of the journal, mapped in memory
+     */
+    private static final class Segment {
+        private final long index;
+        private final File file;
+        private final MappedByteBuffer buffer;
+
+        /**
+         * The buffer used to write records, guarded by the append lock
+         */
+        private final ByteBuffer writeBuffer;
+
+        /**
+         * The position of the end of the last record, guarded by the append lock
+         */
+        private int position;
+
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * True once no record can be appended to the segment anymore
+         */
+        private volatile boolean sealed;
+
+        private final AtomicBoolean deleted = new AtomicBoolean();
+
+        Segment(long index, File file, MappedByteBuffer buffer) {
+            this.index = index;
+            this.file = file;
+            this.buffer = buffer;
+            this.writeBuffer = buffer.duplicate();
+        }
+    }
+
+    /**
+     * A record read at startup, which hasn't been acknowledged
+     */
+    private static final class PendingRecord {
+        private final long id;
+        private final byte[] body;
+
+        PendingRecord(long id, byte[] body) {
+            this.id = id;
+            this.body = body;
+        }
+    }
+}
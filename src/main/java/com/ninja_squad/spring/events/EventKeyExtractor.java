@@ -0,0 +1,72 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Extracts a key from events, by calling the getter of a property, or a method without argument, of the observed
+ * event type. The method is looked up once, when the observer is registered.
+ * @author JB Nizet
+ */
+class EventKeyExtractor {
+
+    private static final MethodType EXTRACTOR_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final MethodHandle handle;
+
+    private EventKeyExtractor(MethodHandle handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * Creates a key extractor
+     * @param eventType the observed event type
+     * @param key the name of a readable property, or of a public method without argument, of the observed event type
+     * @throws IllegalStateException if no such property or method exists
+     */
+    public static EventKeyExtractor create(Class<?> eventType, String key) {
+        Method method = null;
+        PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(eventType, key);
+        if (descriptor != null) {
+            method = descriptor.getReadMethod();
+        }
+        if (method == null) {
+            method = ReflectionUtils.findMethod(eventType, key);
+        }
+        if (method == null || method.getReturnType() == void.class) {
+            throw new IllegalStateException(
+                String.format("The event type %s has no readable property or method without argument named %s",
+                              eventType.getName(),
+                              key));
+        }
+        try {
+            ReflectionUtils.makeAccessible(method);
+            return new EventKeyExtractor(MethodHandles.lookup().unreflect(method).asType(EXTRACTOR_TYPE));
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to access the key method " + method, e);
+        }
+    }
+
+    public Object extractKey(Object event) {
+        try {
+            return (Object) handle.invokeExact(event);
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.ninja_squad.spring.events;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lane delivering queued events to an observer using an executor. At most <code>maxConcurrency</code> tasks of a given
+ * lane are submitted to the executor at any time. With a max concurrency of 1, the events are thus delivered one at a
+ * time, in the order they have been submitted. Each task delivers queued events, and resubmits itself after a batch
+ * of events, in order to let the other lanes sharing the executor progress.<br>
+ * The queue of the lane is either unbounded, in which case submitting an event doesn't need any lock, or bounded, in
+ * which case the overflow policy tells what to do when it's full. The dropped {@link PooledEvent}s, retained before
+ * being handed off to the lane, are released, since they're never delivered.
+ * @author JB Nizet
+ */
+class EventLane implements Runnable {
+
+    /**
+     * The maximum number of events delivered by a task before it's resubmitted
+     */
+    private static final int BATCH_SIZE = 64;
+
+    private final ObserverInvoker delegate;
+    private final Executor executor;
+    private final int maxConcurrency;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Queue<Object> queue;
+    private final AtomicInteger activeTasks = new AtomicInteger();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong callerRunsCount = new AtomicLong();
+
+    /**
+     * Creates a lane
+     * @param delegate the invoker calling the observing method
+     * @param executor the executor used to deliver the events
+     * @param maxConcurrency the maximum number of events delivered concurrently
+     * @param capacity the capacity of the queue, or 0 for an unbounded queue
+     * @param overflowPolicy the policy applied when the bounded queue is full
+     */
+    public EventLane(ObserverInvoker delegate,
+                     Executor executor,
+                     int maxConcurrency,
+                     int capacity,
+                     OverflowPolicy overflowPolicy) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.queue = capacity > 0 ? new ArrayBlockingQueue<Object>(capacity) : new ConcurrentLinkedQueue<Object>();
+    }
+
+    public void submit(Object event) {
+        if (!queue.offer(event)) {
+            if (!overflow(event)) {
+                return;
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * Applies the overflow policy
+     * @return true if the event has been queued, false otherwise
+     */
+    private boolean overflow(Object event) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    ((BlockingQueue<Object>) queue).put(event);
+                    return true;
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejectedCount.incrementAndGet();
+                    throw new RejectedExecutionException("Interrupted while waiting for room in the event queue", e);
+                }
+            case CALLER_RUNS:
+                callerRunsCount.incrementAndGet();
+                AsyncObserverInvoker.invokeDelegate(delegate, event);
+                return false;
+            case DROP_OLDEST:
+                do {
+                    Object oldest = queue.poll();
+                    if (oldest != null) {
+                        droppedCount.incrementAndGet();
+                        PooledEvent.releaseIfPooled(oldest);
+                    }
+                } while (!queue.offer(event));
+                return true;
+            case DROP_NEWEST:
+                droppedCount.incrementAndGet();
+                PooledEvent.releaseIfPooled(event);
+                return false;
+            case FAIL:
+                rejectedCount.incrementAndGet();
+                throw new RejectedExecutionException("The event queue is full (capacity: " + capacity + ")");
+            default:
+                throw new IllegalStateException("unhandled overflow policy: " + overflowPolicy);
+        }
+    }
+
+    private void schedule() {
+        while (true) {
+            int active = activeTasks.get();
+            if (active >= maxConcurrency) {
+                return;
+            }
+            if (activeTasks.compareAndSet(active, active + 1)) {
+                try {
+                    executor.execute(this);
+                }
+                catch (RuntimeException e) {
+                    activeTasks.decrementAndGet();
+                    throw e;
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            Object event;
+            for (int i = 0; i < BATCH_SIZE && (event = queue.poll()) != null; i++) {
+                AsyncObserverInvoker.invokeDelegate(delegate, event);
+            }
+        }
+        finally {
+            activeTasks.decrementAndGet();
+            // an event might have been submitted after the last poll, but before the task count was decremented
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getCallerRunsCount() {
+        return callerRunsCount.get();
+    }
+}
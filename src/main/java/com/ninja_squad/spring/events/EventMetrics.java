@@ -0,0 +1,31 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * SPI allowing to record metrics about the fired events and the calls of the observers. An implementation can be set
+ * on the {@link EventObserverBeanPostProcessor}, or simply be defined as a bean in the application context. If none is
+ * defined, a no-op implementation is used, and the observers are called without any additional overhead.<br>
+ * Implementations are called concurrently by the firing threads and by the threads delivering events to asynchronous
+ * observers, and should avoid locking.
+ * @author JB Nizet
+ * @see InMemoryEventMetrics
+ */
+public interface EventMetrics {
+
+    /**
+     * Called once for each observer method when the application context is started, in order to get the metrics of
+     * this observer. The returned object is then called every time the observer is called.
+     */
+    ObserverMetrics registerObserver(ObserverDescriptor observer);
+
+    /**
+     * Called when an observer registered at runtime is unregistered, so that its metrics can be discarded
+     * @see EventObserverBeanPostProcessor#register(String, Object)
+     */
+    void unregisterObserver(ObserverDescriptor observer);
+
+    /**
+     * Called every time an event is fired
+     * @param eventClass the concrete class of the fired event
+     */
+    void recordFire(Class<?> eventClass);
+}
@@ -1,34 +1,97 @@
 package com.ninja_squad.spring.events;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Multimap;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanClassLoaderAware;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.SpringProperties;
 import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.ReflectionUtils;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.reflect.Method;
-import java.util.HashSet;
-import java.util.Set;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Bean post processor which collects all the bean methods annotated with {@link Observes} in order to call them
  * when an event of the appropriate type is fired. This bean should be injected into beans which want to fire
- * events using its EventFirer interface.<br>
+ * events using its EventFirer or BatchEventFirer interface.<br>
  * Note that once the singleton beans have been instantiated, newly created beans (for example request-scoped or
  * session-scoped beans) are ignored by this post processor. So <code>@Observes</code> should only be placed on methods
- * of singleton beans.
+ * of singleton beans, or of objects explicitly registered at runtime using {@link #register(String, Object)}.<br>
+ * If an observer index, generated by {@link ObserverIndexProcessor}, is present in the classpath, the observer methods
+ * are looked up in this index rather than by scanning all the methods of all the beans. Setting the Spring property
+ * <code>spring.events.index.ignore</code> to true forces the scanning.<br>
+ * Asynchronous observers which don't specify any executor are called by the default executor, which can be set using
+ * {@link #setDefaultExecutor(Executor)}. If not set, an executor created by
+ * {@link EventExecutors#newDefaultExecutor()} is used, and shut down when the application context is closed.
+ * Similarly, parallel observers are called by the pool set using {@link #setParallelPool(ForkJoinPool)} or, if not
+ * set, by a pool created by this post processor, and shut down when the application context is closed. Observers
+ * whose {@link Bulkhead} has a timeout are also called by a pool created by this post processor.<br>
+ * Metrics about the fired events and the observer calls are recorded by the {@link EventMetrics} set using
+ * {@link #setMetrics(EventMetrics)} or, if not set, by the unique bean of type EventMetrics of the application
+ * context, if any.<br>
+ * When running on a JVM supporting the Java Flight Recorder API (Java 11 and later), flight recorder events are
+ * emitted when events are fired and when observers are called. They can be enabled and disabled using the usual
+ * recording settings. Setting the Spring property <code>spring.events.jfr.ignore</code> to true disables them
+ * completely.<br>
+ * Instances of {@link PooledEvent} classes are handed out by {@link #acquire(Class)}, from a pool per class. Setting
+ * the Spring property <code>spring.events.pool.debug</code> to true enables the debug mode of the pools.
  * @author JB Nizet
  */
-public class EventObserverBeanPostProcessor implements BeanPostProcessor, BeanFactoryAware, SmartInitializingSingleton, EventFirer {
+public class EventObserverBeanPostProcessor
+    implements BeanPostProcessor, BeanFactoryAware, BeanClassLoaderAware, SmartInitializingSingleton, DisposableBean,
+               BatchEventFirer {
+
+    /**
+     * The name of the Spring property allowing to ignore the observer index, even if present
+     */
+    public static final String IGNORE_INDEX_PROPERTY_NAME = "spring.events.index.ignore";
+
+    /**
+     * The name of the Spring property allowing to disable the flight recorder events
+     */
+    public static final String IGNORE_JFR_PROPERTY_NAME = "spring.events.jfr.ignore";
+
+    /**
+     * The name of the Spring property enabling the debug mode of the pools of {@link PooledEvent}s
+     */
+    public static final String POOL_DEBUG_PROPERTY_NAME = "spring.events.pool.debug";
+
+    /**
+     * The resolution of the timer wheel of debounced and throttled observers, and its number of buckets: timers
+     * expiring within about 5 seconds are placed directly in their bucket
+     */
+    private static final long TIMER_TICK_MILLIS = 10L;
+    private static final int TIMER_BUCKET_COUNT = 512;
 
     private static final ReflectionUtils.MethodFilter HAS_OBSERVES_ANNOTATION  = new ReflectionUtils.MethodFilter() {
         @Override
@@ -39,53 +102,146 @@ public class EventObserverBeanPostProcessor implements BeanPostProcessor, BeanFa
 
     private BeanFactory beanFactory;
 
+    private ClassLoader beanClassLoader;
+
     private boolean configFrozen = false;
 
     /**
-     * Set containing the name of all the beans containing at least one method annotated with Observed. We can't keep a
-     * reference to the beans during the post-processing phase, because the beans might be proxied by another post
-     * processor.
+     * The observer index, or null if there is no index, or if it must be ignored
      */
-    private Set<String> observerBeanNames = new HashSet<String>();
+    private ObserverIndex observerIndex;
 
     /**
-     * Map containing, for each observed type of event collected by scanning the arguments of the @Observes annotated
-     * methods, the associated firers.
+     * Map containing, for the name of each bean containing at least one method annotated with Observed, the observer
+     * methods of the bean target class. We can't keep a reference to the beans during the post-processing phase,
+     * because the beans might be proxied by another post processor. The methods are kept to avoid scanning the bean
+     * classes a second time.
      */
-    private Multimap<Class<?>, EventFirer> eventFirers = ArrayListMultimap.create();
+    private Map<String, List<Method>> observerMethodsByBeanName = new HashMap<String, List<Method>>();
 
     /**
-     * Cache containing, for each concrete class of fired event, the set of firers to call.
+     * Table containing the firers to call for each concrete class of fired event
      */
-    private LoadingCache<Class<?>, Set<EventFirer>> eventClassToFirersCache =
-        CacheBuilder.newBuilder().build(new CacheLoader<Class<?>, Set<EventFirer>>() {
-            @Override
-            public Set<EventFirer> load(Class<?> key) throws Exception {
-                Set<Class<?>> allTypes = getAllTypes(key);
-                ImmutableSet.Builder<EventFirer> result = new ImmutableSet.Builder<EventFirer>();
-                for (Class<?> type : allTypes) {
-                    result.addAll(eventFirers.get(type));
-                }
-                return result.build();
-            }
+    private final EventDispatchTable dispatchTable = new EventDispatchTable();
 
-            private Set<Class<?>> getAllTypes(Class<?> type) {
-                Set<Class<?>> result = new HashSet<Class<?>>();
-                fillAllTypes(type, result);
-                return result;
-            }
+    /**
+     * The pool of each class of pooled events, created lazily
+     */
+    private final ClassValue<EventPool> eventPools = new ClassValue<EventPool>() {
+        @Override
+        protected EventPool computeValue(Class<?> eventClass) {
+            return new EventPool(eventClass.asSubclass(PooledEvent.class),
+                                 SpringProperties.getFlag(POOL_DEBUG_PROPERTY_NAME));
+        }
+    };
 
-            private void fillAllTypes(Class<?> type, Set<Class<?>> result) {
-                result.add(type);
-                for (Class<?> i : type.getInterfaces()) {
-                    fillAllTypes(i, result);
-                }
-                Class<?> superclass = type.getSuperclass();
-                if (superclass != null) {
-                    fillAllTypes(superclass, result);
-                }
-            }
-        });
+    /**
+     * The statistics of the asynchronous observers having a bounded queue or partitions
+     */
+    private final List<EventQueueStatistics> queueStatistics = new CopyOnWriteArrayList<EventQueueStatistics>();
+
+    /**
+     * The statistics of the queue of each asynchronous observer having a bounded queue or partitions, so that the
+     * statistics of an observer registered at runtime are removed once it's unregistered, even if another observer has
+     * the same name
+     */
+    private final Map<ObserverDescriptor, EventQueueStatistics> observerQueueStatistics =
+        new ConcurrentHashMap<ObserverDescriptor, EventQueueStatistics>();
+
+    /**
+     * Lock held while registering and unregistering observers at runtime
+     */
+    private final Object registrationLock = new Object();
+
+    /**
+     * The queue of the references to the objects registered at runtime which have been garbage collected
+     */
+    private final ReferenceQueue<Object> collectedObservers = new ReferenceQueue<Object>();
+
+    /**
+     * The bulkheads of the observers, by group name or by observer name. Guarded by itself.
+     */
+    private final Map<String, ObserverBulkhead> bulkheads = new LinkedHashMap<String, ObserverBulkhead>();
+
+    /**
+     * The bulkhead of each observer annotated with {@link Bulkhead}. A bulkhead shared by a group, or by observers
+     * registered at runtime with the same name, is only removed once all its observers are unregistered. Guarded by
+     * the bulkheads.
+     */
+    private final Map<ObserverDescriptor, ObserverBulkhead> observerBulkheads =
+        new HashMap<ObserverDescriptor, ObserverBulkhead>();
+
+    /**
+     * The executor calling the observers whose bulkhead has a timeout. Created lazily.
+     */
+    private ExecutorService bulkheadExecutor;
+
+    /**
+     * The executor used by asynchronous observers which don't specify any executor
+     */
+    private Executor defaultExecutor;
+
+    /**
+     * The default executor, if it has been created by this post processor, and must thus be shut down by it
+     */
+    private ExecutorService ownedDefaultExecutor;
+
+    /**
+     * The scheduler used to flush the batches of asynchronous observers taking lists of events. Created lazily.
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * The timer wheel closing the windows of debounced and throttled observers. Created lazily.
+     */
+    private TimerWheel timerWheel;
+
+    /**
+     * The pool used to call parallel observers
+     */
+    private ForkJoinPool parallelPool;
+
+    /**
+     * The pool used to call parallel observers, if it has been created by this post processor, and must thus be shut
+     * down by it
+     */
+    private ForkJoinPool ownedParallelPool;
+
+    /**
+     * The metrics, which don't record anything by default
+     */
+    private EventMetrics metrics = NoOpEventMetrics.INSTANCE;
+
+    /**
+     * The hook emitting flight recorder events, or null if the flight recorder API isn't available, or if it must be
+     * ignored
+     */
+    private FlightRecorderHook flightRecorderHook;
+
+    /**
+     * The journal of the events delivered to durable observers, or null if there is none
+     */
+    private EventJournal journal;
+
+    /**
+     * The invokers of the durable observers, by observer name, used to replay the journaled events at startup
+     */
+    private final Map<String, ObserverInvoker> durableInvokers = new LinkedHashMap<String, ObserverInvoker>();
+
+    /**
+     * The transport used to send the distributed events to the other nodes, or null if events are not distributed
+     */
+    private EventTransport transport;
+
+    /**
+     * The codec of the distributed events, a BinaryEventCodec if not set and if there is no EventCodec bean
+     */
+    private EventCodec codec;
+
+    /**
+     * The dispatcher sending and receiving the distributed events, or null if events are not distributed
+     */
+    private RemoteEventDispatcher remoteDispatcher;
 
     @Override
     public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
@@ -101,20 +257,10 @@ public class EventObserverBeanPostProcessor implements BeanPostProcessor, BeanFa
             // through this proxy, so we keep the bean name in a set if it has an observer method, and once the
             // singletons are instantiated, we go through all the bean names and create the firers.
 
-            final Class<?> targetClass = AopUtils.getTargetClass(bean);
-            ReflectionUtils.MethodCallback methodCallback = new ReflectionUtils.MethodCallback() {
-                @Override
-                public void doWith(Method method) throws IllegalArgumentException, IllegalAccessException {
-                    if (method.getParameterTypes().length != 1) {
-                        throw new IllegalStateException(
-                            String.format("The oberver method %s of class %s must take a single parameter",
-                                          method.getName(),
-                                          targetClass.getName()));
-                    }
-                    observerBeanNames.add(beanName);
-                }
-            };
-            ReflectionUtils.doWithMethods(targetClass, methodCallback, HAS_OBSERVES_ANNOTATION);
+            List<Method> observerMethods = findObserverMethods(AopUtils.getTargetClass(bean));
+            if (!observerMethods.isEmpty()) {
+                observerMethodsByBeanName.put(beanName, observerMethods);
+            }
         }
         return bean;
     }
@@ -123,32 +269,393 @@ public class EventObserverBeanPostProcessor implements BeanPostProcessor, BeanFa
     public void afterSingletonsInstantiated() {
         configFrozen = true;
 
-        for (String beanName : observerBeanNames) {
-            final Object bean = beanFactory.getBean(beanName);
-            final Class<?> targetClass = AopUtils.getTargetClass(bean);
-            ReflectionUtils.MethodCallback methodCallback = new ReflectionUtils.MethodCallback() {
-                @Override
-                public void doWith(Method method) throws IllegalArgumentException, IllegalAccessException {
-                    Observes observes = AnnotationUtils.getAnnotation(method, Observes.class);
-                    processObserver(observes, method, bean, targetClass);
-                }
-            };
-            ReflectionUtils.doWithMethods(targetClass, methodCallback, HAS_OBSERVES_ANNOTATION);
+        if (metrics == NoOpEventMetrics.INSTANCE) {
+            EventMetrics metricsBean = findUniqueBean(EventMetrics.class);
+            if (metricsBean != null) {
+                metrics = metricsBean;
+            }
+        }
+        dispatchTable.setLookupCounting(metrics != NoOpEventMetrics.INSTANCE);
+
+        if (journal == null) {
+            journal = findUniqueBean(EventJournal.class);
+        }
+
+        for (Map.Entry<String, List<Method>> entry : observerMethodsByBeanName.entrySet()) {
+            Object bean = beanFactory.getBean(entry.getKey());
+            Class<?> targetClass = AopUtils.getTargetClass(bean);
+            for (Method method : entry.getValue()) {
+                Observes observes = AnnotationUtils.getAnnotation(method, Observes.class);
+                processObserver(observes, method, entry.getKey(), bean, targetClass, null);
+            }
         }
 
         // free some memory
-        observerBeanNames = null;
+        observerMethodsByBeanName = null;
+
+        // the distributed events are received once all the observers are registered
+        if (transport == null) {
+            transport = findUniqueBean(EventTransport.class);
+        }
+        if (transport != null) {
+            startRemoteDispatcher();
+        }
+
+        // the events which haven't been acknowledged before the last shutdown are delivered once all the observers
+        // are registered
+        if (journal != null) {
+            journal.replay(durableInvokers, beanClassLoader);
+        }
     }
 
-    private void processObserver(Observes observes, Method method, Object bean, Class<?> targetClass) {
+    private void startRemoteDispatcher() {
+        if (codec == null) {
+            codec = findUniqueBean(EventCodec.class);
+        }
+        if (codec == null) {
+            codec = new BinaryEventCodec(beanClassLoader);
+        }
+        remoteDispatcher = new RemoteEventDispatcher(transport, codec, new RemoteEventDispatcher.LocalFirer() {
+            @Override
+            public void fireReceived(Object event) {
+                EventObserverBeanPostProcessor.this.fireReceived(event);
+            }
+        });
+        dispatchTable.setRemoteFirer(new RemoteEventFirer(remoteDispatcher));
+        remoteDispatcher.start();
+    }
+
+    /**
+     * Gets the single bean of the given type, or null if there is none, or several ones
+     */
+    private <T> T findUniqueBean(Class<T> type) {
+        if (!(beanFactory instanceof ListableBeanFactory)) {
+            return null;
+        }
+        String[] beanNames = BeanFactoryUtils.beanNamesForTypeIncludingAncestors((ListableBeanFactory) beanFactory,
+                                                                                 type);
+        return beanNames.length == 1 ? beanFactory.getBean(beanNames[0], type) : null;
+    }
+
+    /**
+     * Finds the observer methods of the given class, using the index if there is one, or by scanning all the methods
+     * of the class otherwise.
+     * @throws IllegalStateException if an observer method doesn't take a single parameter
+     */
+    private List<Method> findObserverMethods(final Class<?> targetClass) {
+        if (observerIndex != null) {
+            return observerIndex.getObserverMethods(targetClass);
+        }
+
+        final List<Method> result = new ArrayList<Method>();
+        ReflectionUtils.MethodCallback methodCallback = new ReflectionUtils.MethodCallback() {
+            @Override
+            public void doWith(Method method) throws IllegalArgumentException, IllegalAccessException {
+                if (method.getParameterTypes().length != 1) {
+                    throw new IllegalStateException(
+                        String.format("The oberver method %s of class %s must take a single parameter",
+                                      method.getName(),
+                                      targetClass.getName()));
+                }
+                result.add(method);
+            }
+        };
+        ReflectionUtils.doWithMethods(targetClass, methodCallback, HAS_OBSERVES_ANNOTATION);
+        return result;
+    }
+
+    /**
+     * Creates the firer of an observer method, and registers it
+     * @param reference the weak reference to the bean if it's registered at runtime, or null if it's a singleton bean
+     */
+    private EventDispatchTable.Registration processObserver(Observes observes,
+                                                           Method method,
+                                                           String beanName,
+                                                           Object bean,
+                                                           Class<?> targetClass,
+                                                           ObserverReference reference) {
         Method actualMethod = getActualMethod(method, bean, targetClass);
         ReflectionUtils.makeAccessible(actualMethod);
 
-        Class<?> eventType = method.getParameterTypes()[0];
+        Class<?> parameterType = method.getParameterTypes()[0];
+        boolean batch = parameterType == List.class || parameterType == Collection.class;
+        ResolvableType observedType = getObservedType(method, batch, targetClass);
+        Class<?> eventType = batch ? observedType.resolve(Object.class) : parameterType;
+
+        ObserverDescriptor observer = new ObserverDescriptor(beanName,
+                                                             method,
+                                                             eventType,
+                                                             observes.when(),
+                                                             observes.async(),
+                                                             observes.parallel(),
+                                                             getOrder(observes, method, bean, targetClass));
+        if (observes.parallel()) {
+            checkParallel(observes, batch, method, targetClass);
+        }
+        ObserverInvoker invoker;
+        if (reference == null) {
+            invoker = ObserverInvokers.create(bean, actualMethod);
+        }
+        else {
+            invoker = new WeakObserverInvoker(reference, actualMethod);
+        }
+        if (flightRecorderHook != null) {
+            invoker = flightRecorderHook.decorate(invoker, observer);
+        }
+        boolean metered = metrics != NoOpEventMetrics.INSTANCE;
+        if (metered) {
+            invoker = new MeteredObserverInvoker(invoker, metrics.registerObserver(observer));
+        }
+        JournalingObserverInvoker journalingInvoker = null;
+        if (observes.durable()) {
+            checkDurable(observes, batch, reference != null, method, targetClass);
+            journalingInvoker = new JournalingObserverInvoker(invoker, journal, observer.getName());
+            invoker = journalingInvoker;
+        }
+        Bulkhead bulkhead = AnnotationUtils.findAnnotation(method, Bulkhead.class);
+        if (bulkhead != null) {
+            invoker = createBulkheadInvoker(bulkhead, observer, method, targetClass, invoker);
+        }
+        // pooled events handed off to asynchronous observers must be retained until the observer has been called
+        boolean retaining = observes.async() && mayBePooled(eventType);
+        if (retaining) {
+            invoker = new ReleasingObserverInvoker(invoker, batch);
+        }
+        if (observes.debounce() > 0L || observes.throttle() > 0L) {
+            invoker = createWindowedInvoker(observes, observer, batch, method, targetClass, invoker);
+        }
+        else if (batch) {
+            invoker = createBatchInvoker(observes, observer, method, targetClass, invoker);
+        }
+        else if (observes.async()) {
+            invoker = createAsyncInvoker(observes, observer, method, targetClass, invoker);
+        }
+        else if (isDeliveredByLanes(observes)) {
+            throw new IllegalStateException(
+                String.format("The observer method %s of class %s has a partition key, a queue capacity or a maximum "
+                                  + "concurrency, and must thus be asynchronous",
+                              method.getName(),
+                              targetClass.getName()));
+        }
+        if (retaining) {
+            invoker = RetainingObserverInvoker.create(invoker);
+        }
+        // the time spent by events in queues and transactional buffers is measured, except for observers taking lists
+        boolean timestamped = metered && !batch && (observes.async() || observes.when() != EventMoment.IN_PROGRESS);
+        EventCondition condition = createCondition(observes, method, targetClass);
+        EventCoalescer coalescer = createCoalescer(observes, observer, method, targetClass);
+        EventFirer firer = createEventFirer(observes, invoker, timestamped, condition, coalescer, journalingInvoker);
+        if (journalingInvoker != null) {
+            durableInvokers.put(observer.getName(), invoker);
+        }
 
-        EventFirer firer = createEventFirer(observes, bean, actualMethod);
+        return dispatchTable.register(observer, observedType, firer);
+    }
 
-        eventFirers.put(eventType, firer);
+    /**
+     * Tells if events of the given observed type can be instances of {@link PooledEvent}
+     */
+    private static boolean mayBePooled(Class<?> eventType) {
+        return eventType.isInterface()
+            || PooledEvent.class.isAssignableFrom(eventType)
+            || eventType.isAssignableFrom(PooledEvent.class);
+    }
+
+    /**
+     * Gets the order of an observer: the one specified by the Observes annotation, or by the Order annotation of the
+     * method, or by the Order annotation of the bean class, or by the bean itself if it's Ordered
+     */
+    private int getOrder(Observes observes, Method method, Object bean, Class<?> targetClass) {
+        if (observes.order() != Ordered.LOWEST_PRECEDENCE) {
+            return observes.order();
+        }
+        Order order = AnnotationUtils.findAnnotation(method, Order.class);
+        if (order == null) {
+            order = AnnotationUtils.findAnnotation(targetClass, Order.class);
+        }
+        if (order != null) {
+            return order.value();
+        }
+        if (bean instanceof Ordered) {
+            return ((Ordered) bean).getOrder();
+        }
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    private void checkParallel(Observes observes, boolean batch, Method method, Class<?> targetClass) {
+        if (observes.async() || batch || observes.when() != EventMoment.IN_PROGRESS) {
+            throw new IllegalStateException(
+                String.format("The observer method %s of class %s is parallel, and must thus be synchronous, called "
+                                  + "in progress, and take a single event",
+                              method.getName(),
+                              targetClass.getName()));
+        }
+        if (parallelPool == null) {
+            ownedParallelPool = new ForkJoinPool();
+            parallelPool = ownedParallelPool;
+        }
+        dispatchTable.setParallelPool(parallelPool);
+    }
+
+    private void checkDurable(Observes observes, boolean batch, boolean dynamic, Method method, Class<?> targetClass) {
+        if (batch || observes.when() != EventMoment.AFTER_COMMIT) {
+            throw new IllegalStateException(
+                String.format("The observer method %s of class %s is durable, and must thus be called after commit, "
+                                  + "and take a single event",
+                              method.getName(),
+                              targetClass.getName()));
+        }
+        boolean dropping =
+            observes.overflow() == OverflowPolicy.DROP_OLDEST || observes.overflow() == OverflowPolicy.DROP_NEWEST;
+        if (observes.queueCapacity() > 0 && dropping) {
+            // a dropped event would never be acknowledged, and would only be delivered when replayed at next startup
+            throw new IllegalStateException(
+                String.format("The observer method %s of class %s is durable, and its overflow policy can thus not "
+                                  + "drop events",
+                              method.getName(),
+                              targetClass.getName()));
+        }
+        if (dynamic) {
+            // the journaled events are replayed at startup, when objects registered at runtime don't exist yet
+            throw new IllegalStateException(
+                String.format("The observer method %s of class %s is durable, and can't be registered at runtime",
+                              method.getName(),
+                              targetClass.getName()));
+        }
+        if (journal == null) {
+            throw new IllegalStateException(
+                String.format("The observer method %s of class %s is durable, but there is no event journal",
+                              method.getName(),
+                              targetClass.getName()));
+        }
+    }
+
+    /**
+     * Gets the full type, including its type arguments, of the events observed by a method. For a method taking a list
+     * or a collection of events, it's the type of the elements of the list, which must be specified: a raw list, or a
+     * list of unbounded wildcards, would otherwise observe all the events.
+     */
+    private ResolvableType getObservedType(Method method, boolean batch, Class<?> targetClass) {
+        ResolvableType parameterType = ResolvableType.forMethodParameter(method, 0);
+        if (!batch) {
+            return parameterType;
+        }
+        ResolvableType elementType = parameterType.asCollection().getGeneric(0);
+        boolean unbounded = elementType.getType() instanceof WildcardType
+            && elementType.resolve(Object.class) == Object.class;
+        if (parameterType.getType() instanceof Class || unbounded) {
+            throw new IllegalStateException(
+                String.format("The observer method %s of class %s takes a list of events, but doesn't specify the type "
+                                  + "of the events. It must take a List<E> or a Collection<E>, where E is the observed "
+                                  + "event type",
+                              method.getName(),
+                              targetClass.getName()));
+        }
+        return elementType;
+    }
+
+    private ObserverInvoker createBatchInvoker(Observes observes,
+                                               ObserverDescriptor observer,
+                                               Method method,
+                                               Class<?> targetClass,
+                                               ObserverInvoker invoker) {
+        if (isDeliveredByLanes(observes)) {
+            throw new IllegalStateException(
+                String.format("The observer method %s of class %s takes a list of events, and can't have a partition "
+                                  + "key, a queue capacity or a maximum concurrency",
+                              method.getName(),
+                              targetClass.getName()));
+        }
+        if (observes.async()) {
+            return new BatchingObserverInvoker(invoker,
+                                               getExecutor(observes, observer),
+                                               getScheduler(),
+                                               observes.maxBatchSize(),
+                                               observes.maxBatchDelay());
+        }
+        return new ListObserverInvoker(invoker);
+    }
+
+    private ObserverInvoker createWindowedInvoker(Observes observes,
+                                                  ObserverDescriptor observer,
+                                                  boolean batch,
+                                                  Method method,
+                                                  Class<?> targetClass,
+                                                  ObserverInvoker invoker) {
+        if (!observes.async() || observes.durable()) {
+            throw new IllegalStateException(
+                String.format("The observer method %s of class %s is debounced or throttled, and must thus be "
+                                  + "asynchronous, and not durable",
+                              method.getName(),
+                              targetClass.getName()));
+        }
+        if (observes.debounce() > 0L && observes.throttle() > 0L) {
+            throw new IllegalStateException(
+                String.format("The observer method %s of class %s can't be both debounced and throttled",
+                              method.getName(),
+                              targetClass.getName()));
+        }
+        if (observes.maxWait() > 0L && observes.debounce() <= 0L) {
+            throw new IllegalStateException(
+                String.format("The observer method %s of class %s has a maximum wait, and must thus be debounced",
+                              method.getName(),
+                              targetClass.getName()));
+        }
+        if (isDeliveredByLanes(observes)) {
+            throw new IllegalStateException(
+                String.format("The observer method %s of class %s is debounced or throttled, and can't have a "
+                                  + "partition key, a queue capacity or a maximum concurrency",
+                              method.getName(),
+                              targetClass.getName()));
+        }
+        EventKeyExtractor keyExtractor = null;
+        if (!observes.windowKey().isEmpty()) {
+            keyExtractor = EventKeyExtractor.create(observer.getEventType(), observes.windowKey());
+        }
+        return new WindowedObserverInvoker(invoker,
+                                           getExecutor(observes, observer),
+                                           getTimerWheel(),
+                                           keyExtractor,
+                                           batch,
+                                           TimeUnit.MILLISECONDS.toNanos(observes.debounce()),
+                                           TimeUnit.MILLISECONDS.toNanos(observes.maxWait()),
+                                           TimeUnit.MILLISECONDS.toNanos(observes.throttle()));
+    }
+
+    private ObserverInvoker createBulkheadInvoker(Bulkhead bulkhead,
+                                                  ObserverDescriptor observer,
+                                                  Method method,
+                                                  Class<?> targetClass,
+                                                  ObserverInvoker invoker) {
+        String name = bulkhead.group().isEmpty() ? observer.getName() : bulkhead.group();
+        ObserverBulkhead observerBulkhead;
+        synchronized (bulkheads) {
+            observerBulkhead = bulkheads.get(name);
+            if (observerBulkhead == null) {
+                observerBulkhead = new ObserverBulkhead(name, bulkhead);
+                bulkheads.put(name, observerBulkhead);
+            }
+            else if (!observerBulkhead.getConfiguration().equals(bulkhead)) {
+                throw new IllegalStateException(
+                    String.format("The observer method %s of class %s is in the bulkhead group %s, but its bulkhead "
+                                      + "annotation is different from the one of the other observers of the group",
+                                  method.getName(),
+                                  targetClass.getName(),
+                                  name));
+            }
+            observerBulkheads.put(observer, observerBulkhead);
+        }
+        Executor executor = bulkhead.timeout() > 0L ? getBulkheadExecutor() : null;
+        return new BulkheadObserverInvoker(invoker, observerBulkhead, observer.getName(), executor);
+    }
+
+    private ExecutorService getBulkheadExecutor() {
+        if (bulkheadExecutor == null) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("spring-events-bulkhead-");
+            threadFactory.setDaemon(true);
+            bulkheadExecutor = Executors.newCachedThreadPool(threadFactory);
+        }
+        return bulkheadExecutor;
     }
 
     private Method getActualMethod(Method method, Object bean, Class<?> targetClass) {
@@ -175,32 +682,554 @@ public class EventObserverBeanPostProcessor implements BeanPostProcessor, BeanFa
         return method;
     }
 
-    private EventFirer createEventFirer(Observes observes, Object bean, Method actualMethod) {
+    /**
+     * Tells if the events of an observer are delivered through lanes, because it's partitioned, or has a bounded queue
+     * or a maximum concurrency
+     */
+    private static boolean isDeliveredByLanes(Observes observes) {
+        return !observes.partitionKey().isEmpty() || observes.queueCapacity() > 0 || observes.maxConcurrency() > 0;
+    }
+
+    private ObserverInvoker createAsyncInvoker(Observes observes,
+                                               ObserverDescriptor observer,
+                                               Method method,
+                                               Class<?> targetClass,
+                                               ObserverInvoker invoker) {
+        Executor executor = getExecutor(observes, observer);
+        if (!isDeliveredByLanes(observes)) {
+            if (executor instanceof RingBufferEventDispatcher) {
+                return new RingBufferObserverInvoker(invoker, (RingBufferEventDispatcher) executor);
+            }
+            return new AsyncObserverInvoker(invoker, executor);
+        }
+
+        EventKeyExtractor keyExtractor = null;
+        EventLane[] lanes;
+        if (observes.partitionKey().isEmpty()) {
+            // without a limit, each event would be submitted to the executor, and a bounded queue would never fill up
+            int maxConcurrency = observes.maxConcurrency() > 0 ? observes.maxConcurrency() : 1;
+            lanes = new EventLane[] {
+                new EventLane(invoker, executor, maxConcurrency, observes.queueCapacity(), observes.overflow())
+            };
+        }
+        else if (observes.maxConcurrency() > 0) {
+            throw new IllegalStateException(
+                String.format("The observer method %s of class %s is partitioned, and its concurrency is thus limited "
+                                  + "by its number of partitions rather than by a maximum concurrency",
+                              method.getName(),
+                              targetClass.getName()));
+        }
+        else {
+            keyExtractor = EventKeyExtractor.create(observer.getEventType(), observes.partitionKey());
+            int partitions =
+                observes.partitions() > 0 ? observes.partitions() : Runtime.getRuntime().availableProcessors();
+            lanes = new EventLane[partitions];
+            for (int i = 0; i < partitions; i++) {
+                lanes[i] = new EventLane(invoker, executor, 1, observes.queueCapacity(), observes.overflow());
+            }
+        }
+        LaneObserverInvoker result = new LaneObserverInvoker(observer.getName(), lanes, keyExtractor);
+        queueStatistics.add(result);
+        observerQueueStatistics.put(observer, result);
+        return result;
+    }
+
+    /**
+     * Gets the executor of an asynchronous observer. If it's a priority executor, the returned executor submits the
+     * tasks with the order of the observer as priority.
+     */
+    private Executor getExecutor(Observes observes, ObserverDescriptor observer) {
+        Executor executor;
+        if (!observes.executor().isEmpty()) {
+            executor = beanFactory.getBean(observes.executor(), Executor.class);
+        }
+        else {
+            if (defaultExecutor == null) {
+                ownedDefaultExecutor = EventExecutors.newDefaultExecutor();
+                defaultExecutor = ownedDefaultExecutor;
+            }
+            executor = defaultExecutor;
+        }
+        if (executor instanceof PriorityEventExecutor) {
+            return ((PriorityEventExecutor) executor).withPriority(observer.getOrder());
+        }
+        return executor;
+    }
+
+    private ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("spring-events-scheduler-");
+            threadFactory.setDaemon(true);
+            scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        }
+        return scheduler;
+    }
+
+    private TimerWheel getTimerWheel() {
+        if (timerWheel == null) {
+            timerWheel = new TimerWheel(TIMER_TICK_MILLIS, TIMER_BUCKET_COUNT, "spring-events-timer");
+        }
+        return timerWheel;
+    }
+
+    private EventCondition createCondition(Observes observes, Method method, Class<?> targetClass) {
+        if (observes.condition().trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return EventConditions.create(observes.condition(), beanFactory, beanClassLoader);
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalStateException(
+                String.format("The observer method %s of class %s has an invalid condition",
+                              method.getName(),
+                              targetClass.getName()),
+                e);
+        }
+    }
+
+    /**
+     * Creates the coalescer of a deferred observer, as specified by the Coalesce annotation of the method, or of the
+     * observed event type
+     */
+    private EventCoalescer createCoalescer(Observes observes,
+                                           ObserverDescriptor observer,
+                                           Method method,
+                                           Class<?> targetClass) {
+        Coalesce coalesce = AnnotationUtils.findAnnotation(method, Coalesce.class);
+        if (observes.when() == EventMoment.IN_PROGRESS) {
+            if (coalesce != null) {
+                throw new IllegalStateException(
+                    String.format("The observer method %s of class %s is coalesced, and must thus be called after "
+                                      + "commit or after rollback",
+                                  method.getName(),
+                                  targetClass.getName()));
+            }
+            return null;
+        }
+        if (coalesce == null) {
+            coalesce = AnnotationUtils.findAnnotation(observer.getEventType(), Coalesce.class);
+        }
+        return coalesce == null ? null : EventCoalescer.create(coalesce, observer.getEventType());
+    }
+
+    private EventFirer createEventFirer(Observes observes,
+                                        ObserverInvoker invoker,
+                                        boolean timestamped,
+                                        EventCondition condition,
+                                        EventCoalescer coalescer,
+                                        JournalingObserverInvoker journalingInvoker) {
         EventMoment when = observes.when();
         if (when == EventMoment.IN_PROGRESS) {
-            return new InProgressEventFirer(bean, actualMethod);
+            return new InProgressEventFirer(invoker, timestamped, condition);
         }
         else if (when == EventMoment.AFTER_COMMIT) {
-            return new AfterCommitEventFirer(bean, actualMethod);
+            return new AfterCommitEventFirer(invoker, timestamped, condition, coalescer, journalingInvoker);
         }
         else if (when == EventMoment.AFTER_ROLLBACK) {
-            return new AfterRollbackEventFirer(bean, actualMethod);
+            return new AfterRollbackEventFirer(invoker, timestamped, condition, coalescer);
         }
         else {
             throw new IllegalStateException("unhandled event moment: " + when);
         }
     }
 
+    @Override
+    public void setBeanClassLoader(ClassLoader classLoader) {
+        this.beanClassLoader = classLoader;
+        if (!SpringProperties.getFlag(IGNORE_INDEX_PROPERTY_NAME)) {
+            this.observerIndex = ObserverIndex.load(classLoader);
+        }
+        if (!SpringProperties.getFlag(IGNORE_JFR_PROPERTY_NAME)) {
+            this.flightRecorderHook = FlightRecorderHooks.load(classLoader);
+        }
+    }
+
+    /**
+     * Sets the executor used by asynchronous observers which don't specify any executor. This executor is not shut
+     * down by this post processor.
+     */
+    public void setDefaultExecutor(Executor defaultExecutor) {
+        this.defaultExecutor = defaultExecutor;
+    }
+
+    /**
+     * Sets the pool used to call parallel observers. This pool is not shut down by this post processor.
+     */
+    public void setParallelPool(ForkJoinPool parallelPool) {
+        this.parallelPool = parallelPool;
+    }
+
+    /**
+     * Sets the metrics used to record the fired events and the observer calls. Must be called before the singletons
+     * of the application context are instantiated.
+     */
+    public void setMetrics(EventMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the queue statistics of the asynchronous observers having a bounded queue or partitions
+     */
+    public List<EventQueueStatistics> getQueueStatistics() {
+        return Collections.unmodifiableList(queueStatistics);
+    }
+
+    /**
+     * Gets the statistics of the bulkheads of the observers annotated with {@link Bulkhead}
+     */
+    public List<BulkheadStatistics> getBulkheadStatistics() {
+        synchronized (bulkheads) {
+            return Collections.unmodifiableList(new ArrayList<BulkheadStatistics>(bulkheads.values()));
+        }
+    }
+
+    /**
+     * Registers the observer methods, annotated with {@link Observes}, of the given object. This allows objects which
+     * are not singleton beans, like request-scoped beans, or beans of a child context, to observe events. The object
+     * is only referenced weakly, and its observer methods are unregistered once it has been garbage collected. They
+     * can also be unregistered explicitly using the returned registration.<br>
+     * Registering and unregistering observers doesn't block the threads firing events, and only causes the dispatch
+     * lists of the events observed by the object to be resolved again.
+     * @param name the name used instead of a bean name to name the observer methods of the object
+     * @param observer the object to register
+     * @return the registration of the observer methods of the object
+     * @throws IllegalStateException if called before the singletons of the application context have been
+     * instantiated, or if an observer method is invalid, or durable
+     */
+    public ObserverRegistration register(String name, Object observer) {
+        if (!configFrozen) {
+            throw new IllegalStateException(
+                "Observers can only be registered once the singletons of the application context are instantiated");
+        }
+        Class<?> targetClass = AopUtils.getTargetClass(observer);
+        List<Method> methods = findObserverMethods(targetClass);
+        synchronized (registrationLock) {
+            purgeCollectedObservers();
+            ObserverReference reference = new ObserverReference(observer, collectedObservers);
+            DynamicRegistration registration = new DynamicRegistration(reference);
+            try {
+                for (Method method : methods) {
+                    Observes observes = AnnotationUtils.getAnnotation(method, Observes.class);
+                    registration.add(processObserver(observes, method, name, observer, targetClass, reference));
+                }
+            }
+            catch (RuntimeException e) {
+                registration.unregister();
+                throw e;
+            }
+            reference.setRegistration(registration);
+            return registration;
+        }
+    }
+
+    /**
+     * Registers the observer methods of the given object, named after its class and its identity hash code
+     * @see #register(String, Object)
+     */
+    public ObserverRegistration register(Object observer) {
+        String name = AopUtils.getTargetClass(observer).getName()
+            + "#" + Integer.toHexString(System.identityHashCode(observer));
+        return register(name, observer);
+    }
+
+    /**
+     * Unregisters the observer methods registered by the given registration
+     * @see ObserverRegistration#unregister()
+     */
+    public void unregister(ObserverRegistration registration) {
+        registration.unregister();
+    }
+
+    /**
+     * Unregisters the observer methods of the objects registered at runtime which have been garbage collected
+     */
+    private void purgeCollectedObservers() {
+        Reference<?> reference = collectedObservers.poll();
+        while (reference != null) {
+            ((ObserverReference) reference).unregister();
+            reference = collectedObservers.poll();
+        }
+    }
+
+    /**
+     * Removes the statistics of an observer registered at runtime, once unregistered
+     */
+    private void removeStatistics(ObserverDescriptor observer) {
+        metrics.unregisterObserver(observer);
+        EventQueueStatistics statistics = observerQueueStatistics.remove(observer);
+        if (statistics != null) {
+            queueStatistics.remove(statistics);
+        }
+        synchronized (bulkheads) {
+            ObserverBulkhead bulkhead = observerBulkheads.remove(observer);
+            if (bulkhead != null && !observerBulkheads.containsValue(bulkhead)) {
+                bulkheads.remove(bulkhead.getName());
+            }
+        }
+    }
+
+    /**
+     * Sets the journal of the events delivered to durable observers. Must be called before the singletons of the
+     * application context are instantiated. If not called, the single bean of type {@link EventJournal}, if any, is
+     * used.
+     */
+    public void setJournal(EventJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Sets the transport used to send the {@link Distributed} events to the other nodes, and to receive theirs. Must
+     * be called before the singletons of the application context are instantiated. If not called, the single bean
+     * of type {@link EventTransport}, if any, is used.
+     */
+    public void setTransport(EventTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Sets the codec of the {@link Distributed} events. If not called, the single bean of type {@link EventCodec}, if
+     * any, is used, and a {@link BinaryEventCodec} otherwise.
+     */
+    public void setCodec(EventCodec codec) {
+        this.codec = codec;
+    }
+
+    EventDispatchTable getDispatchTable() {
+        return dispatchTable;
+    }
+
+    EventMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (remoteDispatcher != null) {
+            remoteDispatcher.stop();
+        }
+        if (ownedDefaultExecutor != null) {
+            ownedDefaultExecutor.shutdown();
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        if (bulkheadExecutor != null) {
+            bulkheadExecutor.shutdown();
+        }
+        if (timerWheel != null) {
+            timerWheel.stop();
+        }
+        if (ownedParallelPool != null) {
+            ownedParallelPool.shutdown();
+        }
+    }
+
     @Override
     public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
         this.beanFactory = beanFactory;
     }
 
+    /**
+     * Hands out an instance of the given class of pooled events, reused if possible. Once initialized, it's supposed
+     * to be fired, which releases it.
+     * @throws IllegalArgumentException if the class is abstract, or doesn't have a constructor without argument
+     * @see PooledEvent
+     */
+    public <E extends PooledEvent> E acquire(Class<E> eventClass) {
+        return eventClass.cast(eventPools.get(eventClass).acquire());
+    }
+
+    /**
+     * Gets the number of instances of the given class of pooled events created so far
+     */
+    public long getCreatedCount(Class<? extends PooledEvent> eventClass) {
+        return eventPools.get(eventClass).getCreatedCount();
+    }
+
     @Override
     public void fire(Object event) {
-        for (EventFirer eventFirer : eventClassToFirersCache.getUnchecked(event.getClass())) {
+        metrics.recordFire(event.getClass());
+        EventFirer[] firers = dispatchTable.getFirers(event);
+        try {
+            if (flightRecorderHook != null) {
+                flightRecorderHook.fire(event, firers);
+                return;
+            }
+            for (EventFirer eventFirer : firers) {
+                eventFirer.fire(event);
+            }
+        }
+        finally {
+            // the reference of the caller to a pooled event is released once the synchronous observers have returned
+            if (event instanceof PooledEvent) {
+                ((PooledEvent) event).release();
+            }
+        }
+    }
+
+    /**
+     * Fires an event received from another node to the local observers only
+     */
+    private void fireReceived(Object event) {
+        metrics.recordFire(event.getClass());
+        EventFirer[] firers = dispatchTable.getFirers(event);
+        if (firers.length > 0 && firers[firers.length - 1] instanceof RemoteEventFirer) {
+            firers = Arrays.copyOf(firers, firers.length - 1);
+        }
+        if (flightRecorderHook != null) {
+            flightRecorderHook.fire(event, firers);
+            return;
+        }
+        for (EventFirer eventFirer : firers) {
             eventFirer.fire(event);
         }
     }
 
+    @Override
+    public void fireAll(Iterable<?> events) {
+        fireAll(null, events);
+    }
+
+    @Override
+    public <E> void fireAll(Class<E> eventClass, Iterable<? extends E> events) {
+        BatchFiring firing = new BatchFiring();
+        // the pooled events are released once all the events have been fired, and the batches delivered
+        List<PooledEvent> pooledEvents = null;
+        // the firers are only resolved again when the class of event changes
+        Class<?> lastEventClass = eventClass;
+        EventFirer[] classFirers = eventClass == null ? null : dispatchTable.getClassFirers(eventClass);
+        try {
+            for (Object event : events) {
+                metrics.recordFire(event.getClass());
+                if (event instanceof PooledEvent) {
+                    if (pooledEvents == null) {
+                        pooledEvents = new ArrayList<PooledEvent>();
+                    }
+                    pooledEvents.add((PooledEvent) event);
+                }
+                if (event.getClass() != lastEventClass) {
+                    lastEventClass = event.getClass();
+                    classFirers = dispatchTable.getClassFirers(lastEventClass);
+                }
+                // the firers of resolvable events depend on the type of each event
+                firing.firers = classFirers == null ? dispatchTable.getFirers(event) : classFirers;
+                if (flightRecorderHook != null) {
+                    flightRecorderHook.fire(event, firing, firing.firers.length);
+                }
+                else {
+                    firing.fire(event);
+                }
+            }
+            firing.deliverBatches();
+        }
+        finally {
+            if (pooledEvents != null) {
+                for (PooledEvent pooledEvent : pooledEvents) {
+                    pooledEvent.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of a call of {@link #fireAll(Class, Iterable)}, which routes each event to the current firers: the
+     * transactional buffer of deferred observers is looked up once, and the events of in-progress observers taking
+     * lists of events are collected, in order to deliver them all at once, once all the events have been fired.
+     */
+    private static final class BatchFiring implements EventFirer {
+        private EventFirer[] firers;
+        private TransactionalEventBuffer buffer;
+        private boolean bufferResolved;
+        private Map<BatchInvoker, List<Object>> batches;
+
+        @Override
+        public void fire(Object event) {
+            for (EventFirer firer : firers) {
+                if (firer instanceof DeferredEventFirer) {
+                    if (!((AbstractEventFirer) firer).accepts(event)) {
+                        continue;
+                    }
+                    if (!bufferResolved) {
+                        buffer = TransactionalEventBuffer.current();
+                        bufferResolved = true;
+                    }
+                    if (buffer != null) {
+                        ((DeferredEventFirer) firer).defer(event, buffer);
+                    }
+                }
+                else if (firer instanceof InProgressEventFirer
+                         && ((InProgressEventFirer) firer).getInvoker() instanceof BatchInvoker) {
+                    if (!((InProgressEventFirer) firer).accepts(event)) {
+                        continue;
+                    }
+                    if (batches == null) {
+                        batches = new LinkedHashMap<BatchInvoker, List<Object>>();
+                    }
+                    BatchInvoker batchInvoker = (BatchInvoker) ((InProgressEventFirer) firer).getInvoker();
+                    List<Object> batch = batches.get(batchInvoker);
+                    if (batch == null) {
+                        batch = new ArrayList<Object>();
+                        batches.put(batchInvoker, batch);
+                    }
+                    batch.add(event);
+                }
+                else {
+                    firer.fire(event);
+                }
+            }
+        }
+
+        void deliverBatches() {
+            if (batches != null) {
+                for (Map.Entry<BatchInvoker, List<Object>> entry : batches.entrySet()) {
+                    entry.getKey().invokeAll(entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * The registration of the observer methods of an object registered at runtime
+     */
+    private final class DynamicRegistration implements ObserverRegistration {
+        private final ObserverReference reference;
+        private final List<EventDispatchTable.Registration> registrations =
+            new ArrayList<EventDispatchTable.Registration>();
+        private final AtomicBoolean registered = new AtomicBoolean(true);
+
+        DynamicRegistration(ObserverReference reference) {
+            this.reference = reference;
+        }
+
+        void add(EventDispatchTable.Registration registration) {
+            registrations.add(registration);
+        }
+
+        @Override
+        public List<ObserverDescriptor> getObservers() {
+            List<ObserverDescriptor> result = new ArrayList<ObserverDescriptor>(registrations.size());
+            for (EventDispatchTable.Registration registration : registrations) {
+                result.add(registration.getObserver());
+            }
+            return Collections.unmodifiableList(result);
+        }
+
+        @Override
+        public boolean isRegistered() {
+            return registered.get() && reference.get() != null;
+        }
+
+        @Override
+        public void unregister() {
+            if (registered.compareAndSet(true, false)) {
+                synchronized (registrationLock) {
+                    for (EventDispatchTable.Registration registration : registrations) {
+                        dispatchTable.unregister(registration);
+                        removeStatistics(registration.getObserver());
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,128 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of the instances of a {@link PooledEvent} class. Each thread has its own stack of free events, without any
+ * synchronization, which it uses first. Events released by another thread than the one which has acquired them,
+ * because they've been delivered to asynchronous observers, go to a bounded shared queue, used when the stack of the
+ * acquiring thread is empty. Events which don't fit in the stack or in the shared queue are left to the garbage
+ * collector, so the pool never grows beyond its bounds.
+ * @author JB Nizet
+ */
+class EventPool {
+
+    /**
+     * The maximum number of free events kept by each thread
+     */
+    static final int THREAD_CAPACITY = 64;
+
+    /**
+     * The maximum number of free events kept in the shared queue
+     */
+    static final int SHARED_CAPACITY = 1024;
+
+    private final Constructor<? extends PooledEvent> constructor;
+    private final boolean debug;
+
+    private final ThreadLocal<ArrayDeque<PooledEvent>> threadEvents = new ThreadLocal<ArrayDeque<PooledEvent>>() {
+        @Override
+        protected ArrayDeque<PooledEvent> initialValue() {
+            return new ArrayDeque<PooledEvent>(THREAD_CAPACITY);
+        }
+    };
+
+    private final BlockingQueue<PooledEvent> sharedEvents = new ArrayBlockingQueue<PooledEvent>(SHARED_CAPACITY);
+
+    private final AtomicLong createdCount = new AtomicLong();
+
+    /**
+     * Creates a pool
+     * @param eventClass the concrete class of the pooled events, which must have a constructor without argument
+     * @param debug true to never reuse the released events, but to mark them as released instead
+     * @throws IllegalArgumentException if the class is abstract, or doesn't have a constructor without argument
+     */
+    public EventPool(Class<? extends PooledEvent> eventClass, boolean debug) {
+        if (Modifier.isAbstract(eventClass.getModifiers())) {
+            throw new IllegalArgumentException("The pooled event class " + eventClass.getName() + " is abstract");
+        }
+        try {
+            this.constructor = eventClass.getDeclaredConstructor();
+        }
+        catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(
+                "The pooled event class " + eventClass.getName() + " must have a constructor without argument", e);
+        }
+        ReflectionUtils.makeAccessible(constructor);
+        this.debug = debug;
+    }
+
+    /**
+     * Hands out a free event, or a new one if there is none, with a single reference owned by the caller
+     */
+    public PooledEvent acquire() {
+        PooledEvent event = threadEvents.get().pollFirst();
+        if (event == null) {
+            event = sharedEvents.poll();
+            if (event == null) {
+                event = create();
+            }
+        }
+        event.acquired(Thread.currentThread());
+        return event;
+    }
+
+    /**
+     * Resets the given event, whose last reference has been released, and makes it available again
+     */
+    void recycle(PooledEvent event) {
+        if (debug) {
+            event.markReleased(new Throwable("Released by thread " + Thread.currentThread().getName()));
+            return;
+        }
+        event.reset();
+        if (event.getOwner() == Thread.currentThread()) {
+            ArrayDeque<PooledEvent> events = threadEvents.get();
+            if (events.size() < THREAD_CAPACITY) {
+                events.offerFirst(event);
+                return;
+            }
+        }
+        sharedEvents.offer(event);
+    }
+
+    /**
+     * Gets the number of events created by this pool, which, compared to the number of fired events, shows how
+     * effective the pool is
+     */
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    private PooledEvent create() {
+        PooledEvent event;
+        try {
+            event = constructor.newInstance();
+        }
+        catch (InstantiationException e) {
+            throw new IllegalStateException("Unable to create a pooled event", e);
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to create a pooled event", e);
+        }
+        catch (InvocationTargetException e) {
+            throw new IllegalStateException("Unable to create a pooled event", e.getTargetException());
+        }
+        event.attach(this);
+        createdCount.incrementAndGet();
+        return event;
+    }
+}
@@ -0,0 +1,39 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Statistics about the queue of an asynchronous observer having a bounded queue, a maximum concurrency or partitions.
+ * For partitioned observers, the statistics are the sums of the statistics of all the partitions.
+ * @author JB Nizet
+ * @see EventObserverBeanPostProcessor#getQueueStatistics()
+ */
+public interface EventQueueStatistics {
+    /**
+     * Gets the name of the observer, made of the bean name, the method name and the observed event type
+     */
+    String getObserverName();
+
+    /**
+     * Gets the number of events currently waiting in the queue
+     */
+    int getQueueDepth();
+
+    /**
+     * Gets the capacity of the queue (of each partition, for partitioned observers), or 0 if it's unbounded
+     */
+    int getQueueCapacity();
+
+    /**
+     * Gets the number of events dropped because the queue was full
+     */
+    long getDroppedCount();
+
+    /**
+     * Gets the number of events rejected, with an exception, because the queue was full
+     */
+    long getRejectedCount();
+
+    /**
+     * Gets the number of events delivered by the firing thread because the queue was full
+     */
+    long getCallerRunsCount();
+}
@@ -0,0 +1,108 @@
+package com.ninja_squad.spring.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Management view of the observers registered by the {@link EventObserverBeanPostProcessor}, of the dispatch lists
+ * resolved for each concrete class of fired event, and of the statistics recorded by the {@link InMemoryEventMetrics},
+ * if used. It can be queried directly, or exported to JMX by defining it as a bean in an application context where
+ * MBean export is enabled (using <code>@EnableMBeanExport</code> for example):
+ * <pre>
+ * &#64;Bean
+ * public EventRegistry eventRegistry(EventObserverBeanPostProcessor eventFirer) {
+ *     return new EventRegistry(eventFirer);
+ * }
+ * </pre>
+ * @author JB Nizet
+ */
+public class EventRegistry implements EventRegistryMXBean {
+
+    private static final Comparator<ObserverSummary> OBSERVER_ORDER = new Comparator<ObserverSummary>() {
+        @Override
+        public int compare(ObserverSummary o1, ObserverSummary o2) {
+            int result = o1.getEventType().compareTo(o2.getEventType());
+            if (result == 0) {
+                result = EventMoment.valueOf(o1.getMoment()).compareTo(EventMoment.valueOf(o2.getMoment()));
+            }
+            if (result == 0) {
+                result = o1.getName().compareTo(o2.getName());
+            }
+            return result;
+        }
+    };
+
+    private static final Comparator<DispatchSummary> DISPATCH_ORDER = new Comparator<DispatchSummary>() {
+        @Override
+        public int compare(DispatchSummary o1, DispatchSummary o2) {
+            return o1.getEventClass().compareTo(o2.getEventClass());
+        }
+    };
+
+    private final EventObserverBeanPostProcessor postProcessor;
+
+    public EventRegistry(EventObserverBeanPostProcessor postProcessor) {
+        this.postProcessor = postProcessor;
+    }
+
+    @Override
+    public List<ObserverSummary> getObservers() {
+        InMemoryEventMetrics metrics = getInMemoryMetrics();
+        long recordingNanos = metrics == null ? 0L : metrics.getRecordingNanos();
+        List<ObserverSummary> result = new ArrayList<ObserverSummary>();
+        for (ObserverDescriptor observer : postProcessor.getDispatchTable().getObservers()) {
+            ObserverStatistics statistics = metrics == null ? null : metrics.getObserverStatistics(observer.getName());
+            result.add(new ObserverSummary(observer, statistics, recordingNanos));
+        }
+        Collections.sort(result, OBSERVER_ORDER);
+        return result;
+    }
+
+    /**
+     * Gets the registered observers of the given event type, sorted by moment and name
+     * @param eventType the name of the observed event type
+     */
+    public List<ObserverSummary> getObservers(String eventType) {
+        List<ObserverSummary> result = new ArrayList<ObserverSummary>();
+        for (ObserverSummary observer : getObservers()) {
+            if (observer.getEventType().equals(eventType)) {
+                result.add(observer);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<DispatchSummary> getDispatchTable() {
+        List<DispatchSummary> result = new ArrayList<DispatchSummary>();
+        Map<Class<?>, EventDispatchTable.Dispatch> dispatches =
+            postProcessor.getDispatchTable().getResolvedDispatches();
+        for (Map.Entry<Class<?>, EventDispatchTable.Dispatch> entry : dispatches.entrySet()) {
+            result.add(new DispatchSummary(entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(result, DISPATCH_ORDER);
+        return result;
+    }
+
+    @Override
+    public boolean isStatisticsEnabled() {
+        return getInMemoryMetrics() != null;
+    }
+
+    @Override
+    public void resetStatistics() {
+        InMemoryEventMetrics metrics = getInMemoryMetrics();
+        if (metrics != null) {
+            metrics.reset();
+        }
+        postProcessor.getDispatchTable().resetLookupCounts();
+    }
+
+    private InMemoryEventMetrics getInMemoryMetrics() {
+        EventMetrics metrics = postProcessor.getMetrics();
+        return metrics instanceof InMemoryEventMetrics ? (InMemoryEventMetrics) metrics : null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.ninja_squad.spring.events;
+
+import java.util.List;
+
+/**
+ * Management interface of the {@link EventRegistry}. Since it's an MXBean interface, the registry can be registered
+ * in any MBean server, and read by any JMX client, without the classes of this library.
+ * @author JB Nizet
+ */
+public interface EventRegistryMXBean {
+
+    /**
+     * Gets all the registered observers, sorted by observed event type, moment and name, with their statistics
+     */
+    List<ObserverSummary> getObservers();
+
+    /**
+     * Gets the resolved dispatch list of each concrete event class fired so far, sorted by event class name
+     */
+    List<DispatchSummary> getDispatchTable();
+
+    /**
+     * Tells if statistics are recorded, i.e. if an {@link InMemoryEventMetrics} is used. If not, the statistics of the
+     * observers, and the lookup counts and hit rates of the dispatch table, are all 0 or NaN.
+     */
+    boolean isStatisticsEnabled();
+
+    /**
+     * Resets all the counters and histograms
+     */
+    void resetStatistics();
+}
@@ -0,0 +1,40 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Transport used to send the messages containing {@link Distributed} events to the other nodes of the application,
+ * and to receive the messages sent by the other nodes. A message sent by a node must be received by all the other
+ * nodes, but not by the sending node itself. The transport is started and stopped by the
+ * {@link EventObserverBeanPostProcessor}.
+ * @author JB Nizet
+ * @see LoopbackEventTransport
+ * @see TcpEventTransport
+ */
+public interface EventTransport {
+
+    /**
+     * Receiver of the messages sent by the other nodes
+     */
+    interface Receiver {
+        /**
+         * Called by the transport for each message received from another node. The message must not be modified
+         * after this call.
+         */
+        void receive(byte[] message);
+    }
+
+    /**
+     * Starts the transport. Once started, the transport delivers the received messages to the given receiver.
+     */
+    void start(Receiver receiver);
+
+    /**
+     * Sends a message to the other nodes. This method is called by a single thread, and can thus block while sending.
+     * Messages must be received in the order they're sent, but may be lost if a node is unreachable.
+     */
+    void send(byte[] message);
+
+    /**
+     * Stops the transport
+     */
+    void stop();
+}
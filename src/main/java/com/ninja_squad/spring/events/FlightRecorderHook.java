@@ -0,0 +1,26 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Hook used to emit Java Flight Recorder events when events are fired and when observers are called. The
+ * implementation is compiled separately, since it depends on the <code>jdk.jfr</code> API, which is only available
+ * since Java 11, and is loaded by {@link FlightRecorderHooks} only if this API is available.
+ * @author JB Nizet
+ */
+interface FlightRecorderHook {
+
+    /**
+     * Fires the given event using the given firers, and records the firing
+     */
+    void fire(Object event, EventFirer[] firers);
+
+    /**
+     * Fires the given event using the given firer, which delivers it to the given number of observers, and records the
+     * firing. This is used when firing batches of events, whose firer routes each event to the observers of its class.
+     */
+    void fire(Object event, EventFirer firer, int observerCount);
+
+    /**
+     * Decorates the given invoker in order to record every call of the given observer
+     */
+    ObserverInvoker decorate(ObserverInvoker invoker, ObserverDescriptor observer);
+}
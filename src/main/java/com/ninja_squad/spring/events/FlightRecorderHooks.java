@@ -0,0 +1,44 @@
+package com.ninja_squad.spring.events;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Factory of the {@link FlightRecorderHook}
+ * @author JB Nizet
+ */
+final class FlightRecorderHooks {
+
+    private static final Log logger = LogFactory.getLog(FlightRecorderHooks.class);
+
+    private static final String JFR_EVENT_CLASS_NAME = "jdk.jfr.Event";
+    private static final String HOOK_CLASS_NAME = "com.ninja_squad.spring.events.JfrFlightRecorderHook";
+
+    private FlightRecorderHooks() {
+    }
+
+    /**
+     * Loads the hook, or returns null if the Java Flight Recorder API isn't available in the running JVM
+     */
+    public static FlightRecorderHook load(ClassLoader classLoader) {
+        if (!ClassUtils.isPresent(JFR_EVENT_CLASS_NAME, classLoader)
+            || !ClassUtils.isPresent(HOOK_CLASS_NAME, classLoader)) {
+            return null;
+        }
+        try {
+            return (FlightRecorderHook) ClassUtils.forName(HOOK_CLASS_NAME, classLoader).newInstance();
+        }
+        catch (Exception e) {
+            logFailure(e);
+        }
+        catch (LinkageError e) {
+            logFailure(e);
+        }
+        return null;
+    }
+
+    private static void logFailure(Throwable e) {
+        logger.warn("Unable to load the Java Flight Recorder support, no flight recorder event will be emitted", e);
+    }
+}
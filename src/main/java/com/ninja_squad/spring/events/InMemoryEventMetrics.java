@@ -0,0 +1,127 @@
+package com.ninja_squad.spring.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event metrics keeping the counters and histograms in memory, so that they can be queried by the application, for
+ * example to expose them in a monitoring endpoint. To use it, simply define a bean of this type in the application
+ * context.<br>
+ * The fire count of each event class is associated with the class itself using a {@link ClassValue}, and the classes
+ * of fired events are only tracked weakly, so that the metrics don't prevent the event classes and their class loader
+ * from being garbage collected.
+ * @author JB Nizet
+ */
+public class InMemoryEventMetrics implements EventMetrics {
+
+    private volatile FireCounts fireCounts = new FireCounts();
+    private final List<ObserverStatistics> observerStatistics = new CopyOnWriteArrayList<ObserverStatistics>();
+    private volatile long startNanos = System.nanoTime();
+
+    @Override
+    public ObserverMetrics registerObserver(ObserverDescriptor observer) {
+        ObserverStatistics result = new ObserverStatistics(observer);
+        observerStatistics.add(result);
+        return result;
+    }
+
+    @Override
+    public void unregisterObserver(ObserverDescriptor observer) {
+        for (ObserverStatistics statistics : observerStatistics) {
+            if (statistics.getObserver() == observer) {
+                observerStatistics.remove(statistics);
+            }
+        }
+    }
+
+    @Override
+    public void recordFire(Class<?> eventClass) {
+        fireCounts.get(eventClass).incrementAndGet();
+    }
+
+    /**
+     * Gets the number of fired events of the given concrete class
+     */
+    public long getFireCount(Class<?> eventClass) {
+        return fireCounts.get(eventClass).get();
+    }
+
+    /**
+     * Gets the number of fired events, by concrete event class
+     */
+    public Map<Class<?>, Long> getFireCounts() {
+        Map<Class<?>, Long> result = new HashMap<Class<?>, Long>();
+        FireCounts counts = fireCounts;
+        synchronized (counts.countedClasses) {
+            for (Map.Entry<Class<?>, AtomicLong> entry : counts.countedClasses.entrySet()) {
+                long count = entry.getValue().get();
+                if (count > 0L) {
+                    result.put(entry.getKey(), count);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the statistics of all the observers, in the order they've been registered
+     */
+    public List<ObserverStatistics> getObserverStatistics() {
+        return Collections.unmodifiableList(new ArrayList<ObserverStatistics>(observerStatistics));
+    }
+
+    /**
+     * Gets the statistics of the observer with the given name, or null if there is no such observer
+     * @see ObserverDescriptor#getName()
+     */
+    public ObserverStatistics getObserverStatistics(String observerName) {
+        for (ObserverStatistics statistics : observerStatistics) {
+            if (statistics.getObserver().getName().equals(observerName)) {
+                return statistics;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the time elapsed, in nanoseconds, since these metrics have been created or reset, which allows computing
+     * throughputs
+     */
+    public long getRecordingNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Resets all the counters and histograms
+     */
+    public void reset() {
+        startNanos = System.nanoTime();
+        fireCounts = new FireCounts();
+        for (ObserverStatistics statistics : observerStatistics) {
+            statistics.reset();
+        }
+    }
+
+    /**
+     * The fire counts of the event classes, and the classes whose count has been queried or recorded, tracked weakly.
+     * The counts are reset by replacing this object.
+     */
+    private static final class FireCounts extends ClassValue<AtomicLong> {
+        private final Map<Class<?>, AtomicLong> countedClasses = new WeakHashMap<Class<?>, AtomicLong>();
+
+        @Override
+        protected AtomicLong computeValue(Class<?> eventClass) {
+            AtomicLong count = new AtomicLong();
+            synchronized (countedClasses) {
+                countedClasses.put(eventClass, count);
+            }
+            return count;
+        }
+    }
+}
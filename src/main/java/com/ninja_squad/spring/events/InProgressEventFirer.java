@@ -1,25 +1,39 @@
 package com.ninja_squad.spring.events;
 
-import org.springframework.util.ReflectionUtils;
-
-import java.lang.reflect.Method;
-
 /**
  * Event firer which calls an observing method immediately
  * @author JB Nizet
  */
-class InProgressEventFirer implements EventFirer {
+class InProgressEventFirer extends AbstractEventFirer {
+
+    private final ObserverInvoker invoker;
+    private final boolean timestamped;
 
-    private final Object bean;
-    private final Method method;
+    public InProgressEventFirer(ObserverInvoker invoker) {
+        this(invoker, false, null);
+    }
 
-    public InProgressEventFirer(Object bean, Method method) {
-        this.bean = bean;
-        this.method = method;
+    /**
+     * Creates a firer
+     * @param invoker the invoker of the observer method
+     * @param timestamped if true, the events are passed to the invoker as {@link TimestampedEvent}s, in order to
+     * measure the time they spend in the queue of an asynchronous observer
+     * @param condition the condition that events must satisfy to be passed to the invoker, or null
+     */
+    public InProgressEventFirer(ObserverInvoker invoker, boolean timestamped, EventCondition condition) {
+        super(condition);
+        this.invoker = invoker;
+        this.timestamped = timestamped;
     }
 
     @Override
     public void fire(Object event) {
-        ReflectionUtils.invokeMethod(method, bean, event);
+        if (accepts(event)) {
+            invoker.invoke(timestamped ? new TimestampedEvent(event) : event);
+        }
+    }
+
+    ObserverInvoker getInvoker() {
+        return invoker;
     }
 }
@@ -0,0 +1,55 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Holder of an event delivered to a durable observer, and of its ID in the {@link EventJournal}. The event is
+ * journaled just before the transaction is committed, and is unwrapped, then acknowledged once the observer has been
+ * called, by {@link JournalingObserverInvoker}.
+ * @author JB Nizet
+ */
+final class JournaledEvent {
+    private final EventJournal journal;
+    private final String observerName;
+    private final Object event;
+
+    /**
+     * The ID of the event in the journal, or -1 if it hasn't been journaled
+     */
+    private long id = -1L;
+
+    JournaledEvent(EventJournal journal, String observerName, Object event) {
+        this.journal = journal;
+        this.observerName = observerName;
+        this.event = event;
+    }
+
+    EventJournal getJournal() {
+        return journal;
+    }
+
+    String getObserverName() {
+        return observerName;
+    }
+
+    Object getEvent() {
+        return event;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    void setId(long id) {
+        this.id = id;
+    }
+
+    boolean isJournaled() {
+        return id >= 0L;
+    }
+
+    /**
+     * Returns the wrapped event if the given object is a journaled event, or the given object otherwise
+     */
+    static Object unwrap(Object event) {
+        return event instanceof JournaledEvent ? ((JournaledEvent) event).event : event;
+    }
+}
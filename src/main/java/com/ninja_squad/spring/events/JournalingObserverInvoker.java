@@ -0,0 +1,41 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Invoker of a durable observer, which unwraps the {@link JournaledEvent}s, and acknowledges them once the observer
+ * has been called successfully. It's placed after the asynchronous invokers in the invoker chain, so that events
+ * waiting in a queue are not acknowledged yet.
+ * @author JB Nizet
+ */
+class JournalingObserverInvoker implements ObserverInvoker {
+
+    private final ObserverInvoker delegate;
+    private final EventJournal journal;
+    private final String observerName;
+
+    public JournalingObserverInvoker(ObserverInvoker delegate, EventJournal journal, String observerName) {
+        this.delegate = delegate;
+        this.journal = journal;
+        this.observerName = observerName;
+    }
+
+    /**
+     * Wraps an event, to be journaled before the transaction is committed
+     */
+    public JournaledEvent wrap(Object event) {
+        return new JournaledEvent(journal, observerName, event);
+    }
+
+    @Override
+    public void invoke(Object event) {
+        if (event instanceof JournaledEvent) {
+            JournaledEvent journaledEvent = (JournaledEvent) event;
+            delegate.invoke(journaledEvent.getEvent());
+            if (journaledEvent.isJournaled()) {
+                journal.acknowledge(journaledEvent.getId());
+            }
+        }
+        else {
+            delegate.invoke(event);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Invoker which submits events to lanes, rather than directly to an executor. It's used for asynchronous observers
+ * which have a bounded queue or a maximum concurrency, or which are partitioned.<br>
+ * When partitioned, the key of each event is hashed onto one of several serial lanes. Events having the same key are
+ * thus delivered one at a time, in the order they have been fired, whereas events having different keys can be
+ * delivered in parallel. Otherwise, all the events are submitted to a single lane.
+ * @author JB Nizet
+ */
+class LaneObserverInvoker implements ObserverInvoker, EventQueueStatistics {
+
+    private final String observerName;
+    private final EventLane[] lanes;
+    private final EventKeyExtractor keyExtractor;
+
+    /**
+     * Creates an invoker
+     * @param observerName the name of the observer, used for statistics
+     * @param lanes the lanes. If there are several of them, a key extractor must be provided
+     * @param keyExtractor the key extractor used to partition the events, or null if the observer is not partitioned
+     */
+    public LaneObserverInvoker(String observerName, EventLane[] lanes, EventKeyExtractor keyExtractor) {
+        this.observerName = observerName;
+        this.lanes = lanes;
+        this.keyExtractor = keyExtractor;
+    }
+
+    @Override
+    public void invoke(Object event) {
+        if (keyExtractor == null) {
+            lanes[0].submit(event);
+        }
+        else {
+            Object actualEvent = TimestampedEvent.unwrap(JournaledEvent.unwrap(event));
+            lanes[laneIndex(keyExtractor.extractKey(actualEvent))].submit(event);
+        }
+    }
+
+    private int laneIndex(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        int hash = key.hashCode();
+        // spread the high bits, as HashMap does, since keys often have poorly distributed hash codes
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % lanes.length;
+    }
+
+    @Override
+    public String getObserverName() {
+        return observerName;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        int result = 0;
+        for (EventLane lane : lanes) {
+            result += lane.getQueueDepth();
+        }
+        return result;
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return lanes[0].getCapacity();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        long result = 0L;
+        for (EventLane lane : lanes) {
+            result += lane.getDroppedCount();
+        }
+        return result;
+    }
+
+    @Override
+    public long getRejectedCount() {
+        long result = 0L;
+        for (EventLane lane : lanes) {
+            result += lane.getRejectedCount();
+        }
+        return result;
+    }
+
+    @Override
+    public long getCallerRunsCount() {
+        long result = 0L;
+        for (EventLane lane : lanes) {
+            result += lane.getCallerRunsCount();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,121 @@
+package com.ninja_squad.spring.events;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations, in nanoseconds, which can be recorded concurrently without any lock. As in HdrHistogram,
+ * values are counted in buckets of exponentially increasing sizes: each power of 2 is split into 8 linear
+ * sub-buckets, so the values reported by {@link #getValueAtPercentile(double)} are at most 12.5% higher than the
+ * actual recorded values.<br>
+ * Reading the histogram while values are recorded gives an approximate, but consistent enough, view of the
+ * distribution.
+ * @author JB Nizet
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalValue = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        long actualValue = Math.max(value, 0L);
+        counts.incrementAndGet(bucketIndex(actualValue));
+        totalCount.incrementAndGet();
+        totalValue.addAndGet(actualValue);
+        long max = maxValue.get();
+        while (actualValue > max && !maxValue.compareAndSet(max, actualValue)) {
+            max = maxValue.get();
+        }
+    }
+
+    /**
+     * Gets the number of recorded values
+     */
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Gets the highest recorded value, or 0 if no value has been recorded
+     */
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    /**
+     * Gets the mean of the recorded values, or 0 if no value has been recorded
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0L ? 0.0 : (double) totalValue.get() / count;
+    }
+
+    /**
+     * Gets the value below which the given percentage of the recorded values fall, or 0 if no value has been recorded
+     * @param percentile the percentile, between 0 and 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = 0L;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0L) {
+            return 0L;
+        }
+
+        long threshold = Math.max((long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count), 1L);
+        long cumulatedCount = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulatedCount += snapshot[i];
+            if (cumulatedCount >= threshold) {
+                return Math.min(highestValueInBucket(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Resets the histogram. Values recorded concurrently might be partially lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0L);
+        }
+        totalCount.set(0L);
+        totalValue.set(0L);
+        maxValue.set(0L);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long lowestValueInBucket(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        return ((long) (SUB_BUCKET_COUNT + subBucket)) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long highestValueInBucket(int index) {
+        return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : lowestValueInBucket(index + 1) - 1;
+    }
+}
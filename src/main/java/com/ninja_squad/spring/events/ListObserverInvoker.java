@@ -0,0 +1,28 @@
+package com.ninja_squad.spring.events;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Invoker which synchronously calls an observing method taking a list of events as argument. A single event is
+ * delivered as a singleton list.
+ * @author JB Nizet
+ */
+class ListObserverInvoker implements BatchInvoker {
+
+    private final ObserverInvoker delegate;
+
+    public ListObserverInvoker(ObserverInvoker delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void invoke(Object event) {
+        delegate.invoke(Collections.singletonList(event));
+    }
+
+    @Override
+    public void invokeAll(List<Object> events) {
+        delegate.invoke(Collections.unmodifiableList(events));
+    }
+}
@@ -0,0 +1,64 @@
+package com.ninja_squad.spring.events;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Transport delivering the messages to the other transports of the same channel, in the same JVM. It's useful to test
+ * distributed events with several application contexts, without any network. The messages are delivered by the
+ * sending thread.
+ * @author JB Nizet
+ */
+public class LoopbackEventTransport implements EventTransport {
+
+    private static final ConcurrentMap<String, Set<LoopbackEventTransport>> CHANNELS =
+        new ConcurrentHashMap<String, Set<LoopbackEventTransport>>();
+
+    private final String channel;
+    private volatile Receiver receiver;
+
+    /**
+     * Creates a transport
+     * @param channel the name of the channel: messages are delivered to the other transports of the same channel
+     */
+    public LoopbackEventTransport(String channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void start(Receiver receiver) {
+        this.receiver = receiver;
+        Set<LoopbackEventTransport> transports = CHANNELS.get(channel);
+        if (transports == null) {
+            transports = new CopyOnWriteArraySet<LoopbackEventTransport>();
+            Set<LoopbackEventTransport> existing = CHANNELS.putIfAbsent(channel, transports);
+            if (existing != null) {
+                transports = existing;
+            }
+        }
+        transports.add(this);
+    }
+
+    @Override
+    public void send(byte[] message) {
+        Set<LoopbackEventTransport> transports = CHANNELS.get(channel);
+        if (transports == null) {
+            return;
+        }
+        for (LoopbackEventTransport transport : transports) {
+            if (transport != this) {
+                transport.receiver.receive(message);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        Set<LoopbackEventTransport> transports = CHANNELS.get(channel);
+        if (transports != null) {
+            transports.remove(this);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Invoker which records the metrics of each call of the observer method. It also unwraps the
+ * {@link TimestampedEvent}s, and records their queue wait time.
+ * @author JB Nizet
+ */
+class MeteredObserverInvoker implements ObserverInvoker {
+
+    private final ObserverInvoker delegate;
+    private final ObserverMetrics metrics;
+
+    public MeteredObserverInvoker(ObserverInvoker delegate, ObserverMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void invoke(Object event) {
+        Object actualEvent = event;
+        if (event instanceof TimestampedEvent) {
+            TimestampedEvent timestampedEvent = (TimestampedEvent) event;
+            metrics.recordQueueWait(System.nanoTime() - timestampedEvent.getFiredAt());
+            actualEvent = timestampedEvent.getEvent();
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.invoke(actualEvent);
+            failed = false;
+        }
+        finally {
+            metrics.recordInvocation(System.nanoTime() - start, failed);
+        }
+    }
+}
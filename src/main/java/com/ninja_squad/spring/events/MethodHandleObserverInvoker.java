@@ -0,0 +1,34 @@
+package com.ninja_squad.spring.events;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Invoker which calls an observing method through a method handle bound to the bean, and adapted to the type
+ * <code>(Object)void</code>, so that it can be invoked exactly, without any argument array or boxing.
+ * @author JB Nizet
+ */
+class MethodHandleObserverInvoker implements ObserverInvoker {
+
+    private final MethodHandle handle;
+
+    public MethodHandleObserverInvoker(MethodHandle handle) {
+        this.handle = handle;
+    }
+
+    @Override
+    public void invoke(Object event) {
+        try {
+            handle.invokeExact(event);
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+}
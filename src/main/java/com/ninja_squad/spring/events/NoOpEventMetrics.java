@@ -0,0 +1,35 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Metrics which don't record anything, used by default. The post processor doesn't decorate the observers when
+ * these metrics are used.
+ * @author JB Nizet
+ */
+final class NoOpEventMetrics implements EventMetrics, ObserverMetrics {
+
+    static final NoOpEventMetrics INSTANCE = new NoOpEventMetrics();
+
+    private NoOpEventMetrics() {
+    }
+
+    @Override
+    public ObserverMetrics registerObserver(ObserverDescriptor observer) {
+        return this;
+    }
+
+    @Override
+    public void unregisterObserver(ObserverDescriptor observer) {
+    }
+
+    @Override
+    public void recordFire(Class<?> eventClass) {
+    }
+
+    @Override
+    public void recordInvocation(long durationNanos, boolean failed) {
+    }
+
+    @Override
+    public void recordQueueWait(long queueWaitNanos) {
+    }
+}
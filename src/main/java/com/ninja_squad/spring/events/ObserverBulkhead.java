@@ -0,0 +1,155 @@
+package com.ninja_squad.spring.events;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The state of a {@link Bulkhead}, shared by the {@link BulkheadObserverInvoker}s of all the observers of its group:
+ * the permits limiting the concurrent calls, the circuit breaker, and the counters.
+ * @author JB Nizet
+ */
+class ObserverBulkhead implements BulkheadStatistics {
+
+    private final String name;
+    private final Bulkhead configuration;
+    private final Semaphore permits;
+    private final long openDurationNanos;
+
+    private final AtomicInteger activeCalls = new AtomicInteger();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong timedOutCount = new AtomicLong();
+    private final AtomicLong shortCircuitedCount = new AtomicLong();
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInProgress = new AtomicBoolean();
+    private volatile boolean open;
+    private volatile long openedAt;
+
+    public ObserverBulkhead(String name, Bulkhead configuration) {
+        this.name = name;
+        this.configuration = configuration;
+        int maxConcurrentCalls = configuration.maxConcurrentCalls();
+        this.permits = maxConcurrentCalls > 0 ? new Semaphore(maxConcurrentCalls) : null;
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(configuration.openDuration());
+    }
+
+    public Bulkhead getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Tries to start a call. If true is returned, {@link #exit(boolean)} must be called once the call completes.
+     * @return false if the call must not be made, because the circuit is open or because the maximum number of
+     * concurrent calls is reached
+     */
+    public boolean tryEnter() {
+        boolean trial = false;
+        if (open) {
+            // once the open duration has elapsed, a single trial call is let through
+            if (System.nanoTime() - openedAt < openDurationNanos || !trialInProgress.compareAndSet(false, true)) {
+                shortCircuitedCount.incrementAndGet();
+                return false;
+            }
+            trial = true;
+        }
+        if (permits != null && !permits.tryAcquire()) {
+            if (trial) {
+                trialInProgress.set(false);
+            }
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        activeCalls.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Ends a call started by a successful {@link #tryEnter()}, and records its result
+     * @param success true if the observer has completed normally
+     */
+    public void exit(boolean success) {
+        release();
+        if (success) {
+            recordSuccess();
+        }
+        else {
+            recordFailure();
+        }
+    }
+
+    /**
+     * Ends a call started by a successful {@link #tryEnter()}, without recording its result, because it has already
+     * been recorded as a timeout
+     */
+    public void release() {
+        activeCalls.decrementAndGet();
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    /**
+     * Records a call which hasn't completed before the timeout expired. It counts as a failure for the circuit breaker.
+     */
+    public void recordTimeout() {
+        timedOutCount.incrementAndGet();
+        recordFailure();
+    }
+
+    private void recordSuccess() {
+        if (configuration.failureThreshold() > 0) {
+            consecutiveFailures.set(0);
+            if (open) {
+                open = false;
+                trialInProgress.set(false);
+            }
+        }
+    }
+
+    private void recordFailure() {
+        if (configuration.failureThreshold() > 0
+            && (consecutiveFailures.incrementAndGet() >= configuration.failureThreshold() || open)) {
+            openedAt = System.nanoTime();
+            open = true;
+            trialInProgress.set(false);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getMaxConcurrentCalls() {
+        return configuration.maxConcurrentCalls();
+    }
+
+    @Override
+    public int getActiveCalls() {
+        return activeCalls.get();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public long getTimedOutCount() {
+        return timedOutCount.get();
+    }
+
+    @Override
+    public long getShortCircuitedCount() {
+        return shortCircuitedCount.get();
+    }
+
+    @Override
+    public boolean isCircuitOpen() {
+        return open;
+    }
+}
@@ -0,0 +1,98 @@
+package com.ninja_squad.spring.events;
+
+import java.lang.reflect.Method;
+
+/**
+ * Description of an observer method, as registered by {@link EventObserverBeanPostProcessor}. It's passed to the
+ * {@link EventMetrics} in order to identify the observers.
+ * @author JB Nizet
+ */
+public final class ObserverDescriptor {
+    private final String beanName;
+    private final Method method;
+    private final Class<?> eventType;
+    private final EventMoment moment;
+    private final boolean async;
+    private final boolean parallel;
+    private final int order;
+    private final String name;
+
+    public ObserverDescriptor(String beanName,
+                              Method method,
+                              Class<?> eventType,
+                              EventMoment moment,
+                              boolean async,
+                              boolean parallel,
+                              int order) {
+        this.beanName = beanName;
+        this.method = method;
+        this.eventType = eventType;
+        this.moment = moment;
+        this.async = async;
+        this.parallel = parallel;
+        this.order = order;
+        this.name = beanName + "." + method.getName() + "(" + method.getParameterTypes()[0].getName() + ")";
+    }
+
+    /**
+     * Gets the name of the bean containing the observer method
+     */
+    public String getBeanName() {
+        return beanName;
+    }
+
+    /**
+     * Gets the observer method
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Gets the type of the observed events. For observers taking lists of events, it's the type of the elements of the
+     * list.
+     */
+    public Class<?> getEventType() {
+        return eventType;
+    }
+
+    /**
+     * Gets the moment when the observer is called
+     */
+    public EventMoment getMoment() {
+        return moment;
+    }
+
+    /**
+     * Tells if the observer is called asynchronously
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Tells if the observer is called in parallel with the other parallel observers of the fired event
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Gets the order of the observer among the observers of a fired event. The lowest orders are called first.
+     */
+    public int getOrder() {
+        return order;
+    }
+
+    /**
+     * Gets the name of the observer, made of the bean name, the method name and the type of its parameter
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,167 @@
+package com.ninja_squad.spring.events;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.ClassUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * The observer index, generated at compile time by {@link ObserverIndexProcessor}, and listing all the methods
+ * annotated with {@link Observes}. Each line of the index is an entry made of the binary name of the declaring class,
+ * the name of the method and the name of its parameter type, separated by spaces. Lines starting with
+ * <code>#</code> are comments.
+ * @author JB Nizet
+ */
+final class ObserverIndex {
+
+    private static final Log logger = LogFactory.getLog(ObserverIndex.class);
+
+    public static final String INDEX_LOCATION = "META-INF/spring-events.index";
+
+    private static final String SEPARATOR = " ";
+
+    /**
+     * The observer methods, stored as (method name, parameter type name) pairs, indexed by declaring class name
+     */
+    private final ListMultimap<String, String[]> methodsByClassName;
+
+    private ObserverIndex(ListMultimap<String, String[]> methodsByClassName) {
+        this.methodsByClassName = methodsByClassName;
+    }
+
+    /**
+     * Loads and merges all the indices found in the classpath of the given class loader
+     * @return the index, or null if no index has been found
+     */
+    public static ObserverIndex load(ClassLoader classLoader) {
+        try {
+            Enumeration<URL> urls = classLoader.getResources(INDEX_LOCATION);
+            if (!urls.hasMoreElements()) {
+                return null;
+            }
+            ListMultimap<String, String[]> methodsByClassName = ArrayListMultimap.create();
+            while (urls.hasMoreElements()) {
+                read(urls.nextElement(), methodsByClassName);
+            }
+            return new ObserverIndex(methodsByClassName);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Unable to load the observer index from " + INDEX_LOCATION, e);
+        }
+    }
+
+    private static void read(URL url, ListMultimap<String, String[]> methodsByClassName) throws IOException {
+        InputStream in = url.openStream();
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (isEntry(line)) {
+                    String[] parts = line.trim().split(SEPARATOR);
+                    if (parts.length != 3) {
+                        throw new IllegalStateException("Invalid observer index entry in " + url + ": " + line);
+                    }
+                    methodsByClassName.put(parts[0], new String[] {parts[1], parts[2]});
+                }
+            }
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    static String toEntry(String className, String methodName, String parameterTypeName) {
+        return className + SEPARATOR + methodName + SEPARATOR + parameterTypeName;
+    }
+
+    /**
+     * Gets the binary name of the declaring class of an entry
+     */
+    static String getClassName(String entry) {
+        return entry.substring(0, entry.indexOf(SEPARATOR));
+    }
+
+    static boolean isEntry(String line) {
+        String trimmed = line.trim();
+        return !trimmed.isEmpty() && !trimmed.startsWith("#");
+    }
+
+    /**
+     * Gets the indexed observer methods declared by the given class or by one of its superclasses, in the same order
+     * as the one used by {@link org.springframework.util.ReflectionUtils#doWithMethods}: the methods of the class
+     * first, then the methods of its superclasses.
+     */
+    public List<Method> getObserverMethods(Class<?> targetClass) {
+        List<Method> result = null;
+        for (Class<?> type = targetClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            List<String[]> methods = methodsByClassName.get(type.getName());
+            if (!methods.isEmpty()) {
+                if (result == null) {
+                    result = new ArrayList<Method>();
+                }
+                for (String[] method : methods) {
+                    Method observerMethod = findMethod(type, method[0], method[1]);
+                    if (observerMethod != null) {
+                        result.add(observerMethod);
+                    }
+                }
+            }
+        }
+        return result == null ? Collections.<Method>emptyList() : result;
+    }
+
+    /**
+     * Finds an indexed method
+     * @return the method, or null if it isn't annotated with {@link Observes} anymore, in which case the outdated
+     * entry is ignored
+     */
+    private Method findMethod(Class<?> type, String methodName, String parameterTypeName) {
+        try {
+            Class<?> parameterType = ClassUtils.forName(parameterTypeName, type.getClassLoader());
+            Method method = type.getDeclaredMethod(methodName, parameterType);
+            if (method.getAnnotation(Observes.class) == null) {
+                logger.warn(String.format("The method %s(%s) of class %s listed in the observer index isn't annotated "
+                                              + "with @Observes, and is thus ignored. The index (%s) is probably "
+                                              + "outdated",
+                                          methodName,
+                                          parameterTypeName,
+                                          type.getName(),
+                                          INDEX_LOCATION));
+                return null;
+            }
+            return method;
+        }
+        catch (ClassNotFoundException e) {
+            throw outdatedIndex(type, methodName, parameterTypeName, e);
+        }
+        catch (NoSuchMethodException e) {
+            throw outdatedIndex(type, methodName, parameterTypeName, e);
+        }
+    }
+
+    private IllegalStateException outdatedIndex(Class<?> type,
+                                                String methodName,
+                                                String parameterTypeName,
+                                                Exception cause) {
+        return new IllegalStateException(
+            String.format("The observer method %s(%s) of class %s listed in the observer index can't be found. "
+                              + "The index (%s) is probably outdated",
+                          methodName,
+                          parameterTypeName,
+                          type.getName(),
+                          INDEX_LOCATION),
+            cause);
+    }
+}
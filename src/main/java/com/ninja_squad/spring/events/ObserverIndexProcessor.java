@@ -0,0 +1,190 @@
+package com.ninja_squad.spring.events;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Optional annotation processor which finds the methods annotated with {@link Observes} at compile time, and writes
+ * them to the observer index (<code>META-INF/spring-events.index</code>). When this index is present in the
+ * classpath, {@link EventObserverBeanPostProcessor} uses it instead of scanning every method of every bean.<br>
+ * The processor is not registered automatically: it must be enabled explicitly, for example by passing
+ * <code>-processor com.ninja_squad.spring.events.ObserverIndexProcessor</code> to javac. Note that, once an index is
+ * found, only the observer methods it lists are registered, so every module containing observers should be
+ * compiled with the processor.
+ * @author JB Nizet
+ */
+@SupportedAnnotationTypes("*")
+public class ObserverIndexProcessor extends AbstractProcessor {
+
+    /**
+     * The sorted entries of the index. Sorting them makes the generated file reproducible.
+     */
+    private final Set<String> entries = new TreeSet<String>();
+
+    /**
+     * The entries of the index generated by a previous compilation. Only the ones of the classes which are not
+     * compiled again are kept, so that the observers which have been removed since are removed from the index.
+     */
+    private final Set<String> existingEntries = new TreeSet<String>();
+
+    /**
+     * The binary names of the classes compiled by the current compilation, including nested classes
+     */
+    private final Set<String> processedClassNames = new HashSet<String>();
+
+    private boolean existingIndexRead = false;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (!existingIndexRead) {
+            readExistingIndex();
+            existingIndexRead = true;
+        }
+
+        for (Element element : roundEnv.getRootElements()) {
+            addProcessedClassNames(element);
+        }
+        // the processor supports all the annotations, in order to be called even when the compiled classes don't
+        // contain any observer anymore, and their existing entries must thus be removed
+        TypeElement observes = processingEnv.getElementUtils().getTypeElement(Observes.class.getName());
+        if (observes != null) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(observes)) {
+                processObserver((ExecutableElement) element);
+            }
+        }
+
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private void processObserver(ExecutableElement method) {
+        if (method.getParameters().size() != 1) {
+            processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR,
+                String.format("The oberver method %s must take a single parameter", method.getSimpleName()),
+                method);
+            return;
+        }
+
+        TypeElement declaringClass = (TypeElement) method.getEnclosingElement();
+        TypeMirror parameterType = processingEnv.getTypeUtils().erasure(method.getParameters().get(0).asType());
+        entries.add(ObserverIndex.toEntry(processingEnv.getElementUtils().getBinaryName(declaringClass).toString(),
+                                          method.getSimpleName().toString(),
+                                          toClassName(parameterType)));
+    }
+
+    private void addProcessedClassNames(Element element) {
+        if (element instanceof TypeElement) {
+            processedClassNames.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+            for (Element enclosedElement : element.getEnclosedElements()) {
+                addProcessedClassNames(enclosedElement);
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the given erased type, in the format accepted by
+     * {@link org.springframework.util.ClassUtils#forName(String, ClassLoader)}
+     */
+    private String toClassName(TypeMirror type) {
+        if (type.getKind() == TypeKind.DECLARED) {
+            TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+            return processingEnv.getElementUtils().getBinaryName(element).toString();
+        }
+        else if (type.getKind() == TypeKind.ARRAY) {
+            return toClassName(((ArrayType) type).getComponentType()) + "[]";
+        }
+        else {
+            return type.toString();
+        }
+    }
+
+    /**
+     * Reads the index generated by a previous compilation, if any, in order to support incremental compilation
+     */
+    private void readExistingIndex() {
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT,
+                                                                   "",
+                                                                   ObserverIndex.INDEX_LOCATION);
+            Reader reader = file.openReader(true);
+            try {
+                BufferedReader bufferedReader = new BufferedReader(reader);
+                String line;
+                while ((line = bufferedReader.readLine()) != null) {
+                    if (ObserverIndex.isEntry(line)) {
+                        existingEntries.add(line.trim());
+                    }
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (IOException e) {
+            // no existing index: nothing to merge
+        }
+        catch (IllegalArgumentException e) {
+            // some compilers refuse to read from the class output: nothing to merge
+        }
+    }
+
+    private void writeIndex() {
+        for (String entry : existingEntries) {
+            if (!processedClassNames.contains(ObserverIndex.getClassName(entry))) {
+                entries.add(entry);
+            }
+        }
+        // an existing index is rewritten even if it becomes empty, to remove its outdated entries
+        if (entries.isEmpty() && existingEntries.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT,
+                                                                      "",
+                                                                      ObserverIndex.INDEX_LOCATION);
+            Writer writer = new OutputStreamWriter(file.openOutputStream(), "UTF-8");
+            try {
+                writer.write("# Generated by " + ObserverIndexProcessor.class.getName() + "\n");
+                for (String entry : entries) {
+                    writer.write(entry);
+                    writer.write('\n');
+                }
+            }
+            finally {
+                writer.close();
+            }
+        }
+        catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                                                     "Unable to write the observer index: " + e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Calls an observing method, bound to its bean, with an event. Invokers are created once, when the observer is
+ * registered, so that firing an event doesn't have to pay for access checks and method lookups.<br>
+ * If the observing method throws a runtime exception or an error, it's propagated as is. If it throws a checked
+ * exception, it's wrapped into an {@link java.lang.reflect.UndeclaredThrowableException}, as
+ * {@link org.springframework.util.ReflectionUtils#invokeMethod(java.lang.reflect.Method, Object, Object...)} does.
+ * @author JB Nizet
+ */
+interface ObserverInvoker {
+    void invoke(Object event);
+}
@@ -0,0 +1,48 @@
+package com.ninja_squad.spring.events;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * Factory of {@link ObserverInvoker} instances. A method handle bound to the bean is used whenever possible. If the
+ * method can't be unreflected (because of a security manager, for example), plain reflection is used instead.
+ * @author JB Nizet
+ */
+final class ObserverInvokers {
+
+    private static final Log logger = LogFactory.getLog(ObserverInvokers.class);
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Object.class);
+
+    private ObserverInvokers() {
+    }
+
+    /**
+     * Creates an invoker calling the given method on the given bean. The method is supposed to be accessible already.
+     */
+    public static ObserverInvoker create(Object bean, Method method) {
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(bean).asType(INVOKER_TYPE);
+            return new MethodHandleObserverInvoker(handle);
+        }
+        catch (IllegalAccessException e) {
+            logFallback(method, e);
+        }
+        catch (SecurityException e) {
+            logFallback(method, e);
+        }
+        return new ReflectiveObserverInvoker(bean, method);
+    }
+
+    private static void logFallback(Method method, Exception e) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Unable to create a method handle for the observer method " + method
+                             + ", falling back to reflection", e);
+        }
+    }
+}
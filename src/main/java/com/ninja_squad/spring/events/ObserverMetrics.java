@@ -0,0 +1,22 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Metrics of a single observer method, returned by {@link EventMetrics#registerObserver(ObserverDescriptor)}
+ * @author JB Nizet
+ */
+public interface ObserverMetrics {
+
+    /**
+     * Called after every call of the observer method
+     * @param durationNanos the duration of the call, in nanoseconds
+     * @param failed true if the observer method has thrown an exception
+     */
+    void recordInvocation(long durationNanos, boolean failed);
+
+    /**
+     * Called before the call of an asynchronous or transactional observer method
+     * @param queueWaitNanos the time, in nanoseconds, elapsed between the moment the event has been fired and the
+     * moment the observer method is called
+     */
+    void recordQueueWait(long queueWaitNanos);
+}
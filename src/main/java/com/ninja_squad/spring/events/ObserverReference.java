@@ -0,0 +1,32 @@
+package com.ninja_squad.spring.events;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * Weak reference to an object registered at runtime as observer, which knows how to unregister the object once it has
+ * been garbage collected.
+ * @author JB Nizet
+ */
+class ObserverReference extends WeakReference<Object> {
+
+    private volatile ObserverRegistration registration;
+
+    public ObserverReference(Object observer, ReferenceQueue<Object> queue) {
+        super(observer, queue);
+    }
+
+    public void setRegistration(ObserverRegistration registration) {
+        this.registration = registration;
+    }
+
+    /**
+     * Unregisters the observer methods of the referenced object, if the registration is complete
+     */
+    public void unregister() {
+        ObserverRegistration currentRegistration = registration;
+        if (currentRegistration != null) {
+            currentRegistration.unregister();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ninja_squad.spring.events;
+
+import java.util.List;
+
+/**
+ * Handle of an object whose observer methods have been registered at runtime, returned by
+ * {@link EventObserverBeanPostProcessor#register(String, Object)}.
+ * @author JB Nizet
+ */
+public interface ObserverRegistration {
+    /**
+     * Gets the observer methods of the object, registered by this registration
+     */
+    List<ObserverDescriptor> getObservers();
+
+    /**
+     * Tells if the observer methods are still registered, i.e. if this registration hasn't been unregistered, and if
+     * the object hasn't been garbage collected
+     */
+    boolean isRegistered();
+
+    /**
+     * Unregisters all the observer methods of the object. Events fired after this method returns are not delivered to
+     * the object anymore, except the ones already buffered by the current transaction, or queued for asynchronous
+     * delivery. Does nothing if already unregistered.
+     */
+    void unregister();
+}
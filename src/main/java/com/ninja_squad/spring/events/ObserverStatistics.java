@@ -0,0 +1,90 @@
+package com.ninja_squad.spring.events;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of an observer method, recorded by {@link InMemoryEventMetrics}
+ * @author JB Nizet
+ */
+public final class ObserverStatistics implements ObserverMetrics {
+
+    private final ObserverDescriptor observer;
+    private final AtomicLong errorCount = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    ObserverStatistics(ObserverDescriptor observer) {
+        this.observer = observer;
+    }
+
+    @Override
+    public void recordInvocation(long durationNanos, boolean failed) {
+        latency.record(durationNanos);
+        if (failed) {
+            errorCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void recordQueueWait(long queueWaitNanos) {
+        queueWait.record(queueWaitNanos);
+    }
+
+    /**
+     * Gets the observer
+     */
+    public ObserverDescriptor getObserver() {
+        return observer;
+    }
+
+    /**
+     * Gets the number of calls of the observer method, including the failed ones. For observers taking lists of
+     * events, it's the number of delivered lists.
+     */
+    public long getInvocationCount() {
+        return latency.getCount();
+    }
+
+    /**
+     * Gets the number of calls of the observer method which have thrown an exception
+     */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * Gets the histogram of the durations of the calls of the observer method, in nanoseconds
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Gets the histogram of the time, in nanoseconds, spent by the events in the queue of an asynchronous observer,
+     * or in the transactional buffer of an after commit or after rollback observer. It stays empty for the synchronous
+     * in-progress observers, and for the observers taking lists of events.
+     */
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * Resets the statistics
+     */
+    public void reset() {
+        errorCount.set(0L);
+        latency.reset();
+        queueWait.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d invocations, %d errors, mean %.0f ns, p99 %d ns, max %d ns",
+                             observer.getName(),
+                             getInvocationCount(),
+                             getErrorCount(),
+                             latency.getMean(),
+                             latency.getValueAtPercentile(99.0),
+                             latency.getMax());
+    }
+}
@@ -0,0 +1,121 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Snapshot of a registered observer and of its statistics, exposed by the {@link EventRegistry}
+ * @author JB Nizet
+ */
+public final class ObserverSummary {
+    private final ObserverDescriptor observer;
+    private final long invocationCount;
+    private final long errorCount;
+    private final double throughput;
+    private final double meanLatencyNanos;
+    private final long p99LatencyNanos;
+    private final long maxLatencyNanos;
+    private final double meanQueueWaitNanos;
+    private final long p99QueueWaitNanos;
+
+    ObserverSummary(ObserverDescriptor observer, ObserverStatistics statistics, long recordingNanos) {
+        this.observer = observer;
+        if (statistics == null) {
+            this.invocationCount = 0L;
+            this.errorCount = 0L;
+            this.throughput = Double.NaN;
+            this.meanLatencyNanos = Double.NaN;
+            this.p99LatencyNanos = 0L;
+            this.maxLatencyNanos = 0L;
+            this.meanQueueWaitNanos = Double.NaN;
+            this.p99QueueWaitNanos = 0L;
+        }
+        else {
+            this.invocationCount = statistics.getInvocationCount();
+            this.errorCount = statistics.getErrorCount();
+            this.throughput = recordingNanos <= 0L ? Double.NaN : invocationCount * 1.0E9 / recordingNanos;
+            this.meanLatencyNanos = statistics.getLatency().getMean();
+            this.p99LatencyNanos = statistics.getLatency().getValueAtPercentile(99.0);
+            this.maxLatencyNanos = statistics.getLatency().getMax();
+            this.meanQueueWaitNanos = statistics.getQueueWait().getMean();
+            this.p99QueueWaitNanos = statistics.getQueueWait().getValueAtPercentile(99.0);
+        }
+    }
+
+    /**
+     * Gets the name of the observer, made of the bean name, the method name and the type of its parameter
+     */
+    public String getName() {
+        return observer.getName();
+    }
+
+    public String getBeanName() {
+        return observer.getBeanName();
+    }
+
+    public String getMethodName() {
+        return observer.getMethod().getName();
+    }
+
+    /**
+     * Gets the name of the observed event type
+     */
+    public String getEventType() {
+        return observer.getEventType().getName();
+    }
+
+    /**
+     * Gets the name of the {@link EventMoment} when the observer is called
+     */
+    public String getMoment() {
+        return observer.getMoment().name();
+    }
+
+    public boolean isAsync() {
+        return observer.isAsync();
+    }
+
+    public int getOrder() {
+        return observer.getOrder();
+    }
+
+    public long getInvocationCount() {
+        return invocationCount;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Gets the mean number of invocations per second since the statistics have been reset
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public double getMeanLatencyNanos() {
+        return meanLatencyNanos;
+    }
+
+    public long getP99LatencyNanos() {
+        return p99LatencyNanos;
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    /**
+     * Gets the mean time spent by the events in the queue or in the transactional buffer before being delivered
+     */
+    public double getMeanQueueWaitNanos() {
+        return meanQueueWaitNanos;
+    }
+
+    public long getP99QueueWaitNanos() {
+        return p99QueueWaitNanos;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
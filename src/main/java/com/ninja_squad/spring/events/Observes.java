@@ -1,5 +1,7 @@
 package com.ninja_squad.spring.events;
 
+import org.springframework.core.Ordered;
+
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -11,10 +13,19 @@ import java.lang.annotation.Target;
  * event that is an instance of the method parameter is fired using{@link EventFirer#fire(Object)}.
  * Such a method typically returns void, but is not forced to. If it doesn't return void and is called by firing an
  * event, the returned value is ignored.<br>
- * The annotated method can be annotated with <code>@Async</code> as any other method, in which case firing the event
- * will not block the event firing thread.<br>
+ * The annotated method can be called asynchronously, so that firing the event doesn't block the event firing thread,
+ * by setting the <code>async</code> attribute to true. The event is then directly submitted to an executor, without
+ * going through any proxy. The annotated method can also be annotated with <code>@Async</code> as any other method.
+ * <br>
  * If the annotated method throws an exception and the method is not called asynchronously, the exception won't be
- * caught and will thus have the same effect as if the method has been called directly.
+ * caught and will thus have the same effect as if the method has been called directly.<br>
+ * The parameter of the annotated method can also be a <code>List&lt;E&gt;</code> or a <code>Collection&lt;E&gt;</code>,
+ * in which case the method is called with batches of events of type E: all the events fired at once using
+ * {@link BatchEventFirer#fireAll(Iterable)} for synchronous observers, all the events of the transaction for observers
+ * called after the transaction is committed or rollbacked, and batches bounded by <code>maxBatchSize</code> and
+ * <code>maxBatchDelay</code> for asynchronous observers, or by the time windows of debounced or throttled observers.
+ * The type E must be specified: a raw list, or a list of unbounded wildcards, makes the application context fail to
+ * start.
  * @author JB Nizet
  */
 @Target(ElementType.METHOD)
@@ -25,4 +36,145 @@ public @interface Observes {
      * Tells when the annotated method should be called. By default, it's called when the event is fired
      */
     EventMoment when() default EventMoment.IN_PROGRESS;
+
+    /**
+     * Tells if the annotated method must be called asynchronously, by an executor. If the method is called after the
+     * transaction is committed or rollbacked, the event is handed off to the executor only at this moment. By
+     * default, the method is called synchronously.
+     */
+    boolean async() default false;
+
+    /**
+     * The name of the bean, of type {@link java.util.concurrent.Executor}, used to call the annotated method when it
+     * must be called asynchronously. If empty (the default), the default executor of the
+     * {@link EventObserverBeanPostProcessor} is used. If the bean is a {@link RingBufferEventDispatcher}, the events
+     * are published to its ring buffer.
+     * @see EventObserverBeanPostProcessor#setDefaultExecutor(java.util.concurrent.Executor)
+     */
+    String executor() default "";
+
+    /**
+     * The name of a readable property, or of a method without argument, of the observed event type, used to
+     * partition asynchronous deliveries. If not empty, the events having the same key are delivered one at a time, in
+     * the order they have been fired, whereas events having different keys can be delivered in parallel. Partitioning
+     * requires the <code>async</code> attribute to be true. By default, events are not partitioned.
+     */
+    String partitionKey() default "";
+
+    /**
+     * The number of serial lanes onto which the keys of a partitioned observer are hashed. This bounds the number of
+     * events delivered in parallel to the observer. If 0 (the default), the number of available processors is used.
+     */
+    int partitions() default 0;
+
+    /**
+     * The capacity of the queue of events waiting to be delivered to an asynchronous observer (of each partition, for
+     * a partitioned observer). If 0 (the default), the queue is unbounded, and the events are directly submitted to
+     * the executor, unless the observer is partitioned or has a maximum concurrency. Using a bounded queue requires the
+     * <code>async</code> attribute to be true.
+     */
+    int queueCapacity() default 0;
+
+    /**
+     * The policy applied when the bounded queue of an asynchronous observer is full. Blocks the firing thread by
+     * default.
+     */
+    OverflowPolicy overflow() default OverflowPolicy.BLOCK;
+
+    /**
+     * The maximum number of events delivered concurrently to an asynchronous observer which isn't partitioned. If 0
+     * (the default), the events of a bounded queue are delivered one at a time, and the events of an observer without
+     * bounded queue are directly submitted to the executor, without any limit. The concurrency of partitioned
+     * observers is limited by their number of partitions instead.
+     */
+    int maxConcurrency() default 0;
+
+    /**
+     * The maximum number of events delivered at once to an asynchronous observer taking a list of events
+     */
+    int maxBatchSize() default 100;
+
+    /**
+     * The maximum delay, in milliseconds, between the moment an event is fired and the moment it's handed off to the
+     * executor, for an asynchronous observer taking a list of events
+     */
+    long maxBatchDelay() default 100L;
+
+    /**
+     * Tells if the annotated method can be called in parallel with the other parallel observers of the fired event.
+     * When an event has several parallel observers, they're called concurrently by a fork-join pool, the firing thread
+     * participating, and firing the event waits for all of them to complete. The other observers of the event are
+     * still called one after the other by the firing thread, so observers which depend on the state of the current
+     * thread, like the current transaction, must not be parallel. If several parallel observers throw an exception,
+     * the first one is rethrown, with the others added as suppressed exceptions.<br>
+     * Only synchronous observers called in progress can be parallel. By default, observers are not parallel.
+     * @see EventObserverBeanPostProcessor#setParallelPool(java.util.concurrent.ForkJoinPool)
+     */
+    boolean parallel() default false;
+
+    /**
+     * The order of the annotated method among the observers of a fired event: the observers having the lowest order
+     * are called first, and observers having the same order are called in the order of their names. If not specified,
+     * the order of the <code>@Order</code> annotation of the method or of the bean class, or the order of the bean if
+     * it implements {@link Ordered}, is used instead.<br>
+     * For asynchronous observers using a {@link PriorityEventExecutor}, the order is also the priority of the
+     * deliveries: waiting events of the observers having the lowest order are delivered first.
+     */
+    int order() default Ordered.LOWEST_PRECEDENCE;
+
+    /**
+     * The condition that an event must satisfy to be delivered to the annotated method. It's either a SpEL expression,
+     * evaluated with the event as root object (for example <code>relevant and amount &gt; 1000</code>), or a reference
+     * to a bean implementing {@link com.google.common.base.Predicate}, of the form <code>@beanName</code>. The
+     * expression is compiled to bytecode once it has been evaluated for the first time.<br>
+     * The condition is checked when the event is fired, before the event is deferred until the end of the transaction
+     * or handed off to an executor, so that rejected events cost nothing more than the check. For observers taking
+     * lists of events, the condition is checked for each event. Invalid expressions make the application context fail
+     * to start. By default, all the events are delivered.
+     */
+    String condition() default "";
+
+    /**
+     * Tells if the events delivered to the annotated method must be journaled, so that they're delivered even if the
+     * JVM stops after the transaction is committed, but before the method has been called. The events are then
+     * appended to the {@link EventJournal} before the transaction is committed, and acknowledged once the method has
+     * been called successfully. The events which haven't been acknowledged are delivered again when the application
+     * context starts, so the method must tolerate being called several times with the same event.<br>
+     * Only observers called after commit, taking a single event, and whose overflow policy doesn't drop events, can be
+     * durable. The events must be serializable,
+     * and an {@link EventJournal} bean must exist. By default, observers are not durable.
+     */
+    boolean durable() default false;
+
+    /**
+     * The quiet period, in milliseconds, of the debounced deliveries to an asynchronous observer. If greater than 0,
+     * the events are buffered, and the annotated method is called once no event has been fired during the quiet
+     * period, with the latest buffered event, or with all of them if it takes a list of events. This is useful for
+     * observers which only need the latest state, like an observer recomputing totals when any invoice changes.
+     * Debouncing requires the <code>async</code> attribute to be true, and can't be combined with throttling. By
+     * default, events are not debounced.
+     */
+    long debounce() default 0L;
+
+    /**
+     * The maximum delay, in milliseconds, between the first event buffered by a debounced observer and the call of the
+     * annotated method, so that a continuous stream of events doesn't delay the call forever. If 0 (the default), the
+     * delay is unbounded.
+     */
+    long maxWait() default 0L;
+
+    /**
+     * The minimum interval, in milliseconds, between two calls of an asynchronous observer. If greater than 0, the
+     * first event is delivered immediately, and the events fired during the following interval are buffered and
+     * delivered at its end: the latest one, or all of them if the annotated method takes a list of events. Throttling
+     * requires the <code>async</code> attribute to be true. By default, events are not throttled.
+     */
+    long throttle() default 0L;
+
+    /**
+     * The name of a readable property, or of a method without argument, of the observed event type, used to buffer
+     * the events of a debounced or throttled observer in separate windows: the annotated method is then called once
+     * per window and per key. By default, all the events share the same window.
+     */
+    String windowKey() default "";
 }
@@ -0,0 +1,34 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * The policy applied when an event is delivered to an asynchronous observer whose bounded queue is full.
+ * @author JB Nizet
+ * @see Observes#queueCapacity()
+ */
+public enum OverflowPolicy {
+    /**
+     * Indicates that the firing thread must block until there is room in the queue
+     */
+    BLOCK,
+
+    /**
+     * Indicates that the observing method must be called synchronously, by the firing thread. Note that this breaks
+     * the ordering guarantee of partitioned observers.
+     */
+    CALLER_RUNS,
+
+    /**
+     * Indicates that the oldest event of the queue must be dropped to make room for the new one
+     */
+    DROP_OLDEST,
+
+    /**
+     * Indicates that the new event must be dropped
+     */
+    DROP_NEWEST,
+
+    /**
+     * Indicates that a {@link java.util.concurrent.RejectedExecutionException} must be thrown to the firing thread
+     */
+    FAIL;
+}
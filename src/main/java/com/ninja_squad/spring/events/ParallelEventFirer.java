@@ -0,0 +1,104 @@
+package com.ninja_squad.spring.events;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Firer grouping the parallel observers of a concrete event class. All the firers but the first one are submitted to
+ * a fork-join pool, the first one is called by the firing thread, and all the submitted firers are then joined, so
+ * that firing an event takes about as long as the slowest of its parallel observers. When the event is fired from a
+ * thread of the pool, the firers are forked, and the firing thread helps executing them while joining them. Otherwise,
+ * they're executed by the threads of the pool only, and the firing thread just waits for them once it has called the
+ * first firer.<br>
+ * The exceptions thrown by the firers are collected: the first one is rethrown once all the firers are done, with the
+ * other ones added as suppressed exceptions.
+ * @author JB Nizet
+ */
+class ParallelEventFirer extends AbstractEventFirer {
+
+    private final EventFirer[] firers;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a firer
+     * @param firers the firers to call in parallel. There must be at least two of them.
+     * @param pool the pool used to call them
+     */
+    public ParallelEventFirer(EventFirer[] firers, ForkJoinPool pool) {
+        this.firers = firers;
+        this.pool = pool;
+    }
+
+    @Override
+    public void fire(Object event) {
+        boolean inPool = ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool;
+        FirerTask[] tasks = new FirerTask[firers.length - 1];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new FirerTask(firers[i + 1], event);
+            if (inPool) {
+                tasks[i].fork();
+            }
+            else {
+                pool.execute(tasks[i]);
+            }
+        }
+
+        Throwable failure = null;
+        try {
+            firers[0].fire(event);
+        }
+        catch (Throwable e) {
+            failure = e;
+        }
+
+        for (FirerTask task : tasks) {
+            task.join();
+            if (task.failure != null) {
+                if (failure == null) {
+                    failure = task.failure;
+                }
+                else {
+                    failure.addSuppressed(task.failure);
+                }
+            }
+        }
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new UndeclaredThrowableException(failure);
+        }
+    }
+
+    /**
+     * Task calling a firer, and keeping the exception it throws rather than letting the pool wrap it
+     */
+    private static final class FirerTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final EventFirer firer;
+        private final Object event;
+        private Throwable failure;
+
+        public FirerTask(EventFirer firer, Object event) {
+            this.firer = firer;
+            this.event = event;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                firer.fire(event);
+            }
+            catch (Throwable e) {
+                failure = e;
+            }
+        }
+    }
+}
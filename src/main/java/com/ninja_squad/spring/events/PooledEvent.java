@@ -0,0 +1,158 @@
+package com.ninja_squad.spring.events;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Base class of the events which can be reused rather than allocated every time they're fired, in order to avoid
+ * producing garbage when firing events at a high rate. A pooled event is obtained from
+ * {@link EventObserverBeanPostProcessor#acquire(Class)}, initialized, and fired:
+ * <pre>
+ *     PriceTick tick = eventFirer.acquire(PriceTick.class);
+ *     tick.init(symbol, price);
+ *     eventFirer.fire(tick);
+ * </pre>
+ * Firing the event hands it over to the library: it must not be used by the caller anymore, nor fired twice. The
+ * event goes back to its pool, and is {@link #reset() reset}, once all the synchronous observers have returned, and
+ * once the last asynchronous or deferred observer it has been handed off to has been called. This is tracked using
+ * reference counting: every component keeping the event beyond the call of <code>fire()</code> retains it, and
+ * releases it once done. An observer which needs to keep the event after having returned must thus do the same, using
+ * {@link #retain()} and {@link #release()}. Note that observers made asynchronous by Spring's <code>@Async</code>
+ * rather than by {@link Observes#async()} are in this situation.<br>
+ * An event dropped by the bounded queue of an asynchronous observer is released, since the observer will never be
+ * called with it. An event which is never released, for example because an observer has retained it without
+ * releasing it, is simply garbage collected, and replaced by a new instance in the pool.<br>
+ * Setting the Spring property <code>spring.events.pool.debug</code> to true enables a debug mode, in which released
+ * events are never reused, but marked as released, along with the stack trace of their release. Subclasses should call
+ * {@link #checkInUse()} in their accessors, so that observers wrongly retaining pooled events fail fast in this mode.
+ * <br>
+ * The state of this class is transient, and is thus neither serialized nor encoded for the other nodes.
+ * @author JB Nizet
+ */
+public abstract class PooledEvent {
+
+    private static final AtomicIntegerFieldUpdater<PooledEvent> REFERENCES =
+        AtomicIntegerFieldUpdater.newUpdater(PooledEvent.class, "references");
+
+    /**
+     * The number of references to the event, or 0 if it's in its pool
+     */
+    private transient volatile int references;
+
+    /**
+     * The pool of the event, or null if it has been created directly, in which case it's not reference counted
+     */
+    private transient EventPool pool;
+
+    /**
+     * The thread which has acquired the event from its pool
+     */
+    private transient Thread owner;
+
+    /**
+     * In debug mode, the stack trace of the release of the event, once released
+     */
+    private transient volatile Throwable releaseTrace;
+
+    /**
+     * Resets the state of the event before it goes back to its pool, so that it doesn't retain any object
+     */
+    protected abstract void reset();
+
+    /**
+     * Adds a reference to the event, which won't go back to its pool until {@link #release()} is called
+     * @throws IllegalStateException if the event has already gone back to its pool
+     */
+    public final void retain() {
+        if (pool != null) {
+            int previous = REFERENCES.getAndIncrement(this);
+            if (previous <= 0) {
+                REFERENCES.getAndDecrement(this);
+                throw new IllegalStateException("The pooled event " + getClass().getName()
+                                                    + " can't be retained: it has already been released", releaseTrace);
+            }
+        }
+    }
+
+    /**
+     * Removes a reference to the event. If it was the last one, the event goes back to its pool.
+     * @throws IllegalStateException if the event has been released more times than retained
+     */
+    public final void release() {
+        if (pool != null) {
+            int remaining = REFERENCES.decrementAndGet(this);
+            if (remaining == 0) {
+                pool.recycle(this);
+            }
+            else if (remaining < 0) {
+                REFERENCES.getAndIncrement(this);
+                throw new IllegalStateException("The pooled event " + getClass().getName()
+                                                    + " has been released more times than retained", releaseTrace);
+            }
+        }
+    }
+
+    /**
+     * Checks that the event hasn't gone back to its pool. This only detects misuses in debug mode, and should be
+     * called by the accessors of the subclasses.
+     * @throws IllegalStateException if the event has been released to its pool, which means that it's used by a
+     * component, typically an observer, which has kept it without retaining it. The cause of the exception is the
+     * stack trace of the release.
+     */
+    protected final void checkInUse() {
+        Throwable trace = releaseTrace;
+        if (trace != null) {
+            throw new IllegalStateException("The pooled event " + getClass().getName() + " is used after having been "
+                                                + "released to its pool. It has probably been kept by an observer "
+                                                + "without being retained.",
+                                            trace);
+        }
+    }
+
+    /**
+     * Called by the pool when the event is created
+     */
+    final void attach(EventPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Called by the pool when the event is handed out, with a single reference, owned by the caller
+     */
+    final void acquired(Thread owner) {
+        this.owner = owner;
+        // the event isn't shared yet, so no fence is needed: handing it off to another thread publishes it
+        REFERENCES.lazySet(this, 1);
+    }
+
+    final Thread getOwner() {
+        return owner;
+    }
+
+    /**
+     * Called by the pool, in debug mode, instead of reusing the released event
+     */
+    final void markReleased(Throwable trace) {
+        this.releaseTrace = trace;
+    }
+
+    /**
+     * Retains the given event, wrapped or not, if it's a pooled event. Used when handing an event off to another
+     * thread, or to a transactional buffer.
+     */
+    static void retainIfPooled(Object event) {
+        Object actualEvent = TimestampedEvent.unwrap(JournaledEvent.unwrap(event));
+        if (actualEvent instanceof PooledEvent) {
+            ((PooledEvent) actualEvent).retain();
+        }
+    }
+
+    /**
+     * Releases the given event, wrapped or not, if it's a pooled event
+     */
+    static void releaseIfPooled(Object event) {
+        Object actualEvent = TimestampedEvent.unwrap(JournaledEvent.unwrap(event));
+        if (actualEvent instanceof PooledEvent) {
+            ((PooledEvent) actualEvent).release();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor giving precedence to the asynchronous observers having the lowest order. Its waiting tasks are kept in a
+ * priority queue rather than in a FIFO queue, so that urgent observers are not stuck behind a backlog of bulk work:
+ * whenever a thread is free, it calls the waiting observer having the lowest order, and the observers having the same
+ * order are called in the order their events have been fired.<br>
+ * To use it, declare a bean of this type, and reference it by name in the <code>executor</code> attribute of the
+ * <code>@Observes</code> annotation of asynchronous observers:
+ * <pre>
+ *     &#64;Bean
+ *     public PriorityEventExecutor priorityExecutor() {
+ *         return new PriorityEventExecutor(4, "priority-events-");
+ *     }
+ *
+ *     &#64;Observes(async = true, executor = "priorityExecutor", order = 0)
+ *     public void alert(OrderPlaced event) { ... }
+ *
+ *     &#64;Observes(async = true, executor = "priorityExecutor", order = 100)
+ *     public void index(OrderPlaced event) { ... }
+ * </pre>
+ * Tasks submitted to this executor directly, rather than on behalf of an observer, have the lowest priority.
+ * @author JB Nizet
+ */
+public class PriorityEventExecutor implements Executor, DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Creates an executor
+     * @param threadCount the number of threads calling the observers
+     * @param threadNamePrefix the prefix of the names of the threads
+     */
+    public PriorityEventExecutor(int threadCount, String threadNamePrefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(threadCount,
+                                               threadCount,
+                                               0L,
+                                               TimeUnit.MILLISECONDS,
+                                               new PriorityBlockingQueue<Runnable>(),
+                                               threadFactory);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        execute(command, Ordered.LOWEST_PRECEDENCE);
+    }
+
+    /**
+     * Executes the given task with the given priority. The lower the value, the higher the priority.
+     */
+    public void execute(Runnable command, int order) {
+        executor.execute(new PrioritizedTask(command, order, sequence.getAndIncrement()));
+    }
+
+    /**
+     * Returns an executor submitting all its tasks to this executor with the given priority
+     */
+    public Executor withPriority(final int order) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                PriorityEventExecutor.this.execute(command, order);
+            }
+        };
+    }
+
+    /**
+     * Gets the number of tasks waiting for a free thread
+     */
+    public int getBacklog() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops accepting tasks, and waits for the waiting tasks to complete
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Task ordered by priority first, and by submission order then
+     */
+    private static final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final Runnable command;
+        private final int order;
+        private final long sequence;
+
+        public PrioritizedTask(Runnable command, int order, long sequence) {
+            this.command = command;
+            this.order = order;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            command.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask o) {
+            if (order != o.order) {
+                return order < o.order ? -1 : 1;
+            }
+            return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * Invoker which calls an observing method using reflection. Used as a fallback when a method handle can't be
+ * created for the method.
+ * @author JB Nizet
+ */
+class ReflectiveObserverInvoker implements ObserverInvoker {
+
+    private final Object bean;
+    private final Method method;
+
+    public ReflectiveObserverInvoker(Object bean, Method method) {
+        this.bean = bean;
+        this.method = method;
+    }
+
+    @Override
+    public void invoke(Object event) {
+        ReflectionUtils.invokeMethod(method, bean, event);
+    }
+}
@@ -0,0 +1,41 @@
+package com.ninja_squad.spring.events;
+
+import java.util.List;
+
+/**
+ * Invoker releasing the {@link PooledEvent}s retained by a {@link RetainingObserverInvoker}, once the observer has
+ * been called by the asynchronous invoker.
+ * @author JB Nizet
+ */
+class ReleasingObserverInvoker implements ObserverInvoker {
+
+    private final ObserverInvoker delegate;
+    private final boolean batch;
+
+    /**
+     * Creates an invoker
+     * @param delegate the invoker of the observer
+     * @param batch true if the observer takes lists of events, in which case each event of the list is released
+     */
+    public ReleasingObserverInvoker(ObserverInvoker delegate, boolean batch) {
+        this.delegate = delegate;
+        this.batch = batch;
+    }
+
+    @Override
+    public void invoke(Object event) {
+        try {
+            delegate.invoke(event);
+        }
+        finally {
+            if (batch) {
+                for (Object element : (List<?>) event) {
+                    PooledEvent.releaseIfPooled(element);
+                }
+            }
+            else {
+                PooledEvent.releaseIfPooled(event);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.ninja_squad.spring.events;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the {@link Distributed} events to the other nodes through the transport, and fires the events received from
+ * them. The events to send are queued, and a sender thread encodes all the queued events, up to a maximum, into a
+ * single message, so that the firing threads never wait for the network, and so that the events of a transaction, or
+ * fired in a burst, are sent at once. The queue is bounded: when the events are fired faster than they can be sent,
+ * the events which don't fit in the queue are dropped, like the events sent to an unreachable node.<br>
+ * This class is the invoker used to defer the events fired in a transaction until it's committed: all the events of
+ * the transaction are then queued at once.
+ * @author JB Nizet
+ */
+class RemoteEventDispatcher implements BatchInvoker, EventTransport.Receiver {
+
+    private static final Log logger = LogFactory.getLog(RemoteEventDispatcher.class);
+
+    /**
+     * Fires received events to the local observers only
+     */
+    interface LocalFirer {
+        void fireReceived(Object event);
+    }
+
+    /**
+     * The default maximum number of events waiting to be sent
+     */
+    private static final int DEFAULT_QUEUE_CAPACITY = 100000;
+
+    private static final int MAX_EVENTS_PER_MESSAGE = 1000;
+    private static final long POLL_TIMEOUT_MILLIS = 100L;
+
+    private final EventTransport transport;
+    private final EventCodec codec;
+    private final LocalFirer localFirer;
+    private final int queueCapacity;
+    private final BlockingQueue<Object> queue;
+    private final Thread senderThread;
+    private volatile boolean running = true;
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * True once an event has been dropped, until an event is queued again. Used to only log the first dropped event.
+     */
+    private volatile boolean overflowing;
+
+    public RemoteEventDispatcher(EventTransport transport, EventCodec codec, LocalFirer localFirer) {
+        this(transport, codec, localFirer, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates a dispatcher
+     * @param queueCapacity the maximum number of events waiting to be sent
+     */
+    public RemoteEventDispatcher(EventTransport transport, EventCodec codec, LocalFirer localFirer, int queueCapacity) {
+        this.transport = transport;
+        this.codec = codec;
+        this.localFirer = localFirer;
+        this.queueCapacity = queueCapacity;
+        this.queue = new LinkedBlockingQueue<Object>(queueCapacity);
+        this.senderThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sendQueuedEvents();
+            }
+        }, "spring-events-sender");
+        senderThread.setDaemon(true);
+    }
+
+    /**
+     * Starts the transport and the sender thread
+     */
+    public void start() {
+        transport.start(this);
+        senderThread.start();
+    }
+
+    /**
+     * Sends the events already queued, and stops the sender thread and the transport
+     */
+    public void stop() throws InterruptedException {
+        // the sender thread isn't interrupted, since interrupting a thread writing to a channel closes the channel
+        running = false;
+        senderThread.join(TimeUnit.SECONDS.toMillis(10L));
+        transport.stop();
+    }
+
+    @Override
+    public void invoke(Object event) {
+        // pooled events are only released once encoded by the sender thread
+        PooledEvent.retainIfPooled(event);
+        if (queue.offer(event)) {
+            overflowing = false;
+        }
+        else {
+            drop(event);
+        }
+    }
+
+    @Override
+    public void invokeAll(List<Object> events) {
+        for (Object event : events) {
+            invoke(event);
+        }
+    }
+
+    /**
+     * Gets the number of events which have been dropped because the queue was full
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void drop(Object event) {
+        PooledEvent.releaseIfPooled(event);
+        droppedCount.incrementAndGet();
+        if (!overflowing) {
+            overflowing = true;
+            logger.warn("The queue of the distributed events to send is full (capacity: " + queueCapacity
+                            + "). The events are dropped until it has room again.");
+        }
+    }
+
+    @Override
+    public void receive(byte[] message) {
+        List<Object> events;
+        try {
+            events = codec.decode(message);
+        }
+        catch (Throwable e) {
+            logger.error("Unable to decode a received message. It is ignored.", e);
+            return;
+        }
+        for (Object event : events) {
+            try {
+                localFirer.fireReceived(event);
+            }
+            catch (Throwable e) {
+                logger.error("Observer called with a received event threw exception", e);
+            }
+        }
+    }
+
+    private void sendQueuedEvents() {
+        List<Object> batch = new ArrayList<Object>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Object event = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    continue;
+                }
+                batch.add(event);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, MAX_EVENTS_PER_MESSAGE - 1);
+            try {
+                transport.send(codec.encode(batch));
+            }
+            catch (RuntimeException e) {
+                logger.error("Unable to send " + batch.size() + " distributed event(s). They are lost.", e);
+            }
+            for (Object sentEvent : batch) {
+                PooledEvent.releaseIfPooled(sentEvent);
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Firer added to the firers of the {@link Distributed} event classes, which sends the events to the other nodes. The
+ * events fired in a transaction are deferred until the transaction is committed.
+ * @author JB Nizet
+ */
+class RemoteEventFirer extends AbstractEventFirer {
+
+    private final RemoteEventDispatcher dispatcher;
+
+    public RemoteEventFirer(RemoteEventDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public void fire(Object event) {
+        TransactionalEventBuffer buffer = TransactionalEventBuffer.current();
+        if (buffer != null) {
+            // the dispatcher is a batch invoker: all the events of the transaction are sent at once
+            buffer.addAfterCommit(dispatcher, event);
+        }
+        else {
+            dispatcher.invoke(event);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.core.ResolvableType;
+
+/**
+ * Interface which can be implemented by generic events whose type arguments can't be resolved from their class, in
+ * order to be delivered only to the observers of the matching parameterized type. For example, an instance of
+ * <code>EntityChanged&lt;T&gt;</code> can return <code>ResolvableType.forClassWithGenerics(EntityChanged.class,
+ * entityClass)</code>, where <code>entityClass</code> is the payload type hint passed at construction, and is then
+ * only delivered to the observers of <code>EntityChanged&lt;Invoice&gt;</code> if its entity class is Invoice.<br>
+ * Events which don't implement this interface are matched using the type arguments resolved from their class (for
+ * example, an instance of <code>InvoiceChanged extends EntityChanged&lt;Invoice&gt;</code> is an
+ * <code>EntityChanged&lt;Invoice&gt;</code>), or by their raw class if their type arguments can't be resolved.
+ * @author JB Nizet
+ */
+public interface ResolvableEvent {
+    /**
+     * Gets the type of this event, including its type arguments
+     */
+    ResolvableType getResolvableType();
+}
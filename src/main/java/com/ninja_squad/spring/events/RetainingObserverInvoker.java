@@ -0,0 +1,76 @@
+package com.ninja_squad.spring.events;
+
+import java.util.List;
+
+/**
+ * Invoker retaining the {@link PooledEvent}s before handing them off to an asynchronous invoker, so that they don't go
+ * back to their pool before the observer has been called. The events are released by a
+ * {@link ReleasingObserverInvoker}, placed after the asynchronous invoker in the invoker chain. It's only used for
+ * asynchronous observers of event types which can be pooled.
+ * @author JB Nizet
+ */
+class RetainingObserverInvoker implements ObserverInvoker {
+
+    private final ObserverInvoker delegate;
+
+    /**
+     * Creates an invoker retaining the events handed off to the given asynchronous invoker. If the delegate is a
+     * batch invoker, the returned invoker is also one.
+     */
+    public static ObserverInvoker create(ObserverInvoker delegate) {
+        if (delegate instanceof BatchInvoker) {
+            return new Batch((BatchInvoker) delegate);
+        }
+        return new RetainingObserverInvoker(delegate);
+    }
+
+    private RetainingObserverInvoker(ObserverInvoker delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void invoke(Object event) {
+        PooledEvent.retainIfPooled(event);
+        boolean handedOff = false;
+        try {
+            delegate.invoke(event);
+            handedOff = true;
+        }
+        finally {
+            if (!handedOff) {
+                PooledEvent.releaseIfPooled(event);
+            }
+        }
+    }
+
+    /**
+     * Retaining invoker of an asynchronous observer taking lists of events
+     */
+    private static final class Batch extends RetainingObserverInvoker implements BatchInvoker {
+        private final BatchInvoker batchDelegate;
+
+        Batch(BatchInvoker delegate) {
+            super(delegate);
+            this.batchDelegate = delegate;
+        }
+
+        @Override
+        public void invokeAll(List<Object> events) {
+            for (Object event : events) {
+                PooledEvent.retainIfPooled(event);
+            }
+            boolean handedOff = false;
+            try {
+                batchDelegate.invokeAll(events);
+                handedOff = true;
+            }
+            finally {
+                if (!handedOff) {
+                    for (Object event : events) {
+                        PooledEvent.releaseIfPooled(event);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Dispatcher delivering events to a group of asynchronous observers through a preallocated ring buffer, in the
+ * spirit of the LMAX disruptor. It's meant for high-volume events, for which the cost of a task object and of a queue
+ * node per event and observer, as with a regular executor, is too high.<br>
+ * To use it, declare a bean of this type, and reference it by name in the <code>executor</code> attribute of the
+ * <code>@Observes</code> annotation of asynchronous observers:
+ * <pre>
+ *     &#64;Bean
+ *     public RingBufferEventDispatcher telemetryDispatcher() {
+ *         return new RingBufferEventDispatcher(4096, ProducerType.MULTI, WaitStrategy.YIELDING, "telemetry");
+ *     }
+ *
+ *     &#64;Observes(async = true, executor = "telemetryDispatcher")
+ *     public void record(TelemetryEvent event) { ... }
+ * </pre>
+ * All the observers using a given dispatcher form a group, served by a single consumer thread. This thread delivers
+ * the events in the order they have been published, and processes all the available events as a batch before
+ * publishing its progress. When the ring buffer is full, the publishing threads wait for the consumer to free a slot,
+ * and are rejected if the dispatcher is shut down meanwhile. Events published by the consumer thread itself, for
+ * example by an observer firing another event, can't wait for a slot, since only this thread frees them: they're
+ * delivered immediately, before the events waiting in the buffer.<br>
+ * This class also implements {@link Executor}, so that it can be used to run arbitrary tasks in the consumer thread,
+ * but these tasks don't benefit from the preallocation.
+ * @author JB Nizet
+ */
+public class RingBufferEventDispatcher implements Executor, DisposableBean {
+
+    /**
+     * Tells whether several threads can publish events concurrently
+     */
+    public enum ProducerType {
+        /**
+         * Indicates that a single thread publishes events. Claiming a slot is then cheaper, but publishing from several
+         * threads concurrently corrupts the buffer.
+         */
+        SINGLE,
+
+        /**
+         * Indicates that several threads can publish events concurrently
+         */
+        MULTI;
+    }
+
+    /**
+     * How the consumer thread waits for events when the ring buffer is empty
+     */
+    public enum WaitStrategy {
+        /**
+         * Indicates that the consumer thread must block on a condition, signalled by the publishers. This has the
+         * lowest CPU usage, but the highest latency.
+         */
+        BLOCKING,
+
+        /**
+         * Indicates that the consumer thread must spin, then yield, then sleep for short periods
+         */
+        SLEEPING,
+
+        /**
+         * Indicates that the consumer thread must spin, then yield. This has a low latency, but uses a core when idle.
+         */
+        YIELDING,
+
+        /**
+         * Indicates that the consumer thread must spin. This has the lowest latency, but always uses a full core.
+         */
+        BUSY_SPIN;
+    }
+
+    /**
+     * The invoker used to run the tasks submitted through the Executor interface
+     */
+    private static final ObserverInvoker RUNNABLE_INVOKER = new ObserverInvoker() {
+        @Override
+        public void invoke(Object event) {
+            ((Runnable) event).run();
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+
+    private final Entry[] entries;
+    private final int mask;
+    private final int indexShift;
+    private final ProducerType producerType;
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * For each slot, the round (sequence / buffer size) of the last published entry
+     */
+    private final AtomicIntegerArray publishedRounds;
+
+    /**
+     * The last claimed sequence, used by multiple producers
+     */
+    private final Sequence claimSequence = new Sequence();
+
+    /**
+     * The last claimed sequence, used by a single producer
+     */
+    private long singleProducerSequence = -1L;
+
+    /**
+     * The last sequence processed by the consumer
+     */
+    private final Sequence consumerSequence = new Sequence();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private volatile boolean consumerBlocked;
+
+    private final Thread consumerThread;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a dispatcher and starts its consumer thread
+     * @param bufferSize the size of the ring buffer, which must be a power of 2
+     * @param producerType whether one or several threads publish events
+     * @param waitStrategy how the consumer thread waits for events
+     * @param name the name of the dispatcher, used as the name of the consumer thread
+     */
+    public RingBufferEventDispatcher(int bufferSize, ProducerType producerType, WaitStrategy waitStrategy, String name) {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("The buffer size must be a power of 2");
+        }
+        this.entries = new Entry[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            entries[i] = new Entry();
+        }
+        this.mask = bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        this.producerType = producerType;
+        this.waitStrategy = waitStrategy;
+        this.publishedRounds = new AtomicIntegerArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            publishedRounds.set(i, -1);
+        }
+
+        this.consumerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                consume();
+            }
+        }, name);
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+    }
+
+    /**
+     * Publishes an event, which will be delivered by the consumer thread to the given invoker
+     */
+    void publish(ObserverInvoker invoker, Object event) {
+        if (!running) {
+            throw rejected();
+        }
+        if (Thread.currentThread() == consumerThread) {
+            // waiting for a free slot would deadlock, and the consumer isn't a producer of single-producer buffers
+            AsyncObserverInvoker.invokeDelegate(invoker, event);
+            return;
+        }
+        long sequence = claim();
+        Entry entry = entries[(int) sequence & mask];
+        entry.invoker = invoker;
+        entry.event = event;
+        publishedRounds.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+        if (consumerBlocked) {
+            signalConsumer();
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        publish(RUNNABLE_INVOKER, command);
+    }
+
+    private long claim() {
+        long sequence;
+        if (producerType == ProducerType.SINGLE) {
+            sequence = ++singleProducerSequence;
+        }
+        else {
+            sequence = claimSequence.incrementAndGet();
+        }
+        long wrapPoint = sequence - entries.length;
+        while (wrapPoint > consumerSequence.get()) {
+            // the buffer is full: wait for the consumer to free the slot, unless it's stopping
+            if (!running) {
+                throw rejected();
+            }
+            LockSupport.parkNanos(1L);
+        }
+        return sequence;
+    }
+
+    private RejectedExecutionException rejected() {
+        return new RejectedExecutionException("The dispatcher " + consumerThread.getName() + " has been shut down");
+    }
+
+    private boolean isPublished(long sequence) {
+        return publishedRounds.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    private void consume() {
+        long nextSequence = consumerSequence.get() + 1L;
+        int idleCount = 0;
+        while (running || isPublished(nextSequence)) {
+            if (!isPublished(nextSequence)) {
+                idleCount = waitForEvent(nextSequence, idleCount);
+                continue;
+            }
+            idleCount = 0;
+
+            // process all the available events as a batch, and publish the progress only once
+            long lastSequence = nextSequence;
+            while (isPublished(lastSequence + 1L) && lastSequence - nextSequence < mask) {
+                lastSequence++;
+            }
+            for (long sequence = nextSequence; sequence <= lastSequence; sequence++) {
+                Entry entry = entries[(int) sequence & mask];
+                ObserverInvoker invoker = entry.invoker;
+                Object event = entry.event;
+                entry.invoker = null;
+                entry.event = null;
+                AsyncObserverInvoker.invokeDelegate(invoker, event);
+            }
+            consumerSequence.lazySet(lastSequence);
+            nextSequence = lastSequence + 1L;
+        }
+    }
+
+    /**
+     * Waits for the event with the given sequence, according to the wait strategy
+     * @return the new idle count
+     */
+    private int waitForEvent(long sequence, int idleCount) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                return idleCount;
+            case YIELDING:
+                if (idleCount >= SPIN_TRIES) {
+                    Thread.yield();
+                }
+                return idleCount + 1;
+            case SLEEPING:
+                if (idleCount >= SPIN_TRIES + YIELD_TRIES) {
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100L));
+                }
+                else if (idleCount >= SPIN_TRIES) {
+                    Thread.yield();
+                }
+                return idleCount + 1;
+            case BLOCKING:
+                lock.lock();
+                try {
+                    consumerBlocked = true;
+                    if (running && !isPublished(sequence)) {
+                        // the timeout protects against a missed signal
+                        notEmpty.await(1L, TimeUnit.MILLISECONDS);
+                    }
+                }
+                catch (InterruptedException e) {
+                    // the dispatcher is being shut down
+                }
+                finally {
+                    consumerBlocked = false;
+                    lock.unlock();
+                }
+                return idleCount;
+            default:
+                throw new IllegalStateException("unhandled wait strategy: " + waitStrategy);
+        }
+    }
+
+    private void signalConsumer() {
+        lock.lock();
+        try {
+            notEmpty.signal();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting events, delivers the already published ones, and stops the consumer thread
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        signalConsumer();
+        consumerThread.join(TimeUnit.SECONDS.toMillis(10L));
+    }
+
+    /**
+     * Gets the number of events published but not consumed yet
+     */
+    public long getBacklog() {
+        long published = producerType == ProducerType.SINGLE ? singleProducerSequence : claimSequence.get();
+        return Math.max(0L, published - consumerSequence.get());
+    }
+
+    /**
+     * A preallocated slot of the ring buffer
+     */
+    private static final class Entry {
+        private ObserverInvoker invoker;
+        private Object event;
+    }
+
+    /**
+     * A sequence padded to avoid false sharing with the fields of other objects
+     */
+    @SuppressWarnings("unused")
+    private static final class Sequence {
+        private static final AtomicLongFieldUpdater<Sequence> UPDATER =
+            AtomicLongFieldUpdater.newUpdater(Sequence.class, "value");
+
+        private long p1, p2, p3, p4, p5, p6, p7;
+        private volatile long value = -1L;
+        private long p9, p10, p11, p12, p13, p14, p15;
+
+        long get() {
+            return value;
+        }
+
+        void lazySet(long newValue) {
+            UPDATER.lazySet(this, newValue);
+        }
+
+        long incrementAndGet() {
+            return UPDATER.incrementAndGet(this);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Invoker which publishes the event to a {@link RingBufferEventDispatcher}, whose consumer thread then calls the
+ * observing method. Unlike {@link AsyncObserverInvoker}, it doesn't allocate any task object.
+ * @author JB Nizet
+ */
+class RingBufferObserverInvoker implements ObserverInvoker {
+
+    private final ObserverInvoker delegate;
+    private final RingBufferEventDispatcher dispatcher;
+
+    public RingBufferObserverInvoker(ObserverInvoker delegate, RingBufferEventDispatcher dispatcher) {
+        this.delegate = delegate;
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public void invoke(Object event) {
+        dispatcher.publish(delegate, event);
+    }
+}
@@ -0,0 +1,321 @@
+package com.ninja_squad.spring.events;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport sending the messages to a fixed list of peers over TCP, using plain NIO, without any broker. Each node
+ * listens on a server socket for the messages of the other nodes, and opens a connection to each of its peers to send
+ * its own messages:
+ * <pre>
+ *     &#64;Bean
+ *     public TcpEventTransport eventTransport() {
+ *         return new TcpEventTransport(new InetSocketAddress("10.0.0.1", 7600),
+ *                                      Arrays.asList(new InetSocketAddress("10.0.0.2", 7600),
+ *                                                    new InetSocketAddress("10.0.0.3", 7600)));
+ *     }
+ * </pre>
+ * The server socket doesn't authenticate the nodes connecting to it, and fires the events they send: it must be bound
+ * to the address of a private network interface, reachable by the other nodes only, and not to the wildcard address.
+ * <br>
+ * Each message is sent as a frame made of its length and of its bytes. The received frames are read by a single
+ * thread, which also delivers them. A connection sending an invalid frame, or whose frame can't be delivered, is
+ * closed, without affecting the other ones. The connections to the peers are opened lazily, with a timeout, and
+ * opened again when a send fails. Once a connection has failed, the peer isn't connected again before a delay, which
+ * doubles at each consecutive failure, so that an unreachable peer doesn't slow down the sending to the other ones.
+ * The messages sent to a peer while it's unreachable are lost.
+ * @author JB Nizet
+ */
+public class TcpEventTransport implements EventTransport {
+
+    private static final Log logger = LogFactory.getLog(TcpEventTransport.class);
+
+    /**
+     * The maximum size of a received frame, used to protect against malformed frames: 64 MB
+     */
+    private static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final long MIN_RECONNECT_DELAY_MILLIS = 500L;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 30000L;
+
+    private final InetSocketAddress bindAddress;
+    private final List<Peer> peers;
+
+    private ServerSocketChannel serverChannel;
+    private Selector selector;
+    private Thread receiverThread;
+    private volatile boolean running;
+
+    /**
+     * Creates a transport
+     * @param bindAddress the address of the server socket receiving the messages of the other nodes. Its port can be
+     * 0, in which case an ephemeral port is chosen, available through {@link #getLocalAddress()} once started.
+     * @param peerAddresses the addresses of the server sockets of the other nodes
+     */
+    public TcpEventTransport(InetSocketAddress bindAddress, List<InetSocketAddress> peerAddresses) {
+        this.bindAddress = bindAddress;
+        List<Peer> peerList = new ArrayList<Peer>(peerAddresses.size());
+        for (InetSocketAddress peerAddress : peerAddresses) {
+            peerList.add(new Peer(peerAddress));
+        }
+        this.peers = Collections.unmodifiableList(peerList);
+    }
+
+    @Override
+    public void start(final Receiver receiver) {
+        if (bindAddress.getAddress() == null || bindAddress.getAddress().isAnyLocalAddress()) {
+            logger.warn("The TCP event transport listens on all the network interfaces, and doesn't authenticate the "
+                            + "nodes connecting to it. It should be bound to the address of a private interface.");
+        }
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.socket().bind(bindAddress);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Unable to listen on " + bindAddress, e);
+        }
+        running = true;
+        receiverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receive(receiver);
+            }
+        }, "spring-events-tcp-receiver");
+        receiverThread.setDaemon(true);
+        receiverThread.start();
+    }
+
+    /**
+     * Gets the address of the server socket, once started
+     */
+    public InetSocketAddress getLocalAddress() {
+        return (InetSocketAddress) serverChannel.socket().getLocalSocketAddress();
+    }
+
+    /**
+     * Sends the message to each peer. Connecting to a peer blocks at most 2 seconds, and a peer which can't be
+     * connected is skipped until its reconnection delay has elapsed.
+     */
+    @Override
+    public synchronized void send(byte[] message) {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        header.putInt(0, message.length);
+        for (Peer peer : peers) {
+            if (peer.channel == null && System.nanoTime() - peer.nextConnectionTime < 0L) {
+                continue;
+            }
+            try {
+                if (peer.channel == null) {
+                    peer.connect();
+                }
+                ByteBuffer[] frame = new ByteBuffer[] { header.duplicate(), ByteBuffer.wrap(message) };
+                while (frame[1].hasRemaining()) {
+                    peer.channel.write(frame);
+                }
+                peer.reconnectDelayMillis = 0L;
+            }
+            catch (IOException e) {
+                peer.fail();
+                logger.warn("Unable to send a message to " + peer.address + ". It is lost, as well as the messages "
+                                + "sent in the next " + peer.reconnectDelayMillis + " ms.", e);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (receiverThread != null) {
+            try {
+                receiverThread.join(TimeUnit.SECONDS.toMillis(10L));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            for (Peer peer : peers) {
+                peer.close();
+            }
+        }
+    }
+
+    private void receive(Receiver receiver) {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    }
+                    else if (key.isReadable()) {
+                        read(key, receiver);
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            logger.error("Unexpected exception thrown by the TCP event transport. It doesn't receive messages "
+                             + "anymore.", e);
+        }
+        finally {
+            closeAll();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new FrameReader());
+        }
+    }
+
+    private void read(SelectionKey key, Receiver receiver) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        try {
+            if (!((FrameReader) key.attachment()).read(channel, receiver)) {
+                key.cancel();
+                channel.close();
+            }
+        }
+        catch (Throwable e) {
+            // only this connection is closed, and the other ones are still read
+            logger.warn("Closing the connection from " + channel.socket().getRemoteSocketAddress(), e);
+            key.cancel();
+            closeQuietly(channel);
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            closeQuietly(key.channel());
+        }
+        closeQuietly(selector);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        }
+        catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * A peer, and the connection used to send messages to it. The connection and the reconnection delay are guarded
+     * by the transport.
+     */
+    private static final class Peer {
+        private final InetSocketAddress address;
+        private SocketChannel channel;
+        private long reconnectDelayMillis;
+        private long nextConnectionTime = System.nanoTime();
+
+        Peer(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        void connect() throws IOException {
+            SocketChannel newChannel = SocketChannel.open();
+            try {
+                newChannel.socket().setTcpNoDelay(true);
+                newChannel.socket().connect(address, CONNECT_TIMEOUT_MILLIS);
+            }
+            catch (IOException e) {
+                closeQuietly(newChannel);
+                throw e;
+            }
+            channel = newChannel;
+        }
+
+        /**
+         * Closes the connection, and delays the next connection
+         */
+        void fail() {
+            close();
+            // the delay is reset once a message has been sent, so it only grows while the peer is unreachable
+            reconnectDelayMillis =
+                reconnectDelayMillis == 0L
+                    ? MIN_RECONNECT_DELAY_MILLIS
+                    : Math.min(reconnectDelayMillis * 2, MAX_RECONNECT_DELAY_MILLIS);
+            nextConnectionTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(reconnectDelayMillis);
+        }
+
+        void close() {
+            if (channel != null) {
+                closeQuietly(channel);
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Reads the frames of a connection, which can arrive in several parts
+     */
+    private static final class FrameReader {
+        private final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        private ByteBuffer body;
+
+        /**
+         * Reads the available bytes, and delivers the complete frames
+         * @return false if the connection has been closed by the peer
+         */
+        boolean read(SocketChannel channel, Receiver receiver) throws IOException {
+            while (true) {
+                if (body == null) {
+                    if (channel.read(lengthBuffer) < 0) {
+                        return false;
+                    }
+                    if (lengthBuffer.hasRemaining()) {
+                        return true;
+                    }
+                    int length = lengthBuffer.getInt(0);
+                    if (length < 0 || length > MAX_FRAME_SIZE) {
+                        throw new IOException("Invalid frame length: " + length);
+                    }
+                    lengthBuffer.clear();
+                    body = ByteBuffer.allocate(length);
+                }
+                if (body.hasRemaining() && channel.read(body) < 0) {
+                    return false;
+                }
+                if (body.hasRemaining()) {
+                    return true;
+                }
+                byte[] message = body.array();
+                body = null;
+                receiver.receive(message);
+            }
+        }
+    }
+}
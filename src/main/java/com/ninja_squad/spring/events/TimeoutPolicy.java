@@ -0,0 +1,20 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * The policy applied when the call of an observer having a {@link Bulkhead} timeout hasn't completed in time.
+ * @author JB Nizet
+ * @see Bulkhead#onTimeout()
+ */
+public enum TimeoutPolicy {
+    /**
+     * Indicates that the call must be left running in the background. It still counts in the concurrency limit of the
+     * bulkhead until it completes.
+     */
+    CONTINUE_IN_BACKGROUND,
+
+    /**
+     * Indicates that the thread calling the observer must be interrupted, which abandons the delivery if the observer
+     * reacts to interruptions.
+     */
+    INTERRUPT;
+}
@@ -0,0 +1,136 @@
+package com.ninja_squad.spring.events;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel, running the scheduled tasks from a single daemon thread. Scheduling a task only appends it to a
+ * concurrent queue, which the thread drains at each tick into the bucket of the wheel where the task expires, so that
+ * thousands of pending timers cost a single thread and no lock. Tasks never run before their delay has elapsed, but
+ * can run up to a tick later. They must be short, since they delay the other tasks: the tasks which call observers
+ * hand the events off to an executor.
+ * @author JB Nizet
+ */
+class TimerWheel {
+
+    private static final Log logger = LogFactory.getLog(TimerWheel.class);
+
+    private final long tickNanos;
+    private final List<List<Timeout>> buckets;
+    private final int mask;
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<Timeout>();
+    private final Thread thread;
+    private final long startNanos;
+    private volatile boolean running = true;
+
+    /**
+     * Creates and starts a timer wheel
+     * @param tickMillis the duration of a tick, i.e. the resolution of the timer
+     * @param bucketCount the number of buckets of the wheel, rounded up to a power of 2
+     * @param threadName the name of the thread of the wheel
+     */
+    public TimerWheel(long tickMillis, int bucketCount, String threadName) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        int size = Integer.highestOneBit(Math.max(bucketCount, 1) * 2 - 1);
+        this.buckets = new ArrayList<List<Timeout>>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new ArrayList<Timeout>());
+        }
+        this.mask = size - 1;
+        this.startNanos = System.nanoTime();
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                turn();
+            }
+        }, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Schedules the given task, which is run once the given delay has elapsed. Tasks scheduled once the wheel is
+     * stopped never run.
+     */
+    public void schedule(Runnable task, long delayNanos) {
+        newTimeouts.add(new Timeout(task, System.nanoTime() + Math.max(delayNanos, 0L)));
+    }
+
+    /**
+     * Stops the thread of the wheel. The pending tasks are discarded.
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    private void turn() {
+        long tick = 0L;
+        while (running) {
+            long tickDeadline = startNanos + (tick + 1) * tickNanos;
+            long sleepNanos = tickDeadline - System.nanoTime();
+            if (sleepNanos > 0L) {
+                LockSupport.parkNanos(this, sleepNanos);
+                continue;
+            }
+            transferNewTimeouts(tick);
+            expire(buckets.get((int) (tick & mask)));
+            tick++;
+        }
+    }
+
+    /**
+     * Puts the newly scheduled timeouts into the bucket of the tick during which they expire. A bucket is expired once
+     * its tick has elapsed, so that a task never runs early. Timeouts which have already expired go into the bucket of
+     * the current tick.
+     */
+    private void transferNewTimeouts(long tick) {
+        Timeout timeout;
+        while ((timeout = newTimeouts.poll()) != null) {
+            long expirationTick = (timeout.deadline - startNanos) / tickNanos;
+            long targetTick = Math.max(expirationTick, tick);
+            timeout.remainingRounds = (targetTick - tick) / buckets.size();
+            buckets.get((int) (targetTick & mask)).add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket) {
+        Iterator<Timeout> it = bucket.iterator();
+        while (it.hasNext()) {
+            Timeout timeout = it.next();
+            if (timeout.remainingRounds > 0L) {
+                timeout.remainingRounds--;
+                continue;
+            }
+            it.remove();
+            try {
+                timeout.task.run();
+            }
+            catch (Throwable e) {
+                logger.error("Unexpected exception thrown by a task of the timer wheel", e);
+            }
+        }
+    }
+
+    /**
+     * A scheduled task. Its remaining rounds are only accessed by the thread of the wheel.
+     */
+    private static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long remainingRounds;
+
+        Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+}
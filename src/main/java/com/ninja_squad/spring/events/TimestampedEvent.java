@@ -0,0 +1,32 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Holder of an event and of the time when it has been fired, used to measure the time spent by events in queues and
+ * transactional buffers when metrics are enabled. The event is unwrapped by {@link MeteredObserverInvoker} before
+ * calling the observer.
+ * @author JB Nizet
+ */
+final class TimestampedEvent {
+    private final Object event;
+    private final long firedAt;
+
+    TimestampedEvent(Object event) {
+        this.event = event;
+        this.firedAt = System.nanoTime();
+    }
+
+    Object getEvent() {
+        return event;
+    }
+
+    long getFiredAt() {
+        return firedAt;
+    }
+
+    /**
+     * Returns the wrapped event if the given object is a timestamped event, or the given object otherwise
+     */
+    static Object unwrap(Object event) {
+        return event instanceof TimestampedEvent ? ((TimestampedEvent) event).event : event;
+    }
+}
@@ -0,0 +1,313 @@
+package com.ninja_squad.spring.events;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ObjectUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffer of the events fired during a transaction, and which must be delivered to observers after the transaction is
+ * committed or rollbacked. A single buffer, which is also the only transaction synchronization registered by this
+ * library, is bound to each transaction, whatever the number of deferred events and observers. The events are
+ * delivered in the order they have been fired, just as if a synchronization had been registered for each of them.
+ * Observers taking a list of events receive all their events of the transaction at once.<br>
+ * Events deferred to a coalescing observer are collapsed by key as they're added: only one slot is used for each
+ * observer and key, so the work done after the transaction completes is proportional to the number of distinct keys.
+ * <br>
+ * The events deferred to durable observers are appended to their journal just before the transaction is committed,
+ * all at once.<br>
+ * The {@link PooledEvent}s are retained while they're in the buffer, and released once the transaction is completed.
+ * @author JB Nizet
+ */
+class TransactionalEventBuffer extends TransactionSynchronizationAdapter {
+
+    private static final Log logger = LogFactory.getLog(TransactionalEventBuffer.class);
+
+    /**
+     * The key used to bind the buffer of the current transaction as a transaction resource
+     */
+    private static final Object RESOURCE_KEY = new Object();
+
+    private final EventQueue afterCommitQueue = new EventQueue();
+    private final EventQueue afterRollbackQueue = new EventQueue();
+
+    /**
+     * Set to true once the completion of the transaction has started. Events added after that are ignored, as they
+     * would be if a new synchronization were registered at this time.
+     */
+    private boolean completed = false;
+
+    /**
+     * Gets the buffer of the current transaction, creating and registering it if needed.
+     * @return the buffer, or null if transaction synchronization is not active
+     */
+    public static TransactionalEventBuffer current() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        TransactionalEventBuffer buffer =
+            (TransactionalEventBuffer) TransactionSynchronizationManager.getResource(RESOURCE_KEY);
+        if (buffer == null) {
+            buffer = new TransactionalEventBuffer();
+            TransactionSynchronizationManager.bindResource(RESOURCE_KEY, buffer);
+            TransactionSynchronizationManager.registerSynchronization(buffer);
+        }
+        return buffer;
+    }
+
+    public void addAfterCommit(ObserverInvoker invoker, Object event) {
+        if (!completed) {
+            afterCommitQueue.add(invoker, event);
+        }
+    }
+
+    public void addAfterRollback(ObserverInvoker invoker, Object event) {
+        if (!completed) {
+            afterRollbackQueue.add(invoker, event);
+        }
+    }
+
+    /**
+     * Adds an event to deliver after commit, unless an event with the same key has already been added for the same
+     * invoker, in which case the event replaces it or is ignored, depending on the given policy
+     */
+    public void coalesceAfterCommit(ObserverInvoker invoker, Object event, Object key, CoalescingPolicy policy) {
+        if (!completed) {
+            afterCommitQueue.coalesce(invoker, event, key, policy);
+        }
+    }
+
+    /**
+     * Adds an event to deliver after rollback, unless an event with the same key has already been added for the same
+     * invoker, in which case the event replaces it or is ignored, depending on the given policy
+     */
+    public void coalesceAfterRollback(ObserverInvoker invoker, Object event, Object key, CoalescingPolicy policy) {
+        if (!completed) {
+            afterRollbackQueue.coalesce(invoker, event, key, policy);
+        }
+    }
+
+    @Override
+    public void suspend() {
+        TransactionSynchronizationManager.unbindResource(RESOURCE_KEY);
+    }
+
+    @Override
+    public void resume() {
+        TransactionSynchronizationManager.bindResource(RESOURCE_KEY, this);
+    }
+
+    @Override
+    public void beforeCommit(boolean readOnly) {
+        // an exception thrown while journaling makes the transaction roll back, since its events couldn't be saved
+        afterCommitQueue.journal();
+    }
+
+    @Override
+    public void afterCommit() {
+        completed = true;
+        // as with one synchronization per event, an exception thrown by an observer prevents the next ones from
+        // being called, and is propagated to the caller
+        deliver(afterCommitQueue, false);
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        completed = true;
+        TransactionSynchronizationManager.unbindResourceIfPossible(RESOURCE_KEY);
+        try {
+            if (status == TransactionSynchronization.STATUS_ROLLED_BACK) {
+                // the events journaled before a failed commit must not be replayed
+                afterCommitQueue.acknowledgeJournaled();
+                // as with one synchronization per event, an exception thrown by an observer is logged, and doesn't
+                // prevent the next ones from being called
+                deliver(afterRollbackQueue, true);
+            }
+        }
+        finally {
+            afterCommitQueue.clear();
+            afterRollbackQueue.clear();
+        }
+    }
+
+    /**
+     * Delivers the events of the given queue, in order. Batch invokers receive all their events of the transaction at
+     * once, at the position of their first event.
+     */
+    private void deliver(EventQueue queue, boolean logExceptions) {
+        Map<ObserverInvoker, List<Object>> batches = queue.collectBatches();
+        for (int i = 0; i < queue.size; i++) {
+            ObserverInvoker invoker = queue.invokers[i];
+            try {
+                if (invoker instanceof BatchInvoker) {
+                    List<Object> batch = batches.remove(invoker);
+                    if (batch != null) {
+                        ((BatchInvoker) invoker).invokeAll(batch);
+                    }
+                }
+                else {
+                    invoker.invoke(queue.events[i]);
+                }
+            }
+            catch (Throwable e) {
+                if (!logExceptions) {
+                    throw e;
+                }
+                logger.error("Observer called after rollback threw exception", e);
+            }
+        }
+    }
+
+    /**
+     * Array-backed queue of (invoker, event) pairs
+     */
+    private static final class EventQueue {
+        private static final int INITIAL_CAPACITY = 8;
+
+        private ObserverInvoker[] invokers = new ObserverInvoker[INITIAL_CAPACITY];
+        private Object[] events = new Object[INITIAL_CAPACITY];
+        private int size;
+
+        /**
+         * The index of the slot of each coalesced invoker and key, lazily created
+         */
+        private Map<CoalescingKey, Integer> coalescedIndices;
+
+        void add(ObserverInvoker invoker, Object event) {
+            if (size == invokers.length) {
+                invokers = Arrays.copyOf(invokers, size * 2);
+                events = Arrays.copyOf(events, size * 2);
+            }
+            PooledEvent.retainIfPooled(event);
+            invokers[size] = invoker;
+            events[size] = event;
+            size++;
+        }
+
+        void coalesce(ObserverInvoker invoker, Object event, Object key, CoalescingPolicy policy) {
+            if (coalescedIndices == null) {
+                coalescedIndices = new HashMap<CoalescingKey, Integer>();
+            }
+            CoalescingKey coalescingKey = new CoalescingKey(invoker, key);
+            Integer index = coalescedIndices.get(coalescingKey);
+            if (index == null) {
+                coalescedIndices.put(coalescingKey, size);
+                add(invoker, event);
+            }
+            else if (policy == CoalescingPolicy.KEEP_LAST) {
+                PooledEvent.retainIfPooled(event);
+                PooledEvent.releaseIfPooled(events[index]);
+                events[index] = event;
+            }
+        }
+
+        /**
+         * Appends the journaled events of the queue to their journal, in order
+         */
+        void journal() {
+            Map<EventJournal, List<JournaledEvent>> journaledEvents = null;
+            for (int i = 0; i < size; i++) {
+                if (events[i] instanceof JournaledEvent) {
+                    JournaledEvent journaledEvent = (JournaledEvent) events[i];
+                    if (journaledEvents == null) {
+                        journaledEvents = new IdentityHashMap<EventJournal, List<JournaledEvent>>();
+                    }
+                    List<JournaledEvent> list = journaledEvents.get(journaledEvent.getJournal());
+                    if (list == null) {
+                        list = new ArrayList<JournaledEvent>();
+                        journaledEvents.put(journaledEvent.getJournal(), list);
+                    }
+                    list.add(journaledEvent);
+                }
+            }
+            if (journaledEvents != null) {
+                for (Map.Entry<EventJournal, List<JournaledEvent>> entry : journaledEvents.entrySet()) {
+                    entry.getKey().append(entry.getValue());
+                }
+            }
+        }
+
+        /**
+         * Acknowledges the events of the queue which have been journaled
+         */
+        void acknowledgeJournaled() {
+            for (int i = 0; i < size; i++) {
+                if (events[i] instanceof JournaledEvent && ((JournaledEvent) events[i]).isJournaled()) {
+                    JournaledEvent journaledEvent = (JournaledEvent) events[i];
+                    journaledEvent.getJournal().acknowledge(journaledEvent.getId());
+                }
+            }
+        }
+
+        /**
+         * Collects the events of each batch invoker of the queue
+         */
+        Map<ObserverInvoker, List<Object>> collectBatches() {
+            Map<ObserverInvoker, List<Object>> result = null;
+            for (int i = 0; i < size; i++) {
+                if (invokers[i] instanceof BatchInvoker) {
+                    if (result == null) {
+                        result = new IdentityHashMap<ObserverInvoker, List<Object>>();
+                    }
+                    List<Object> batch = result.get(invokers[i]);
+                    if (batch == null) {
+                        batch = new ArrayList<Object>();
+                        result.put(invokers[i], batch);
+                    }
+                    batch.add(events[i]);
+                }
+            }
+            return result == null ? Collections.<ObserverInvoker, List<Object>>emptyMap() : result;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                PooledEvent.releaseIfPooled(events[i]);
+            }
+            invokers = null;
+            events = null;
+            size = 0;
+            coalescedIndices = null;
+        }
+    }
+
+    /**
+     * The key of a coalesced event: the invoker it's deferred to, and the key extracted from the event
+     */
+    private static final class CoalescingKey {
+        private final ObserverInvoker invoker;
+        private final Object key;
+
+        CoalescingKey(ObserverInvoker invoker, Object key) {
+            this.invoker = invoker;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CoalescingKey)) {
+                return false;
+            }
+            CoalescingKey other = (CoalescingKey) o;
+            return invoker == other.invoker && ObjectUtils.nullSafeEquals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(invoker) + ObjectUtils.nullSafeHashCode(key);
+        }
+    }
+}
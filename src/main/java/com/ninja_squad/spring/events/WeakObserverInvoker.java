@@ -0,0 +1,84 @@
+package com.ninja_squad.spring.events;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Invoker which calls an observing method on an object registered at runtime, only referenced weakly so that
+ * registering it doesn't prevent it from being garbage collected. As soon as an event is delivered to an object which
+ * has been garbage collected, the object is unregistered. A method handle taking the object as first argument is used
+ * whenever possible, and plain reflection otherwise.
+ * @author JB Nizet
+ */
+class WeakObserverInvoker implements ObserverInvoker {
+
+    private static final Log logger = LogFactory.getLog(WeakObserverInvoker.class);
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final ObserverReference reference;
+    private final Method method;
+    private final MethodHandle handle;
+
+    /**
+     * Creates an invoker calling the given method on the referenced object. The method is supposed to be accessible
+     * already.
+     */
+    public WeakObserverInvoker(ObserverReference reference, Method method) {
+        this.reference = reference;
+        this.method = method;
+        this.handle = unreflect(method);
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            return MethodHandles.lookup().unreflect(method).asType(INVOKER_TYPE);
+        }
+        catch (IllegalAccessException e) {
+            logFallback(method, e);
+        }
+        catch (SecurityException e) {
+            logFallback(method, e);
+        }
+        return null;
+    }
+
+    private static void logFallback(Method method, Exception e) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Unable to create a method handle for the observer method " + method
+                             + ", falling back to reflection", e);
+        }
+    }
+
+    @Override
+    public void invoke(Object event) {
+        Object observer = reference.get();
+        if (observer == null) {
+            reference.unregister();
+            return;
+        }
+        if (handle == null) {
+            ReflectionUtils.invokeMethod(method, observer, event);
+            return;
+        }
+        try {
+            handle.invokeExact(observer, event);
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.ninja_squad.spring.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Invoker which buffers the events in time windows, and asynchronously calls the observing method once per window,
+ * with the latest event of the window, or with all of them if the method takes a list of events. Windows are either
+ * debounced or throttled:
+ * <ul>
+ *     <li>a debounced window is closed once no event has been fired during the quiet period, or once the maximum
+ *     wait since its first event has elapsed;</li>
+ *     <li>a throttled window delivers its first event immediately, then buffers the following ones until the
+ *     interval has elapsed, and delivers them at the end of the interval.</li>
+ * </ul>
+ * If a key extractor is used, each key has its own window. The windows are closed by tasks of a shared
+ * {@link TimerWheel}, at most one per window, which hand the buffered events off to the executor.
+ * @author JB Nizet
+ */
+class WindowedObserverInvoker implements BatchInvoker {
+
+    /**
+     * The key of the window of the events when there is no key extractor, or when the key of the event is null
+     */
+    private static final Object NO_KEY = new Object();
+
+    /**
+     * Returned by {@link Window#add(Object)} when the window is closed, and the event must thus be added to a new one
+     */
+    private static final Object CLOSED = new Object();
+
+    private final ObserverInvoker delegate;
+    private final Executor executor;
+    private final TimerWheel timerWheel;
+    private final EventKeyExtractor keyExtractor;
+    private final boolean batch;
+    private final long debounceNanos;
+    private final long maxWaitNanos;
+    private final long throttleNanos;
+
+    private final ConcurrentMap<Object, Window> windows = new ConcurrentHashMap<Object, Window>();
+
+    /**
+     * Creates an invoker
+     * @param delegate the invoker calling the observing method
+     * @param executor the executor calling the observing method
+     * @param timerWheel the timer wheel closing the windows
+     * @param keyExtractor the extractor of the keys of the events, or null if all the events share the same window
+     * @param batch true if the observing method takes a list of events
+     * @param debounceNanos the quiet period of debounced windows, or 0 if windows are throttled
+     * @param maxWaitNanos the maximum wait of debounced windows, or 0 if unbounded
+     * @param throttleNanos the interval of throttled windows, or 0 if windows are debounced
+     */
+    public WindowedObserverInvoker(ObserverInvoker delegate,
+                                   Executor executor,
+                                   TimerWheel timerWheel,
+                                   EventKeyExtractor keyExtractor,
+                                   boolean batch,
+                                   long debounceNanos,
+                                   long maxWaitNanos,
+                                   long throttleNanos) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.timerWheel = timerWheel;
+        this.keyExtractor = keyExtractor;
+        this.batch = batch;
+        this.debounceNanos = debounceNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.throttleNanos = throttleNanos;
+    }
+
+    @Override
+    public void invoke(Object event) {
+        Object key = getKey(event);
+        while (true) {
+            Window window = windows.get(key);
+            if (window == null) {
+                Window newWindow = new Window(key);
+                window = windows.putIfAbsent(key, newWindow);
+                if (window == null) {
+                    window = newWindow;
+                }
+            }
+            Object immediateDelivery = window.add(event);
+            if (immediateDelivery != CLOSED) {
+                if (immediateDelivery != null) {
+                    deliver(immediateDelivery);
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void invokeAll(List<Object> events) {
+        for (Object event : events) {
+            invoke(event);
+        }
+    }
+
+    private Object getKey(Object event) {
+        if (keyExtractor == null) {
+            return NO_KEY;
+        }
+        Object key = keyExtractor.extractKey(TimestampedEvent.unwrap(event));
+        return key == null ? NO_KEY : key;
+    }
+
+    private void deliver(final Object payload) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                AsyncObserverInvoker.invokeDelegate(delegate, payload);
+            }
+        });
+    }
+
+    /**
+     * The window of a key. Once closed, it's removed from the map, and the next event of the key opens a new window.
+     * A window has at most one pending timer: when the deadline of a debounced window is pushed back, the timer is
+     * only scheduled again once it expires.
+     */
+    private final class Window implements Runnable {
+        private final Object key;
+        private Object latestEvent;
+        private List<Object> events;
+        private int count;
+        private long firstEventTime;
+        private long deadline;
+        private boolean timerPending;
+        private boolean closed;
+
+        Window(Object key) {
+            this.key = key;
+        }
+
+        /**
+         * Adds an event to the window
+         * @return {@link #CLOSED} if the window is closed, the event or list of events to deliver immediately if the
+         * window is throttled and its interval has elapsed, or null otherwise
+         */
+        synchronized Object add(Object event) {
+            if (closed) {
+                return CLOSED;
+            }
+            long now = System.nanoTime();
+            if (throttleNanos > 0L) {
+                if (!timerPending) {
+                    timerPending = true;
+                    timerWheel.schedule(this, throttleNanos);
+                    return batch ? Collections.singletonList(event) : event;
+                }
+                buffer(event);
+                return null;
+            }
+            buffer(event);
+            if (count == 1) {
+                firstEventTime = now;
+            }
+            deadline = now + debounceNanos;
+            if (maxWaitNanos > 0L) {
+                deadline = Math.min(deadline, firstEventTime + maxWaitNanos);
+            }
+            if (!timerPending) {
+                timerPending = true;
+                timerWheel.schedule(this, deadline - now);
+            }
+            return null;
+        }
+
+        private void buffer(Object event) {
+            if (batch) {
+                if (events == null) {
+                    events = new ArrayList<Object>();
+                }
+                events.add(event);
+            }
+            else {
+                // the replaced event won't be delivered, so it must be released if it has been retained
+                if (latestEvent != null) {
+                    PooledEvent.releaseIfPooled(latestEvent);
+                }
+                latestEvent = event;
+            }
+            count++;
+        }
+
+        /**
+         * Called by the timer wheel once the timer of the window has expired
+         */
+        @Override
+        public void run() {
+            Object payload;
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (debounceNanos > 0L && now - deadline < 0L) {
+                    timerWheel.schedule(this, deadline - now);
+                    return;
+                }
+                if (count == 0) {
+                    close();
+                    return;
+                }
+                payload = batch ? Collections.unmodifiableList(events) : latestEvent;
+                events = null;
+                latestEvent = null;
+                count = 0;
+                if (throttleNanos > 0L) {
+                    // the events delivered now start a new interval
+                    timerWheel.schedule(this, throttleNanos);
+                }
+                else {
+                    close();
+                }
+            }
+            deliver(payload);
+        }
+
+        private void close() {
+            timerPending = false;
+            closed = true;
+            windows.remove(key, this);
+        }
+    }
+}
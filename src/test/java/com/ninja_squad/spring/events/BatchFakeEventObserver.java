@@ -0,0 +1,56 @@
+package com.ninja_squad.spring.events;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Observer of batches of FakeEvent, which records the size of the received batches
+ * @author JB Nizet
+ */
+public class BatchFakeEventObserver {
+
+    private List<Integer> inProgressBatchSizes = new ArrayList<Integer>();
+    private List<Integer> afterCommitBatchSizes = new ArrayList<Integer>();
+    private List<Integer> asyncBatchSizes = new CopyOnWriteArrayList<Integer>();
+
+    private volatile CountDownLatch asyncLatch = new CountDownLatch(0);
+
+    @Observes
+    public void inProgress(List<FakeEvent> events) {
+        inProgressBatchSizes.add(events.size());
+    }
+
+    @Observes(when = EventMoment.AFTER_COMMIT)
+    public void afterCommit(Collection<? extends FakeEventInterface> events) {
+        afterCommitBatchSizes.add(events.size());
+    }
+
+    @Observes(async = true, maxBatchSize = 3, maxBatchDelay = 50L)
+    public void async(List<FakeEvent> events) {
+        asyncBatchSizes.add(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            asyncLatch.countDown();
+        }
+    }
+
+    public List<Integer> getInProgressBatchSizes() {
+        return inProgressBatchSizes;
+    }
+
+    public List<Integer> getAfterCommitBatchSizes() {
+        return afterCommitBatchSizes;
+    }
+
+    public void expectAsync(int eventCount) {
+        asyncLatch = new CountDownLatch(eventCount);
+    }
+
+    public List<Integer> awaitAsyncBatchSizes() throws InterruptedException {
+        asyncLatch.await(5, TimeUnit.SECONDS);
+        return asyncBatchSizes;
+    }
+}
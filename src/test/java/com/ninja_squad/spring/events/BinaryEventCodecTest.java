@@ -0,0 +1,221 @@
+package com.ninja_squad.spring.events;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Test for the binary event codec
+ * @author JB Nizet
+ */
+public class BinaryEventCodecTest {
+
+    private final BinaryEventCodec codec =
+        new BinaryEventCodec(getClass().getClassLoader(), Collections.<Class<?>>singleton(Nested.class));
+
+    @Test
+    public void shouldEncodeAndDecodeAllSupportedTypes() {
+        RichEvent event = new RichEvent();
+        List<Object> decoded = codec.decode(codec.encode(Arrays.asList(event, new RichEvent())));
+
+        assertThat(decoded).hasSize(2);
+        RichEvent result = (RichEvent) decoded.get(0);
+        assertThat(result.flag).isTrue();
+        assertThat(result.b).isEqualTo((byte) -3);
+        assertThat(result.s).isEqualTo((short) -300);
+        assertThat(result.c).isEqualTo('\u00e9');
+        assertThat(result.i).isEqualTo(Integer.MIN_VALUE);
+        assertThat(result.l).isEqualTo(Long.MAX_VALUE);
+        assertThat(result.f).isEqualTo(1.5F);
+        assertThat(result.d).isEqualTo(-2.25);
+        assertThat(result.name).isEqualTo("h\u00e9llo");
+        assertThat(result.nullName).isNull();
+        assertThat(result.boxed).isEqualTo(42);
+        assertThat(result.unit).isEqualTo(TimeUnit.SECONDS);
+        assertThat(result.id).isEqualTo(event.id);
+        assertThat(result.date).isEqualTo(event.date);
+        assertThat(result.amount).isEqualTo(new BigDecimal("12.50"));
+        assertThat(result.keys).containsExactly(1L, 2L, 3L);
+        assertThat(result.attributes).isEqualTo(Collections.singletonMap("a", "b"));
+        assertThat(result.nested.value).isEqualTo("nested");
+        assertThat(result.inherited).isEqualTo(7);
+        assertThat(result.cached).isNull();
+    }
+
+    @Test
+    public void shouldBeMoreCompactThanJavaSerialization() throws Exception {
+        List<Object> events = new ArrayList<Object>();
+        for (int i = 0; i < 100; i++) {
+            events.add(new SimpleEvent("users", i));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(events);
+        out.close();
+
+        byte[] message = codec.encode(events);
+        assertThat(message.length).isLessThan(bytes.size() / 2);
+        assertThat(((SimpleEvent) codec.decode(message).get(99)).key).isEqualTo(99L);
+    }
+
+    @Test
+    public void shouldRejectEventsWhichAreNotDistributed() {
+        byte[] message = codec.encode(Collections.singletonList(new FakeEvent()));
+        try {
+            codec.decode(message);
+            fail("expected an exception");
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("not distributed");
+        }
+    }
+
+    @Test
+    public void shouldRejectNestedObjectsWhichAreNeitherDistributedNorAllowed() {
+        BinaryEventCodec strictCodec = new BinaryEventCodec(getClass().getClassLoader());
+        RichEvent event = new RichEvent();
+        try {
+            strictCodec.encode(Collections.singletonList(event));
+            fail("expected an exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains(Nested.class.getName());
+        }
+
+        byte[] message = codec.encode(Collections.singletonList(event));
+        try {
+            strictCodec.decode(message);
+            fail("expected an exception");
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains(Nested.class.getName());
+        }
+    }
+
+    @Test
+    public void shouldDecodeNestedObjectsOfDistributedClasses() {
+        BinaryEventCodec strictCodec = new BinaryEventCodec(getClass().getClassLoader());
+        EnvelopeEvent event = new EnvelopeEvent();
+        event.simpleEvent = new SimpleEvent("users", 3L);
+        EnvelopeEvent result = (EnvelopeEvent) strictCodec.decode(strictCodec.encode(Arrays.asList(event))).get(0);
+        assertThat(result.simpleEvent.key).isEqualTo(3L);
+    }
+
+    @Test
+    public void shouldRejectTruncatedMessages() {
+        byte[] message = codec.encode(Collections.singletonList(new SimpleEvent("users", 1L)));
+        try {
+            codec.decode(Arrays.copyOf(message, message.length - 1));
+            fail("expected an exception");
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("Truncated");
+        }
+    }
+
+    @Test
+    public void shouldRejectMessagesNestedTooDeeply() {
+        // the value of the event, encoded as null, is replaced by lists nested in each other
+        byte[] message = codec.encode(Collections.singletonList(new ValueEvent()));
+        ByteArrayOutputStream nested = new ByteArrayOutputStream();
+        nested.write(message, 0, message.length - 1);
+        for (int i = 0; i < 100000; i++) {
+            nested.write(14);
+            nested.write(1);
+        }
+        nested.write(0);
+        try {
+            codec.decode(nested.toByteArray());
+            fail("expected an exception");
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("nested more than " + BinaryEventCodec.MAX_DEPTH + " levels");
+        }
+    }
+
+    @Test
+    public void shouldRejectEventsNestedTooDeeply() {
+        ValueEvent event = new ValueEvent();
+        for (int i = 0; i < BinaryEventCodec.MAX_DEPTH; i++) {
+            event.value = Collections.singletonList(event.value);
+        }
+        assertThat(((ValueEvent) codec.decode(codec.encode(Collections.singletonList(event))).get(0)).value)
+            .isEqualTo(event.value);
+
+        event.value = Collections.singletonList(event.value);
+        try {
+            codec.encode(Collections.singletonList(event));
+            fail("expected an exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("nested more than " + BinaryEventCodec.MAX_DEPTH + " levels");
+        }
+    }
+
+    public static class BaseEvent {
+        int inherited = 7;
+    }
+
+    public static class Nested {
+        String value = "nested";
+    }
+
+    @Distributed
+    public static class RichEvent extends BaseEvent {
+        boolean flag = true;
+        byte b = -3;
+        short s = -300;
+        char c = '\u00e9';
+        int i = Integer.MIN_VALUE;
+        long l = Long.MAX_VALUE;
+        float f = 1.5F;
+        double d = -2.25;
+        String name = "h\u00e9llo";
+        String nullName;
+        Integer boxed = 42;
+        TimeUnit unit = TimeUnit.SECONDS;
+        UUID id = UUID.randomUUID();
+        Date date = new Date();
+        BigDecimal amount = new BigDecimal("12.50");
+        List<Long> keys = Arrays.asList(1L, 2L, 3L);
+        Map<String, String> attributes = Collections.singletonMap("a", "b");
+        Nested nested = new Nested();
+        transient Object cached = new Object();
+    }
+
+    @Distributed
+    public static class ValueEvent {
+        Object value;
+    }
+
+    @Distributed
+    public static class EnvelopeEvent {
+        SimpleEvent simpleEvent;
+    }
+
+    @Distributed
+    public static class SimpleEvent implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String cacheName;
+        private final long key;
+
+        public SimpleEvent(String cacheName, long key) {
+            this.cacheName = cacheName;
+            this.key = key;
+        }
+    }
+}
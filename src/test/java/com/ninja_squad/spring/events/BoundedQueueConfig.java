@@ -0,0 +1,136 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configuration containing asynchronous observers having bounded queues, delivered by the default executor
+ * @author JB Nizet
+ */
+@Configuration
+@EnableEvents
+public class BoundedQueueConfig {
+
+    @Bean
+    public BoundedQueueObserver boundedQueueObserver() {
+        return new BoundedQueueObserver();
+    }
+
+    /**
+     * Event routed to the observer having the given overflow policy
+     */
+    public static class QueuedEvent {
+        private final OverflowPolicy policy;
+        private final int sequence;
+
+        public QueuedEvent(OverflowPolicy policy, int sequence) {
+            this.policy = policy;
+            this.sequence = sequence;
+        }
+
+        public OverflowPolicy getPolicy() {
+            return policy;
+        }
+
+        public int getSequence() {
+            return sequence;
+        }
+    }
+
+    /**
+     * Observer whose methods block on a gate when called with the first event, until the gate is opened
+     */
+    public static class BoundedQueueObserver {
+        private final List<Integer> delivered = new CopyOnWriteArrayList<Integer>();
+        private final List<String> threadNames = new CopyOnWriteArrayList<String>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private final AtomicInteger activeCalls = new AtomicInteger();
+        private final AtomicInteger maxActiveCalls = new AtomicInteger();
+
+        @Observes(async = true,
+                  queueCapacity = 2,
+                  overflow = OverflowPolicy.FAIL,
+                  condition = "policy.name() == 'FAIL'")
+        public void fail(QueuedEvent event) throws InterruptedException {
+            observe(event);
+        }
+
+        @Observes(async = true,
+                  queueCapacity = 2,
+                  overflow = OverflowPolicy.DROP_OLDEST,
+                  condition = "policy.name() == 'DROP_OLDEST'")
+        public void dropOldest(QueuedEvent event) throws InterruptedException {
+            observe(event);
+        }
+
+        @Observes(async = true,
+                  queueCapacity = 2,
+                  overflow = OverflowPolicy.DROP_NEWEST,
+                  condition = "policy.name() == 'DROP_NEWEST'")
+        public void dropNewest(QueuedEvent event) throws InterruptedException {
+            observe(event);
+        }
+
+        @Observes(async = true,
+                  queueCapacity = 2,
+                  overflow = OverflowPolicy.CALLER_RUNS,
+                  condition = "policy.name() == 'CALLER_RUNS'")
+        public void callerRuns(QueuedEvent event) throws InterruptedException {
+            observe(event);
+        }
+
+        @Observes(async = true,
+                  queueCapacity = 100,
+                  maxConcurrency = 2,
+                  overflow = OverflowPolicy.BLOCK,
+                  condition = "policy.name() == 'BLOCK'")
+        public void concurrent(QueuedEvent event) throws InterruptedException {
+            int active = activeCalls.incrementAndGet();
+            while (true) {
+                int max = maxActiveCalls.get();
+                if (active <= max || maxActiveCalls.compareAndSet(max, active)) {
+                    break;
+                }
+            }
+            Thread.sleep(10L);
+            activeCalls.decrementAndGet();
+            delivered.add(event.getSequence());
+        }
+
+        private void observe(QueuedEvent event) throws InterruptedException {
+            if (event.getSequence() == 1) {
+                entered.countDown();
+                gate.await(5L, TimeUnit.SECONDS);
+            }
+            delivered.add(event.getSequence());
+            threadNames.add(Thread.currentThread().getName());
+        }
+
+        public List<Integer> getDelivered() {
+            return delivered;
+        }
+
+        public List<String> getThreadNames() {
+            return threadNames;
+        }
+
+        public int getMaxActiveCalls() {
+            return maxActiveCalls.get();
+        }
+
+        public boolean awaitEntered() throws InterruptedException {
+            return entered.await(5L, TimeUnit.SECONDS);
+        }
+
+        public void openGate() {
+            gate.countDown();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ninja_squad.spring.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Observer isolated by a bulkhead, used to test that a slow observer doesn't stall the firing thread
+ * @author JB Nizet
+ */
+public class BulkheadEventObserver {
+
+    private List<Long> result = Collections.synchronizedList(new ArrayList<Long>());
+
+    @Observes
+    @Bulkhead(maxConcurrentCalls = 2, timeout = 200L, onTimeout = TimeoutPolicy.INTERRUPT)
+    public void slow(SlowEvent event) {
+        try {
+            Thread.sleep(event.getDuration());
+            result.add(event.getDuration());
+        }
+        catch (InterruptedException e) {
+            // abandoned
+        }
+    }
+
+    public List<Long> getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,178 @@
+package com.ninja_squad.spring.events;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Test for the concurrency limits, timeouts and circuit breakers of bulkheads
+ * @author JB Nizet
+ */
+public class BulkheadObserverInvokerTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void prepare() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldRejectCallsBeyondTheConcurrencyLimit() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        ObserverBulkhead bulkhead = new ObserverBulkhead("limited", configuration("limited"));
+        final BulkheadObserverInvoker invoker = new BulkheadObserverInvoker(new ObserverInvoker() {
+            @Override
+            public void invoke(Object event) {
+                calls.incrementAndGet();
+                entered.countDown();
+                await(release);
+            }
+        }, bulkhead, "observer", null);
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                invoker.invoke("a");
+            }
+        });
+        assertThat(entered.await(5L, TimeUnit.SECONDS)).isTrue();
+        invoker.invoke("b");
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(bulkhead.getRejectedCount()).isEqualTo(1L);
+        assertThat(bulkhead.getActiveCalls()).isEqualTo(1);
+
+        release.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5L, TimeUnit.SECONDS)).isTrue();
+        invoker.invoke("c");
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(bulkhead.getActiveCalls()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldStopWaitingAndInterruptWhenTheTimeoutExpires() throws Exception {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        ObserverBulkhead bulkhead = new ObserverBulkhead("interrupted", configuration("interrupted"));
+        BulkheadObserverInvoker invoker = new BulkheadObserverInvoker(new ObserverInvoker() {
+            @Override
+            public void invoke(Object event) {
+                try {
+                    Thread.sleep(10000L);
+                }
+                catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        }, bulkhead, "observer", executor);
+
+        long start = System.nanoTime();
+        invoker.invoke("a");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5000L);
+        assertThat(bulkhead.getTimedOutCount()).isEqualTo(1L);
+        assertThat(interrupted.await(5L, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void shouldPropagateExceptionsThrownBeforeTheTimeout() {
+        ObserverBulkhead bulkhead = new ObserverBulkhead("interrupted", configuration("interrupted"));
+        BulkheadObserverInvoker invoker =
+            new BulkheadObserverInvoker(new FailingInvoker(), bulkhead, "observer", executor);
+        try {
+            invoker.invoke("a");
+            fail("expected an exception");
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getMessage()).isEqualTo("failure");
+        }
+        assertThat(bulkhead.getTimedOutCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void shouldOpenTheCircuitAfterConsecutiveFailures() throws Exception {
+        FailingInvoker delegate = new FailingInvoker();
+        ObserverBulkhead bulkhead = new ObserverBulkhead("breaking", configuration("breaking"));
+        BulkheadObserverInvoker invoker = new BulkheadObserverInvoker(delegate, bulkhead, "observer", null);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                invoker.invoke("a");
+                fail("expected an exception");
+            }
+            catch (IllegalStateException e) {
+                // expected
+            }
+        }
+        assertThat(bulkhead.isCircuitOpen()).isTrue();
+        invoker.invoke("b");
+        assertThat(delegate.calls).isEqualTo(2);
+        assertThat(bulkhead.getShortCircuitedCount()).isEqualTo(1L);
+
+        // once the open duration has elapsed, a successful trial call closes the circuit
+        Thread.sleep(150L);
+        delegate.failing = false;
+        invoker.invoke("c");
+        assertThat(delegate.calls).isEqualTo(3);
+        assertThat(bulkhead.isCircuitOpen()).isFalse();
+        invoker.invoke("d");
+        assertThat(delegate.calls).isEqualTo(4);
+    }
+
+    @Bulkhead(maxConcurrentCalls = 1)
+    private void limited() {
+    }
+
+    @Bulkhead(timeout = 100L, onTimeout = TimeoutPolicy.INTERRUPT)
+    private void interrupted() {
+    }
+
+    @Bulkhead(failureThreshold = 2, openDuration = 100L)
+    private void breaking() {
+    }
+
+    private static Bulkhead configuration(String methodName) {
+        try {
+            return BulkheadObserverInvokerTest.class.getDeclaredMethod(methodName).getAnnotation(Bulkhead.class);
+        }
+        catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5L, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class FailingInvoker implements ObserverInvoker {
+        private volatile boolean failing = true;
+        private volatile int calls;
+
+        @Override
+        public void invoke(Object event) {
+            calls++;
+            if (failing) {
+                throw new IllegalStateException("failure");
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.ninja_squad.spring.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Observer of coalesced events, which records the events it receives
+ * @author JB Nizet
+ */
+public class CoalescingEventObserver {
+
+    private List<String> result = new ArrayList<String>();
+
+    @Observes(when = EventMoment.AFTER_COMMIT, order = 1)
+    @Coalesce(key = "key")
+    public void keepLast(KeyedEvent event) {
+        result.add("last " + event.getKey() + event.getSequence());
+    }
+
+    @Observes(when = EventMoment.AFTER_COMMIT, order = 2)
+    @Coalesce(key = "key", keep = CoalescingPolicy.KEEP_FIRST)
+    public void keepFirst(KeyedEvent event) {
+        result.add("first " + event.getKey() + event.getSequence());
+    }
+
+    @Observes(when = EventMoment.AFTER_COMMIT, order = 3)
+    @Coalesce(key = "key")
+    public void keepLastBatch(List<KeyedEvent> events) {
+        result.add("batch " + events.size());
+    }
+
+    @Observes
+    public void inProgress(UpdatedEvent event) {
+        result.add("inProgress " + event.getId());
+    }
+
+    @Observes(when = EventMoment.AFTER_COMMIT)
+    public void afterCommit(UpdatedEvent event) {
+        result.add("afterCommit " + event.getId());
+    }
+
+    public List<String> getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,32 @@
+package com.ninja_squad.spring.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Observer having conditions, used to test that the events not satisfying the condition are not delivered
+ * @author JB Nizet
+ */
+public class ConditionalEventObserver {
+
+    private List<Integer> highScores = new ArrayList<Integer>();
+    private List<Integer> evenScoresAfterCommit = new ArrayList<Integer>();
+
+    @Observes(condition = "score > 10 and !even")
+    public void highScore(ScoredEvent event) {
+        highScores.add(event.getScore());
+    }
+
+    @Observes(when = EventMoment.AFTER_COMMIT, condition = "@evenScorePredicate")
+    public void evenScoreAfterCommit(ScoredEvent event) {
+        evenScoresAfterCommit.add(event.getScore());
+    }
+
+    public List<Integer> getHighScores() {
+        return highScores;
+    }
+
+    public List<Integer> getEvenScoresAfterCommit() {
+        return evenScoresAfterCommit;
+    }
+}
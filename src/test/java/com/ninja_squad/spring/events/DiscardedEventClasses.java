@@ -0,0 +1,83 @@
+package com.ninja_squad.spring.events;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Event classes compiled at runtime, and loaded by a new class loader, in order to check that they're garbage
+ * collected once this class loader is discarded
+ * @author JB Nizet
+ */
+final class DiscardedEventClasses {
+
+    private DiscardedEventClasses() {
+    }
+
+    /**
+     * Compiles the given source of the class test.DiscardedEvent, and loads it with a new class loader, closed once
+     * the class is loaded
+     */
+    static Class<?> load(String... lines) throws Exception {
+        File sourceDir = Files.createTempDir();
+        File classesDir = Files.createTempDir();
+        File source = new File(sourceDir, "test/DiscardedEvent.java");
+        Files.createParentDirs(source);
+        Files.write("package test;\n" + Joiner.on('\n').join(lines), source, Charsets.UTF_8);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, Charsets.UTF_8);
+        try {
+            List<String> options = Arrays.asList("-d", classesDir.getPath(),
+                                                 "-classpath", System.getProperty("java.class.path"));
+            assertThat(compiler.getTask(null, fileManager, null, options, null,
+                                        fileManager.getJavaFileObjects(source)).call()).isTrue();
+        }
+        finally {
+            fileManager.close();
+        }
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[] {classesDir.toURI().toURL()},
+                                                        DiscardedEventClasses.class.getClassLoader());
+        try {
+            return classLoader.loadClass("test.DiscardedEvent");
+        }
+        finally {
+            close(classLoader);
+        }
+    }
+
+    /**
+     * Runs the garbage collector until the given reference is cleared, and fails if it isn't. The tests are run with
+     * the soft references, used by the caches of Spring, cleared at each garbage collection.
+     */
+    static void assertCollected(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 100 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertThat(reference.get()).isNull();
+    }
+
+    private static void close(URLClassLoader classLoader) {
+        try {
+            classLoader.close();
+        }
+        catch (IOException e) {
+            // ignore
+        }
+    }
+}
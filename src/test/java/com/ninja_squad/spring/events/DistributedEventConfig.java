@@ -0,0 +1,101 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration of a node receiving and sending distributed events. The event transport is registered by the test,
+ * so that several application contexts, acting as nodes, can communicate.
+ * @author JB Nizet
+ */
+@Configuration
+@EnableEvents
+public class DistributedEventConfig {
+
+    @Bean
+    public InvalidationObserver invalidationObserver() {
+        return new InvalidationObserver();
+    }
+
+    /**
+     * Creates a fake Spring transaction manager
+     */
+    @Bean
+    public PlatformTransactionManager transactionManager() {
+        return new AbstractPlatformTransactionManager() {
+
+            @Override
+            protected Object doGetTransaction() throws TransactionException {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) throws TransactionException {
+                // nothing
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) throws TransactionException {
+                // nothing
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) throws TransactionException {
+                // nothing
+            }
+        };
+    }
+
+    @Distributed
+    public static class CacheInvalidated {
+        private final String cacheName;
+        private final long key;
+
+        public CacheInvalidated(String cacheName, long key) {
+            this.cacheName = cacheName;
+            this.key = key;
+        }
+
+        public String getCacheName() {
+            return cacheName;
+        }
+
+        public long getKey() {
+            return key;
+        }
+    }
+
+    public static class InvalidationObserver {
+        private final List<String> result = new CopyOnWriteArrayList<String>();
+        private volatile CountDownLatch latch = new CountDownLatch(0);
+
+        @Observes
+        public void invalidate(CacheInvalidated event) {
+            result.add(event.getCacheName() + event.getKey());
+            latch.countDown();
+        }
+
+        public void expect(int count) {
+            latch = new CountDownLatch(count);
+        }
+
+        public List<String> await() throws InterruptedException {
+            latch.await(5, TimeUnit.SECONDS);
+            return result;
+        }
+
+        public List<String> getResult() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.ninja_squad.spring.events;
+
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.DataOutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Test for the distributed events, using application contexts as nodes
+ * @author JB Nizet
+ */
+public class DistributedEventTest {
+
+    @Test
+    public void shouldSendDistributedEventsThroughLoopbackTransport() throws Exception {
+        AnnotationConfigApplicationContext node1 = createNode(new LoopbackEventTransport("test"));
+        AnnotationConfigApplicationContext node2 = createNode(new LoopbackEventTransport("test"));
+        try {
+            DistributedEventConfig.InvalidationObserver observer1 = getObserver(node1);
+            DistributedEventConfig.InvalidationObserver observer2 = getObserver(node2);
+            observer2.expect(3);
+
+            node1.getBean(EventFirer.class).fire(new DistributedEventConfig.CacheInvalidated("users", 1L));
+            fireInTransaction(node1, new DistributedEventConfig.CacheInvalidated("users", 2L), false);
+            fireInTransaction(node1, new DistributedEventConfig.CacheInvalidated("users", 3L), true);
+            fireInTransaction(node1, new DistributedEventConfig.CacheInvalidated("users", 4L), false);
+
+            assertThat(observer2.await()).containsExactly("users1", "users2", "users4");
+            // the events are fired locally once, and are not sent back by the other node
+            assertThat(observer1.getResult()).containsExactly("users1", "users2", "users3", "users4");
+        }
+        finally {
+            node1.close();
+            node2.close();
+        }
+    }
+
+    @Test
+    public void shouldSendDistributedEventsThroughTcpTransport() throws Exception {
+        TcpEventTransport transport2 =
+            new TcpEventTransport(new InetSocketAddress("127.0.0.1", 0), Collections.<InetSocketAddress>emptyList());
+        AnnotationConfigApplicationContext node2 = createNode(transport2);
+        AnnotationConfigApplicationContext node1 =
+            createNode(new TcpEventTransport(new InetSocketAddress("127.0.0.1", 0),
+                                             Collections.singletonList(transport2.getLocalAddress())));
+        try {
+            DistributedEventConfig.InvalidationObserver observer2 = getObserver(node2);
+            int eventCount = 1000;
+            observer2.expect(eventCount);
+            EventFirer eventFirer = node1.getBean(EventFirer.class);
+            for (int i = 0; i < eventCount; i++) {
+                eventFirer.fire(new DistributedEventConfig.CacheInvalidated("users", i));
+            }
+
+            assertThat(observer2.await()).hasSize(eventCount);
+            assertThat(observer2.getResult().get(eventCount - 1)).isEqualTo("users" + (eventCount - 1));
+        }
+        finally {
+            node1.close();
+            node2.close();
+        }
+    }
+
+    @Test
+    public void shouldKeepSendingToReachablePeersWhenAPeerIsUnreachable() throws Exception {
+        final List<byte[]> received = new CopyOnWriteArrayList<byte[]>();
+        final CountDownLatch latch = new CountDownLatch(2);
+        TcpEventTransport receivingTransport =
+            new TcpEventTransport(new InetSocketAddress("127.0.0.1", 0), Collections.<InetSocketAddress>emptyList());
+        receivingTransport.start(new EventTransport.Receiver() {
+            @Override
+            public void receive(byte[] message) {
+                received.add(message);
+                latch.countDown();
+            }
+        });
+
+        // a port on which nothing listens anymore
+        ServerSocket closedSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        InetSocketAddress unreachableAddress = (InetSocketAddress) closedSocket.getLocalSocketAddress();
+        closedSocket.close();
+
+        TcpEventTransport sendingTransport =
+            new TcpEventTransport(new InetSocketAddress("127.0.0.1", 0),
+                                  Arrays.asList(unreachableAddress, receivingTransport.getLocalAddress()));
+        sendingTransport.start(new EventTransport.Receiver() {
+            @Override
+            public void receive(byte[] message) {
+            }
+        });
+        try {
+            sendingTransport.send(new byte[] { 1 });
+            sendingTransport.send(new byte[] { 2 });
+
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(received.get(0)).isEqualTo(new byte[] { 1 });
+            assertThat(received.get(1)).isEqualTo(new byte[] { 2 });
+        }
+        finally {
+            sendingTransport.stop();
+            receivingTransport.stop();
+        }
+    }
+
+    @Test
+    public void shouldKeepReceivingWhenTheDeliveryOfAFrameFails() throws Exception {
+        final List<byte[]> received = new CopyOnWriteArrayList<byte[]>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        TcpEventTransport receivingTransport =
+            new TcpEventTransport(new InetSocketAddress("127.0.0.1", 0), Collections.<InetSocketAddress>emptyList());
+        receivingTransport.start(new EventTransport.Receiver() {
+            @Override
+            public void receive(byte[] message) {
+                if (message[0] == 0) {
+                    // what a malformed message could cause without the nesting limit of the codec
+                    throw new StackOverflowError();
+                }
+                received.add(message);
+                latch.countDown();
+            }
+        });
+
+        Socket malformedSender = new Socket();
+        malformedSender.connect(receivingTransport.getLocalAddress());
+        DataOutputStream out = new DataOutputStream(malformedSender.getOutputStream());
+        out.writeInt(1);
+        out.writeByte(0);
+        out.flush();
+
+        TcpEventTransport sendingTransport =
+            new TcpEventTransport(new InetSocketAddress("127.0.0.1", 0),
+                                  Collections.singletonList(receivingTransport.getLocalAddress()));
+        sendingTransport.start(new EventTransport.Receiver() {
+            @Override
+            public void receive(byte[] message) {
+            }
+        });
+        try {
+            // the failing connection is closed by the receiving transport
+            malformedSender.setSoTimeout(5000);
+            assertThat(malformedSender.getInputStream().read()).isEqualTo(-1);
+
+            sendingTransport.send(new byte[] { 1 });
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(received.get(0)).isEqualTo(new byte[] { 1 });
+        }
+        finally {
+            malformedSender.close();
+            sendingTransport.stop();
+            receivingTransport.stop();
+        }
+    }
+
+    @Test
+    public void shouldDropEventsOnceTheSendingQueueIsFull() {
+        RemoteEventDispatcher dispatcher =
+            new RemoteEventDispatcher(new LoopbackEventTransport("test"),
+                                      new BinaryEventCodec(),
+                                      new RemoteEventDispatcher.LocalFirer() {
+                                          @Override
+                                          public void fireReceived(Object event) {
+                                          }
+                                      },
+                                      2);
+        // the dispatcher isn't started, so the queued events are not sent
+        dispatcher.invoke(new DistributedEventConfig.CacheInvalidated("users", 1L));
+        dispatcher.invokeAll(Arrays.<Object>asList(new DistributedEventConfig.CacheInvalidated("users", 2L),
+                                                   new DistributedEventConfig.CacheInvalidated("users", 3L),
+                                                   new DistributedEventConfig.CacheInvalidated("users", 4L)));
+        assertThat(dispatcher.getDroppedCount()).isEqualTo(2L);
+    }
+
+    private AnnotationConfigApplicationContext createNode(EventTransport transport) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("eventTransport", transport);
+        context.register(DistributedEventConfig.class);
+        context.refresh();
+        return context;
+    }
+
+    private DistributedEventConfig.InvalidationObserver getObserver(AnnotationConfigApplicationContext context) {
+        return context.getBean(DistributedEventConfig.InvalidationObserver.class);
+    }
+
+    private void fireInTransaction(AnnotationConfigApplicationContext context,
+                                   final Object event,
+                                   final boolean rollback) {
+        final EventFirer eventFirer = context.getBean(EventFirer.class);
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).execute(
+            new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    eventFirer.fire(event);
+                    if (rollback) {
+                        status.setRollbackOnly();
+                    }
+                }
+            });
+    }
+}
@@ -0,0 +1,105 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration containing a durable observer. The event journal is registered by the test, so that several
+ * application contexts can share the same journal directory.
+ * @author JB Nizet
+ */
+@Configuration
+@EnableEvents
+public class DurableEventConfig {
+
+    @Bean
+    public DurableEventObserver durableEventObserver() {
+        return new DurableEventObserver();
+    }
+
+    /**
+     * Creates a fake Spring transaction manager
+     */
+    @Bean
+    public PlatformTransactionManager transactionManager() {
+        return new AbstractPlatformTransactionManager() {
+
+            @Override
+            protected Object doGetTransaction() throws TransactionException {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) throws TransactionException {
+                // nothing
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) throws TransactionException {
+                // nothing
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) throws TransactionException {
+                // nothing
+            }
+        };
+    }
+
+    public static class DurableEvent implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+
+        public DurableEvent(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Durable observer whose bounded queue drops events, which must make the application context fail to start
+     */
+    public static class DroppingDurableEventObserver {
+        @Observes(when = EventMoment.AFTER_COMMIT,
+                  durable = true,
+                  async = true,
+                  queueCapacity = 10,
+                  overflow = OverflowPolicy.DROP_OLDEST)
+        public void afterCommit(DurableEvent event) {
+        }
+    }
+
+    public static class DurableEventObserver {
+        private final List<String> result = new ArrayList<String>();
+        private boolean failing;
+
+        @Observes(when = EventMoment.AFTER_COMMIT, durable = true)
+        public void afterCommit(DurableEvent event) {
+            if (failing) {
+                throw new IllegalStateException("failing observer");
+            }
+            result.add(event.getName());
+        }
+
+        public void setFailing(boolean failing) {
+            this.failing = failing;
+        }
+
+        public List<String> getResult() {
+            return result;
+        }
+    }
+}
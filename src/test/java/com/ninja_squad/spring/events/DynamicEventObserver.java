@@ -0,0 +1,22 @@
+package com.ninja_squad.spring.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Observer which isn't a bean, registered at runtime, used to test the dynamic registration of observers
+ * @author JB Nizet
+ */
+public class DynamicEventObserver {
+
+    private List<Integer> result = new ArrayList<Integer>();
+
+    @Observes
+    public void score(ScoredEvent event) {
+        result.add(event.getScore());
+    }
+
+    public List<Integer> getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.core.ResolvableType;
+
+/**
+ * Generic event whose type argument is given by a payload type hint
+ * @author JB Nizet
+ */
+public class EntityChanged<T> implements ResolvableEvent {
+    private final Class<T> entityType;
+
+    public EntityChanged(Class<T> entityType) {
+        this.entityType = entityType;
+    }
+
+    @Override
+    public ResolvableType getResolvableType() {
+        return ResolvableType.forClassWithGenerics(EntityChanged.class, entityType);
+    }
+}
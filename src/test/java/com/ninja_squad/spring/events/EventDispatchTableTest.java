@@ -0,0 +1,132 @@
+package com.ninja_squad.spring.events;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.ResolvableType;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Test for the dispatch table
+ * @author JB Nizet
+ */
+public class EventDispatchTableTest {
+
+    private static final EventFirer NO_OP_FIRER = new EventFirer() {
+        @Override
+        public void fire(Object event) {
+        }
+    };
+
+    private ExecutorService executor;
+
+    @Before
+    public void prepare() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldSeeObserversRegisteredWhileTheFirstEventIsFired() throws Exception {
+        final ObserverDescriptor observer =
+            new ObserverDescriptor("observer",
+                                   FakeEventObserver.class.getMethod("publicInProgress", FakeEvent.class),
+                                   FakeEvent.class,
+                                   EventMoment.IN_PROGRESS,
+                                   false,
+                                   false,
+                                   0);
+        for (int i = 0; i < 2000; i++) {
+            // each table resolves the dispatch of the event class again
+            final EventDispatchTable table = new EventDispatchTable();
+            final CountDownLatch start = new CountDownLatch(1);
+            Future<Void> registration = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    start.await();
+                    table.register(observer, ResolvableType.forClass(FakeEvent.class), NO_OP_FIRER);
+                    return null;
+                }
+            });
+            start.countDown();
+            table.getFirers(new FakeEvent());
+            registration.get();
+
+            assertThat(Arrays.asList(table.getFirers(new FakeEvent()))).containsExactly(NO_OP_FIRER);
+        }
+    }
+
+    @Test
+    public void shouldNotPreventEventClassesFromBeingGarbageCollected() throws Exception {
+        EventDispatchTable table = createObjectObservingTable();
+
+        WeakReference<ClassLoader> classLoader =
+            fireEventOfDiscardedClass(table,
+                                      "public class DiscardedEvent {",
+                                      "}");
+
+        DiscardedEventClasses.assertCollected(classLoader);
+        assertThat(table.getResolvedDispatches()).isEmpty();
+    }
+
+    @Test
+    public void shouldNotPreventResolvableEventClassesFromBeingGarbageCollected() throws Exception {
+        EventDispatchTable table = createObjectObservingTable();
+
+        WeakReference<ClassLoader> classLoader =
+            fireEventOfDiscardedClass(table,
+                                      "import org.springframework.core.ResolvableType;",
+                                      "public class DiscardedEvent",
+                                      "    implements com.ninja_squad.spring.events.ResolvableEvent {",
+                                      "    public ResolvableType getResolvableType() {",
+                                      "        return ResolvableType.forClass(getClass());",
+                                      "    }",
+                                      "}");
+
+        DiscardedEventClasses.assertCollected(classLoader);
+        assertThat(table.getResolvedDispatches()).isEmpty();
+    }
+
+    private EventDispatchTable createObjectObservingTable() throws NoSuchMethodException {
+        EventDispatchTable table = new EventDispatchTable();
+        table.register(new ObserverDescriptor("observer",
+                                              FakeEventObserver.class.getMethod("publicInProgress", FakeEvent.class),
+                                              Object.class,
+                                              EventMoment.IN_PROGRESS,
+                                              false,
+                                              false,
+                                              0),
+                       ResolvableType.forClass(Object.class),
+                       NO_OP_FIRER);
+        return table;
+    }
+
+    /**
+     * Fires an event of the discarded class with the given source, and returns a weak reference to its class loader,
+     * which isn't referenced anymore
+     */
+    private WeakReference<ClassLoader> fireEventOfDiscardedClass(EventDispatchTable table, String... lines)
+        throws Exception {
+        Object event = DiscardedEventClasses.load(lines).newInstance();
+        EventFirer[] firers = table.getFirers(event);
+        assertThat(Arrays.asList(firers)).containsExactly(NO_OP_FIRER);
+        for (EventFirer firer : firers) {
+            firer.fire(event);
+        }
+        assertThat(table.getResolvedDispatches()).hasSize(1);
+        return new WeakReference<ClassLoader>(event.getClass().getClassLoader());
+    }
+}
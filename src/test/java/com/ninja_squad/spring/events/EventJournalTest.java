@@ -0,0 +1,185 @@
+package com.ninja_squad.spring.events;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Test for the event journal
+ * @author JB Nizet
+ */
+public class EventJournalTest {
+
+    private static final String OBSERVER_NAME = "observer";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReplayUnacknowledgedEvents() throws Exception {
+        File directory = folder.newFolder();
+        EventJournal journal = open(directory, 4096, new ArrayList<Object>());
+        List<JournaledEvent> events = journaledEvents(journal, "e1", "e2", "e3");
+        journal.append(events);
+        journal.acknowledge(events.get(1).getId());
+        assertThat(journal.getPendingCount()).isEqualTo(2);
+        journal.destroy();
+
+        List<Object> replayed = new ArrayList<Object>();
+        EventJournal secondJournal = open(directory, 4096, replayed);
+        assertThat(replayed).containsExactly("e1", "e3");
+        assertThat(secondJournal.getPendingCount()).isEqualTo(0);
+        secondJournal.destroy();
+
+        replayed.clear();
+        open(directory, 4096, replayed).destroy();
+        assertThat(replayed).isEmpty();
+    }
+
+    @Test
+    public void shouldDeleteSegmentsOnceAcknowledged() throws Exception {
+        File directory = folder.newFolder();
+        EventJournal journal = open(directory, 256, new ArrayList<Object>());
+        for (int i = 0; i < 100; i++) {
+            List<JournaledEvent> events = journaledEvents(journal, "event" + i);
+            journal.append(events);
+            journal.acknowledge(events.get(0).getId());
+        }
+        assertThat(journal.getPendingCount()).isEqualTo(0);
+        // only the current segment remains
+        assertThat(directory.listFiles()).hasSize(1);
+        journal.destroy();
+    }
+
+    @Test
+    public void shouldJournalEventsAppendedConcurrently() throws Exception {
+        File directory = folder.newFolder();
+        final EventJournal journal = open(directory, 4096, new ArrayList<Object>());
+        final int threadCount = 4;
+        final int eventCountPerThread = 200;
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            final int thread = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < eventCountPerThread; i++) {
+                            journal.append(journaledEvents(journal, thread + "-" + i));
+                        }
+                    }
+                    finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        done.await();
+        assertThat(journal.getPendingCount()).isEqualTo(threadCount * eventCountPerThread);
+        journal.destroy();
+
+        List<Object> replayed = new ArrayList<Object>();
+        open(directory, 4096, replayed).destroy();
+        Set<Object> distinct = new HashSet<Object>(replayed);
+        assertThat(distinct).hasSize(threadCount * eventCountPerThread);
+    }
+
+    @Test
+    public void shouldReplayEventsOfFailedDeliveriesAtStartup() throws Exception {
+        File directory = folder.newFolder();
+        AnnotationConfigApplicationContext context = createContext(directory);
+        DurableEventConfig.DurableEventObserver observer =
+            context.getBean(DurableEventConfig.DurableEventObserver.class);
+        observer.setFailing(true);
+        try {
+            fireInTransaction(context, new DurableEventConfig.DurableEvent("first"));
+            fail("expected an exception");
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getMessage()).isEqualTo("failing observer");
+        }
+        observer.setFailing(false);
+        fireInTransaction(context, new DurableEventConfig.DurableEvent("second"));
+        assertThat(observer.getResult()).containsExactly("second");
+        context.close();
+
+        context = createContext(directory);
+        observer = context.getBean(DurableEventConfig.DurableEventObserver.class);
+        assertThat(observer.getResult()).containsExactly("first");
+        assertThat(context.getBean(EventJournal.class).getPendingCount()).isEqualTo(0);
+        context.close();
+    }
+
+    @Test
+    public void shouldFailToStartWithADurableObserverDroppingEvents() throws Exception {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("eventJournal", new EventJournal(folder.newFolder(), 4096, true));
+        context.register(DurableEventConfig.class, DurableEventConfig.DroppingDurableEventObserver.class);
+        try {
+            context.refresh();
+            fail("expected an exception");
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("overflow policy can thus not drop events");
+        }
+    }
+
+    private EventJournal open(File directory, int segmentSize, final List<Object> replayed) {
+        EventJournal journal = new EventJournal(directory, segmentSize, true);
+        ObserverInvoker recorder = new ObserverInvoker() {
+            @Override
+            public void invoke(Object event) {
+                replayed.add(event);
+            }
+        };
+        Map<String, ObserverInvoker> invokers =
+            ImmutableMap.<String, ObserverInvoker>of(OBSERVER_NAME,
+                                                     new JournalingObserverInvoker(recorder, journal, OBSERVER_NAME));
+        journal.replay(invokers, getClass().getClassLoader());
+        return journal;
+    }
+
+    private List<JournaledEvent> journaledEvents(EventJournal journal, String... events) {
+        List<JournaledEvent> result = new ArrayList<JournaledEvent>();
+        for (String event : events) {
+            result.add(new JournaledEvent(journal, OBSERVER_NAME, event));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private AnnotationConfigApplicationContext createContext(File directory) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("eventJournal", new EventJournal(directory, 4096, true));
+        context.register(DurableEventConfig.class);
+        context.refresh();
+        return context;
+    }
+
+    private void fireInTransaction(AnnotationConfigApplicationContext context, final Object event) {
+        final EventFirer eventFirer = context.getBean(EventFirer.class);
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).execute(
+            new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    eventFirer.fire(event);
+                }
+            });
+    }
+}
@@ -0,0 +1,119 @@
+package com.ninja_squad.spring.events;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Test for the bounded queues and overflow policies of event lanes, delivered by the default executor, which doesn't
+ * limit the number of concurrent deliveries by itself
+ * @author JB Nizet
+ */
+public class EventLaneTest {
+
+    private AnnotationConfigApplicationContext context;
+    private BoundedQueueConfig.BoundedQueueObserver observer;
+    private EventFirer eventFirer;
+
+    @Before
+    public void prepare() {
+        context = new AnnotationConfigApplicationContext(BoundedQueueConfig.class);
+        observer = context.getBean(BoundedQueueConfig.BoundedQueueObserver.class);
+        eventFirer = context.getBean(EventFirer.class);
+    }
+
+    @After
+    public void shutdown() {
+        observer.openGate();
+        context.close();
+    }
+
+    @Test
+    public void shouldFail() throws InterruptedException {
+        fillQueue(OverflowPolicy.FAIL);
+        try {
+            fire(OverflowPolicy.FAIL, 4);
+            fail("expected a RejectedExecutionException");
+        }
+        catch (RejectedExecutionException e) {
+            EventQueueStatistics statistics = getStatistics("fail");
+            assertThat(statistics.getRejectedCount()).isEqualTo(1);
+            assertThat(statistics.getQueueDepth()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void shouldDropOldest() throws InterruptedException {
+        fillQueue(OverflowPolicy.DROP_OLDEST);
+        fire(OverflowPolicy.DROP_OLDEST, 4);
+        assertThat(getStatistics("dropOldest").getDroppedCount()).isEqualTo(1);
+        assertThat(awaitDeliveries(3)).containsExactly(1, 3, 4);
+    }
+
+    @Test
+    public void shouldDropNewest() throws InterruptedException {
+        fillQueue(OverflowPolicy.DROP_NEWEST);
+        fire(OverflowPolicy.DROP_NEWEST, 4);
+        assertThat(getStatistics("dropNewest").getDroppedCount()).isEqualTo(1);
+        assertThat(awaitDeliveries(3)).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    public void shouldRunInCallerThread() throws InterruptedException {
+        fillQueue(OverflowPolicy.CALLER_RUNS);
+        fire(OverflowPolicy.CALLER_RUNS, 4);
+        assertThat(observer.getDelivered()).containsExactly(4);
+        assertThat(observer.getThreadNames()).containsExactly(Thread.currentThread().getName());
+        assertThat(getStatistics("callerRuns").getCallerRunsCount()).isEqualTo(1);
+        assertThat(awaitDeliveries(4)).containsExactly(4, 1, 2, 3);
+    }
+
+    @Test
+    public void shouldLimitConcurrency() throws InterruptedException {
+        for (int i = 0; i < 20; i++) {
+            fire(OverflowPolicy.BLOCK, i);
+        }
+        observer.openGate();
+        assertThat(awaitDeliveries(20)).hasSize(20);
+        assertThat(observer.getMaxActiveCalls()).isEqualTo(2);
+    }
+
+    /**
+     * Fires a first event, which blocks the observer, and two other ones, which fill its queue
+     */
+    private void fillQueue(OverflowPolicy policy) throws InterruptedException {
+        fire(policy, 1);
+        assertThat(observer.awaitEntered()).isTrue();
+        fire(policy, 2);
+        fire(policy, 3);
+    }
+
+    private void fire(OverflowPolicy policy, int sequence) {
+        eventFirer.fire(new BoundedQueueConfig.QueuedEvent(policy, sequence));
+    }
+
+    private EventQueueStatistics getStatistics(String methodName) {
+        EventObserverBeanPostProcessor postProcessor = context.getBean(EventObserverBeanPostProcessor.class);
+        for (EventQueueStatistics statistics : postProcessor.getQueueStatistics()) {
+            if (statistics.getObserverName().contains("." + methodName + "(")) {
+                return statistics;
+            }
+        }
+        throw new IllegalStateException("No statistics for " + methodName);
+    }
+
+    private List<Integer> awaitDeliveries(int count) throws InterruptedException {
+        observer.openGate();
+        long end = System.currentTimeMillis() + 5000L;
+        while (observer.getDelivered().size() < count && System.currentTimeMillis() < end) {
+            Thread.sleep(10L);
+        }
+        return observer.getDelivered();
+    }
+}
@@ -0,0 +1,137 @@
+package com.ninja_squad.spring.events;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Test for the pools of pooled events and their reference counting
+ * @author JB Nizet
+ */
+public class EventPoolTest {
+
+    @Test
+    public void shouldReuseReleasedEvents() {
+        EventPool pool = new EventPool(PriceTick.class, false);
+        PriceTick tick = ((PriceTick) pool.acquire()).init("ACME", 1);
+        tick.release();
+        assertThat(tick.getResetCount()).isEqualTo(1);
+        assertThat(tick.getSymbol()).isNull();
+        assertThat(pool.acquire()).isSameAs(tick);
+        assertThat(pool.getCreatedCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldNotReuseRetainedEvents() {
+        EventPool pool = new EventPool(PriceTick.class, false);
+        PriceTick tick = (PriceTick) pool.acquire();
+        tick.retain();
+        tick.release();
+        assertThat(pool.acquire()).isNotSameAs(tick);
+
+        tick.release();
+        assertThat(pool.acquire()).isSameAs(tick);
+        assertThat(pool.getCreatedCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void shouldReuseEventsReleasedByAnotherThread() throws InterruptedException {
+        EventPool pool = new EventPool(PriceTick.class, false);
+        final PriceTick tick = (PriceTick) pool.acquire();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                tick.release();
+            }
+        });
+        thread.start();
+        thread.join();
+        assertThat(pool.acquire()).isSameAs(tick);
+    }
+
+    @Test
+    public void shouldRejectReleasedEvents() {
+        EventPool pool = new EventPool(PriceTick.class, false);
+        PriceTick tick = (PriceTick) pool.acquire();
+        tick.release();
+        try {
+            tick.release();
+            fail("expected an exception");
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            tick.retain();
+            fail("expected an exception");
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void shouldDetectRetentionInDebugMode() {
+        EventPool pool = new EventPool(PriceTick.class, true);
+        final AtomicReference<PriceTick> retained = new AtomicReference<PriceTick>();
+        PriceTick tick = ((PriceTick) pool.acquire()).init("ACME", 1);
+        retained.set(tick);
+        tick.release();
+
+        assertThat(pool.acquire()).isNotSameAs(tick);
+        try {
+            retained.get().getPrice();
+            fail("expected an exception");
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("released");
+            assertThat(e.getCause().getMessage()).contains(Thread.currentThread().getName());
+        }
+    }
+
+    @Test
+    public void shouldReleaseEventsDroppedByTheBoundedQueueOfALane() {
+        for (OverflowPolicy policy : Arrays.asList(OverflowPolicy.DROP_OLDEST, OverflowPolicy.DROP_NEWEST)) {
+            EventPool pool = new EventPool(PriceTick.class, false);
+            // the executor never delivers the queued events
+            EventLane lane = new EventLane(new ObserverInvoker() {
+                @Override
+                public void invoke(Object event) {
+                }
+            }, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                }
+            }, 1, 1, policy);
+
+            PriceTick first = (PriceTick) pool.acquire();
+            PriceTick second = (PriceTick) pool.acquire();
+            for (PriceTick tick : Arrays.asList(first, second)) {
+                // as the retaining invoker does before handing the event off, and the firer once the event is fired
+                tick.retain();
+                lane.submit(tick);
+                tick.release();
+            }
+
+            PriceTick dropped = policy == OverflowPolicy.DROP_OLDEST ? first : second;
+            PriceTick queued = policy == OverflowPolicy.DROP_OLDEST ? second : first;
+            assertThat(dropped.getResetCount()).isEqualTo(1);
+            assertThat(queued.getResetCount()).isEqualTo(0);
+            assertThat(pool.acquire()).isSameAs(dropped);
+        }
+    }
+
+    @Test
+    public void shouldIgnoreEventsCreatedWithoutPool() {
+        PriceTick tick = new PriceTick().init("ACME", 1);
+        tick.retain();
+        tick.release();
+        tick.release();
+        assertThat(tick.getPrice()).isEqualTo(1);
+        assertThat(tick.getResetCount()).isEqualTo(0);
+    }
+}
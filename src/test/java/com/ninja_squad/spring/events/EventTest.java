@@ -1,16 +1,26 @@
 package com.ninja_squad.spring.events;
 
+import com.google.common.collect.ListMultimap;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.fest.assertions.api.Assertions.*;
@@ -36,6 +46,48 @@ public class EventTest {
     @Autowired
     private AsyncFakeEventObserver asyncObserver;
 
+    @Autowired
+    private ExecutorFakeEventObserver executorObserver;
+
+    @Autowired
+    private PartitionedKeyedEventObserver partitionedObserver;
+
+    @Autowired
+    private BatchFakeEventObserver batchObserver;
+
+    @Autowired
+    private ParallelEventObserver parallelObserver;
+
+    @Autowired
+    private OrderedEventObserver orderedObserver;
+
+    @Autowired
+    private ConditionalEventObserver conditionalObserver;
+
+    @Autowired
+    private GenericEventObserver genericObserver;
+
+    @Autowired
+    private CoalescingEventObserver coalescingObserver;
+
+    @Autowired
+    private BulkheadEventObserver bulkheadObserver;
+
+    @Autowired
+    private PooledEventObserver pooledObserver;
+
+    @Autowired
+    private WindowedEventObserver windowedObserver;
+
+    @Autowired
+    private BatchEventFirer eventFirer;
+
+    @Autowired
+    private InMemoryEventMetrics metrics;
+
+    @Autowired
+    private EventObserverBeanPostProcessor postProcessor;
+
     @Autowired
     private PlatformTransactionManager txManager;
 
@@ -92,6 +144,80 @@ public class EventTest {
         assertThat(transactionalObserver.getResult()).containsOnly("afterRollback");
     }
 
+    @Test
+    public void shouldRegisterASingleSynchronizationPerTransaction() {
+        new TransactionTemplate(txManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                producer.produce();
+                producer.produce();
+                assertThat(TransactionSynchronizationManager.getSynchronizations()).hasSize(1);
+            }
+        });
+        assertThat(transactionalObserver.getResult()).containsExactly("afterCommit", "afterCommit");
+    }
+
+    @Test
+    public void shouldBufferEventsOfSuspendedTransactionSeparately() {
+        new TransactionTemplate(txManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                producer.produce();
+                try {
+                    TransactionTemplate innerTemplate = new TransactionTemplate(txManager);
+                    innerTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                    innerTemplate.execute(new TransactionCallbackWithoutResult() {
+                        @Override
+                        protected void doInTransactionWithoutResult(TransactionStatus status) {
+                            producer.produce();
+                            throw new RuntimeException();
+                        }
+                    });
+                }
+                catch (RuntimeException e) {
+                    // ignore
+                }
+                assertThat(transactionalObserver.getResult()).containsExactly("afterRollback");
+            }
+        });
+        assertThat(transactionalObserver.getResult()).containsExactly("afterRollback", "afterCommit");
+    }
+
+    @Test
+    public void shouldCoalesceDeferredEvents() {
+        new TransactionTemplate(txManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                eventFirer.fire(new KeyedEvent("a", 1));
+                eventFirer.fire(new KeyedEvent("b", 2));
+                eventFirer.fireAll(Arrays.asList(new KeyedEvent("a", 3), new KeyedEvent("b", 4)));
+                eventFirer.fire(new KeyedEvent("a", 5));
+            }
+        });
+        assertThat(coalescingObserver.getResult()).containsExactly("last a5",
+                                                                   "first a1",
+                                                                   "batch 2",
+                                                                   "last b4",
+                                                                   "first b2");
+    }
+
+    @Test
+    public void shouldCoalesceDeferredEventsOfCoalescedEventClass() {
+        new TransactionTemplate(txManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                eventFirer.fire(new UpdatedEvent(1L));
+                eventFirer.fire(new UpdatedEvent(2L));
+                eventFirer.fire(new UpdatedEvent(1L));
+            }
+        });
+        assertThat(coalescingObserver.getResult()).containsExactly("inProgress 1",
+                                                                   "inProgress 2",
+                                                                   "inProgress 1",
+                                                                   "afterCommit 1",
+                                                                   "afterCommit 2");
+    }
+
     @Test
     public void shouldSupportAsyncObservers() throws InterruptedException {
         producer.produce();
@@ -99,4 +225,422 @@ public class EventTest {
         asyncObserver.unblock();
         assertThat(asyncObserver.getResult()).containsOnly("async");
     }
+
+    @Test
+    public void shouldCallAsyncObserversWithTheirExecutor() throws InterruptedException {
+        producer.produce();
+        assertThat(executorObserver.await()).hasSize(1);
+        assertThat(executorObserver.await().get(0)).startsWith("event-executor-");
+    }
+
+    @Test
+    public void shouldHandOffAsyncAfterCommitObserversAfterCommit() throws InterruptedException {
+        executorObserver.expect(2);
+        new TransactionTemplate(txManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                producer.produce();
+            }
+        });
+        List<String> threadNames = executorObserver.await();
+        assertThat(threadNames).hasSize(2);
+        assertThat(threadNames).doesNotContain(Thread.currentThread().getName());
+    }
+
+    @Test
+    public void shouldDeliverPartitionedEventsInOrderForEachKey() throws InterruptedException {
+        int keyCount = 10;
+        int eventCountPerKey = 200;
+        partitionedObserver.expect(keyCount * eventCountPerKey);
+        for (int sequence = 0; sequence < eventCountPerKey; sequence++) {
+            for (int key = 0; key < keyCount; key++) {
+                eventFirer.fire(new KeyedEvent("key" + key, sequence));
+            }
+        }
+
+        ListMultimap<String, Integer> sequencesByKey = partitionedObserver.await();
+        assertThat(sequencesByKey.keySet()).hasSize(keyCount);
+        for (String key : sequencesByKey.keySet()) {
+            List<Integer> sequences = sequencesByKey.get(key);
+            assertThat(sequences).hasSize(eventCountPerKey);
+            for (int i = 0; i < eventCountPerKey; i++) {
+                assertThat(sequences.get(i)).isEqualTo(i);
+            }
+        }
+    }
+
+    @Test
+    public void shouldFireAllEventsInOrder() {
+        new TransactionTemplate(txManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                eventFirer.fireAll(Arrays.asList(new FakeEvent(), "not observed", new FakeEvent()));
+                // observers having the same order are called in the order of their names
+                List<String> result = observer.getInheritance();
+                assertThat(result).containsExactly("withInterface",
+                                                   "withObject",
+                                                   "withSuperInterface",
+                                                   "withSuperclass",
+                                                   "withObject",
+                                                   "withInterface",
+                                                   "withObject",
+                                                   "withSuperInterface",
+                                                   "withSuperclass");
+                assertThat(transactionalObserver.getResult()).isEmpty();
+            }
+        });
+        assertThat(transactionalObserver.getResult()).containsExactly("afterCommit", "afterCommit");
+    }
+
+    @Test
+    public void shouldFireAllEventsOfAGivenClass() {
+        eventFirer.fireAll(FakeEvent.class, Arrays.asList(new FakeEvent(), new FakeEvent()));
+        assertThat(observer.getVisibilities()).hasSize(8);
+    }
+
+    @Test
+    public void shouldDeliverBatchesToObserversTakingLists() {
+        new TransactionTemplate(txManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                producer.produce();
+                eventFirer.fireAll(Arrays.asList(new FakeEvent(), new FakeEvent(), new FakeEvent()));
+            }
+        });
+        assertThat(batchObserver.getInProgressBatchSizes()).containsExactly(1, 3);
+        assertThat(batchObserver.getAfterCommitBatchSizes()).containsExactly(4);
+    }
+
+    @Test
+    public void shouldDeliverBoundedBatchesToAsyncObserversTakingLists() throws InterruptedException {
+        batchObserver.expectAsync(7);
+        for (int i = 0; i < 7; i++) {
+            producer.produce();
+        }
+        List<Integer> batchSizes = batchObserver.awaitAsyncBatchSizes();
+        int total = 0;
+        for (Integer batchSize : batchSizes) {
+            assertThat(batchSize).isLessThanOrEqualTo(3);
+            total += batchSize;
+        }
+        assertThat(total).isEqualTo(7);
+    }
+
+    @Test
+    public void shouldRecordMetrics() {
+        new TransactionTemplate(txManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                eventFirer.fire(new FakeEvent());
+                eventFirer.fireAll(Arrays.asList(new FakeEvent(), "not observed"));
+            }
+        });
+
+        assertThat(metrics.getFireCount(FakeEvent.class)).isEqualTo(2);
+        assertThat(metrics.getFireCount(String.class)).isEqualTo(1);
+
+        ObserverStatistics inProgress =
+            metrics.getObserverStatistics("fakeEventObserver.publicInProgress(" + FakeEvent.class.getName() + ")");
+        assertThat(inProgress.getInvocationCount()).isEqualTo(2);
+        assertThat(inProgress.getErrorCount()).isEqualTo(0);
+        assertThat(inProgress.getLatency().getMax()).isGreaterThan(0L);
+        assertThat(inProgress.getQueueWait().getCount()).isEqualTo(0);
+
+        ObserverStatistics afterCommit = metrics.getObserverStatistics(
+            "transactionalFakeEventObserver.afterCommit(" + FakeEvent.class.getName() + ")");
+        assertThat(afterCommit.getInvocationCount()).isEqualTo(2);
+        assertThat(afterCommit.getQueueWait().getCount()).isEqualTo(2);
+        assertThat(transactionalObserver.getResult()).containsExactly("afterCommit", "afterCommit");
+
+        metrics.reset();
+        assertThat(metrics.getFireCounts()).isEmpty();
+        assertThat(afterCommit.getInvocationCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldExposeTheRegistryAsAnMXBean() throws Exception {
+        EventRegistry registry = new EventRegistry(postProcessor);
+        eventFirer.fire(new FakeEvent());
+        eventFirer.fire(new FakeEvent());
+
+        List<ObserverSummary> fakeEventObservers = registry.getObservers(FakeEvent.class.getName());
+        assertThat(fakeEventObservers).isNotEmpty();
+        assertThat(fakeEventObservers.get(0).getMoment()).isEqualTo(EventMoment.IN_PROGRESS.name());
+        assertThat(fakeEventObservers.get(fakeEventObservers.size() - 1).getMoment())
+            .isEqualTo(EventMoment.AFTER_ROLLBACK.name());
+
+        DispatchSummary fakeEventDispatch = null;
+        for (DispatchSummary dispatch : registry.getDispatchTable()) {
+            if (dispatch.getEventClass().equals(FakeEvent.class.getName())) {
+                fakeEventDispatch = dispatch;
+            }
+        }
+        assertThat(fakeEventDispatch.getObservers()).contains(
+            "fakeEventObserver.withObject(java.lang.Object)",
+            "transactionalFakeEventObserver.afterCommit(" + FakeEvent.class.getName() + ")");
+        assertThat(fakeEventDispatch.getLookupCount()).isEqualTo(2L);
+        assertThat(fakeEventDispatch.getHitRate()).isEqualTo(0.5);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.ninja_squad.spring.events:type=EventRegistry");
+        server.registerMBean(registry, name);
+        try {
+            CompositeData[] observers = (CompositeData[]) server.getAttribute(name, "Observers");
+            assertThat(observers).hasSize(registry.getObservers().size());
+            assertThat(server.getAttribute(name, "StatisticsEnabled")).isEqualTo(true);
+
+            server.invoke(name, "resetStatistics", new Object[0], new String[0]);
+            assertThat(metrics.getFireCount(FakeEvent.class)).isEqualTo(0L);
+            assertThat(registry.getDispatchTable().get(0).getLookupCount()).isEqualTo(0L);
+        }
+        finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void shouldCallParallelObserversConcurrently() {
+        eventFirer.fire(new ParallelEvent(false));
+        assertThat(parallelObserver.getParallelThreads()).hasSize(2);
+        assertThat(parallelObserver.getSequentialThreads()).containsExactly(Thread.currentThread().getName());
+    }
+
+    @Test
+    public void shouldRethrowTheFirstExceptionOfParallelObservers() {
+        try {
+            eventFirer.fire(new ParallelEvent(true));
+            fail("expected an exception");
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getSuppressed()).hasSize(1);
+            assertThat(e.getSuppressed()[0]).isInstanceOf(IllegalStateException.class);
+            assertThat(Arrays.asList(e.getMessage(), e.getSuppressed()[0].getMessage())).containsOnly("first",
+                                                                                                  "second");
+        }
+        assertThat(parallelObserver.getParallelThreads()).hasSize(2);
+    }
+
+    @Test
+    public void shouldCallObserversInOrder() {
+        eventFirer.fire(new OrderedEvent());
+        assertThat(orderedObserver.getResult()).containsExactly("first",
+                                                               "methodOrder",
+                                                               "alsoClassOrder",
+                                                               "classOrder",
+                                                               "last");
+    }
+
+    @Test
+    public void shouldOnlyDeliverEventsSatisfyingTheCondition() {
+        for (int score = 9; score <= 13; score++) {
+            eventFirer.fire(new ScoredEvent(score));
+        }
+        assertThat(conditionalObserver.getHighScores()).containsExactly(11, 13);
+    }
+
+    @Test
+    public void shouldNotDeferEventsNotSatisfyingThePredicate() {
+        new TransactionTemplate(txManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                eventFirer.fire(new ScoredEvent(1));
+                eventFirer.fireAll(Arrays.asList(new ScoredEvent(3), new ScoredEvent(5)));
+                assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+                eventFirer.fireAll(Arrays.asList(new ScoredEvent(4), new ScoredEvent(7)));
+            }
+        });
+        assertThat(conditionalObserver.getEvenScoresAfterCommit()).containsExactly(4);
+    }
+
+    @Test
+    public void shouldFailToStartWithAnInvalidCondition() {
+        try {
+            new AnnotationConfigApplicationContext(InvalidConditionConfig.class);
+            fail("expected an exception");
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("invalid condition");
+        }
+    }
+
+    @Test
+    public void shouldFailToStartWithAnObserverOfARawList() {
+        try {
+            new AnnotationConfigApplicationContext(UntypedListConfig.class);
+            fail("expected an exception");
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("doesn't specify the type of the events");
+        }
+    }
+
+    @Test
+    public void shouldRejectObserversOfCollectionsOfUnboundedWildcards() {
+        try {
+            postProcessor.register(new UntypedListConfig.WildcardCollectionObserver());
+            fail("expected an exception");
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("doesn't specify the type of the events");
+        }
+    }
+
+    @Test
+    public void shouldDeliverGenericEventsToObserversOfMatchingTypes() {
+        eventFirer.fire(new EntityChanged<String>(String.class));
+        assertThat(genericObserver.getResult()).containsExactly("anyChanged", "stringChanged");
+
+        genericObserver.getResult().clear();
+        eventFirer.fireAll(Arrays.asList(new EntityChanged<Integer>(Integer.class),
+                                         new EntityChanged<String>(String.class)));
+        assertThat(genericObserver.getResult()).containsExactly("anyChanged",
+                                                               "integerChanged",
+                                                               "anyChanged",
+                                                               "stringChanged");
+
+        genericObserver.getResult().clear();
+        eventFirer.fire(new StringHolder());
+        assertThat(genericObserver.getResult()).containsExactly("stringHolder");
+
+        // the type argument of a raw holder can't be resolved, so all the holder observers are called
+        genericObserver.getResult().clear();
+        eventFirer.fire(new Holder<Integer>());
+        assertThat(genericObserver.getResult()).containsExactly("integerHolder", "stringHolder");
+    }
+
+    @Test
+    public void shouldStopWaitingForSlowObserversIsolatedByABulkhead() {
+        eventFirer.fire(new SlowEvent(10L));
+        assertThat(bulkheadObserver.getResult()).containsExactly(10L);
+
+        long start = System.nanoTime();
+        eventFirer.fire(new SlowEvent(10000L));
+        assertThat(System.nanoTime() - start).isLessThan(5000000000L);
+        assertThat(bulkheadObserver.getResult()).containsExactly(10L);
+
+        List<BulkheadStatistics> statistics = postProcessor.getBulkheadStatistics();
+        assertThat(statistics).hasSize(1);
+        assertThat(statistics.get(0).getName()).contains("slow");
+        assertThat(statistics.get(0).getMaxConcurrentCalls()).isEqualTo(2);
+        assertThat(statistics.get(0).getTimedOutCount()).isEqualTo(1L);
+        assertThat(statistics.get(0).getRejectedCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void shouldRegisterAndUnregisterObserversAtRuntime() {
+        eventFirer.fire(new ScoredEvent(1));
+        DynamicEventObserver dynamicObserver = new DynamicEventObserver();
+        ObserverRegistration registration = postProcessor.register("dynamic", dynamicObserver);
+        assertThat(registration.isRegistered()).isTrue();
+        assertThat(registration.getObservers()).hasSize(1);
+        assertThat(registration.getObservers().get(0).getName()).startsWith("dynamic.score");
+
+        // the dispatch list of the already fired event class has been resolved again
+        eventFirer.fire(new ScoredEvent(2));
+        assertThat(dynamicObserver.getResult()).containsExactly(2);
+        assertThat(metrics.getObserverStatistics(registration.getObservers().get(0).getName())).isNotNull();
+
+        postProcessor.unregister(registration);
+        assertThat(registration.isRegistered()).isFalse();
+        eventFirer.fire(new ScoredEvent(3));
+        assertThat(dynamicObserver.getResult()).containsExactly(2);
+        assertThat(metrics.getObserverStatistics(registration.getObservers().get(0).getName())).isNull();
+    }
+
+    @Test
+    public void shouldRemoveTheBulkheadOfAGroupOnceAllItsObserversAreUnregistered() {
+        GroupedBulkheadObserver firstObserver = new GroupedBulkheadObserver();
+        GroupedBulkheadObserver secondObserver = new GroupedBulkheadObserver();
+        ObserverRegistration first = postProcessor.register("first", firstObserver);
+        ObserverRegistration second = postProcessor.register("second", secondObserver);
+        assertThat(getBulkheadNames()).contains("grouped").hasSize(2);
+
+        postProcessor.unregister(first);
+        assertThat(getBulkheadNames()).contains("grouped").hasSize(2);
+
+        postProcessor.unregister(second);
+        assertThat(getBulkheadNames()).doesNotContain("grouped").hasSize(1);
+    }
+
+    @Test
+    public void shouldKeepTheBulkheadOfAnObserverRegisteredWithTheSameNameAsAnUnregisteredOne() {
+        BulkheadEventObserver firstObserver = new BulkheadEventObserver();
+        BulkheadEventObserver secondObserver = new BulkheadEventObserver();
+        ObserverRegistration first = postProcessor.register("dynamic", firstObserver);
+        ObserverRegistration second = postProcessor.register("dynamic", secondObserver);
+        String name = first.getObservers().get(0).getName();
+        assertThat(getBulkheadNames()).contains(name).hasSize(2);
+
+        postProcessor.unregister(first);
+        assertThat(getBulkheadNames()).contains(name).hasSize(2);
+
+        postProcessor.unregister(second);
+        assertThat(getBulkheadNames()).doesNotContain(name).hasSize(1);
+    }
+
+    private List<String> getBulkheadNames() {
+        List<String> result = new ArrayList<String>();
+        for (BulkheadStatistics statistics : postProcessor.getBulkheadStatistics()) {
+            result.add(statistics.getName());
+        }
+        return result;
+    }
+
+    @Test
+    public void shouldUnregisterGarbageCollectedObservers() throws InterruptedException {
+        ObserverRegistration registration = postProcessor.register(new DynamicEventObserver());
+        for (int i = 0; i < 50 && registration.isRegistered(); i++) {
+            System.gc();
+            Thread.sleep(20L);
+        }
+        assertThat(registration.isRegistered()).isFalse();
+
+        // the first event delivered to the collected observer unregisters it
+        eventFirer.fire(new ScoredEvent(1));
+        assertThat(postProcessor.getDispatchTable().getObservers()).doesNotContain(registration.getObservers().get(0));
+    }
+
+    @Test
+    public void shouldReusePooledEventsOnceAllObserversHaveBeenCalled() throws InterruptedException {
+        PriceTick first = postProcessor.acquire(PriceTick.class).init("ACME", 1);
+        eventFirer.fire(first);
+        assertThat(pooledObserver.getInProgressPrices()).containsExactly(1);
+
+        // the event is retained by the transaction until it's completed
+        final PriceTick second = postProcessor.acquire(PriceTick.class);
+        assertThat(second).isSameAs(first);
+        new TransactionTemplate(txManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                eventFirer.fire(second.init("ACME", 2));
+            }
+        });
+        assertThat(pooledObserver.getAfterCommitPrices()).containsExactly(2);
+
+        // the event is retained by the asynchronous observer until it has been called
+        PriceTick third = postProcessor.acquire(PriceTick.class);
+        assertThat(third).isSameAs(first);
+        eventFirer.fire(third.init("ASYNC", 3));
+        PriceTick fourth = postProcessor.acquire(PriceTick.class);
+        assertThat(fourth).isNotSameAs(third);
+        eventFirer.fire(fourth.init("ASYNC", 4));
+        pooledObserver.openAsyncGate();
+        assertThat(pooledObserver.awaitAsync()).isTrue();
+        assertThat(pooledObserver.getAsyncPrices()).containsOnly(3, 4);
+        assertThat(postProcessor.getCreatedCount(PriceTick.class)).isEqualTo(2L);
+    }
+
+    @Test
+    public void shouldDebounceAndThrottleDeliveries() throws InterruptedException {
+        eventFirer.fire(new KeyedEvent("window-a", 1));
+        eventFirer.fireAll(Arrays.asList(new KeyedEvent("window-a", 2), new KeyedEvent("window-b", 3)));
+
+        // each key has its own debounced window, and the throttled observer is called immediately with the first event
+        assertThat(windowedObserver.await()).isTrue();
+        assertThat(windowedObserver.getDebouncedSequences()).containsOnly(2, 3);
+        List<List<Integer>> throttledBatches = windowedObserver.getThrottledBatches();
+        assertThat(throttledBatches).hasSize(2);
+        assertThat(throttledBatches.get(0)).containsExactly(1);
+        assertThat(throttledBatches.get(1)).containsExactly(2, 3);
+    }
 }
@@ -1,8 +1,10 @@
 package com.ninja_squad.spring.events;
 
+import com.google.common.base.Predicate;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionException;
@@ -37,6 +39,83 @@ public class EventTestConfig {
         return new AsyncFakeEventObserver();
     }
 
+    @Bean
+    public ExecutorFakeEventObserver executorFakeEventObserver() {
+        return new ExecutorFakeEventObserver();
+    }
+
+    @Bean
+    public PartitionedKeyedEventObserver partitionedKeyedEventObserver() {
+        return new PartitionedKeyedEventObserver();
+    }
+
+    @Bean
+    public BatchFakeEventObserver batchFakeEventObserver() {
+        return new BatchFakeEventObserver();
+    }
+
+    @Bean
+    public ParallelEventObserver parallelEventObserver() {
+        return new ParallelEventObserver();
+    }
+
+    @Bean
+    public OrderedEventObserver orderedEventObserver() {
+        return new OrderedEventObserver();
+    }
+
+    @Bean
+    public ConditionalEventObserver conditionalEventObserver() {
+        return new ConditionalEventObserver();
+    }
+
+    @Bean
+    public Predicate<ScoredEvent> evenScorePredicate() {
+        return new Predicate<ScoredEvent>() {
+            @Override
+            public boolean apply(ScoredEvent event) {
+                return event.isEven();
+            }
+        };
+    }
+
+    @Bean
+    public CoalescingEventObserver coalescingEventObserver() {
+        return new CoalescingEventObserver();
+    }
+
+    @Bean
+    public GenericEventObserver genericEventObserver() {
+        return new GenericEventObserver();
+    }
+
+    @Bean
+    public BulkheadEventObserver bulkheadEventObserver() {
+        return new BulkheadEventObserver();
+    }
+
+    @Bean
+    public PooledEventObserver pooledEventObserver() {
+        return new PooledEventObserver();
+    }
+
+    @Bean
+    public WindowedEventObserver windowedEventObserver() {
+        return new WindowedEventObserver();
+    }
+
+    @Bean
+    public InMemoryEventMetrics eventMetrics() {
+        return new InMemoryEventMetrics();
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor eventExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("event-executor-");
+        return executor;
+    }
+
     /**
      * Creates a fake Spring transaction manager
      */
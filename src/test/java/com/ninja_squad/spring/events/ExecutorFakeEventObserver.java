@@ -0,0 +1,39 @@
+package com.ninja_squad.spring.events;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Observer of FakeEvent using the async attribute of <code>@Observes</code>, which records the name of the threads
+ * calling it.
+ * @author JB Nizet
+ */
+public class ExecutorFakeEventObserver {
+
+    private List<String> threadNames = new CopyOnWriteArrayList<String>();
+
+    private volatile CountDownLatch latch = new CountDownLatch(1);
+
+    @Observes(async = true, executor = "eventExecutor")
+    public void inProgress(FakeEvent event) {
+        threadNames.add(Thread.currentThread().getName());
+        latch.countDown();
+    }
+
+    @Observes(when = EventMoment.AFTER_COMMIT, async = true)
+    public void afterCommit(FakeEvent event) {
+        threadNames.add(Thread.currentThread().getName());
+        latch.countDown();
+    }
+
+    public void expect(int count) {
+        latch = new CountDownLatch(count);
+    }
+
+    public List<String> await() throws InterruptedException {
+        latch.await(5, TimeUnit.SECONDS);
+        return threadNames;
+    }
+}
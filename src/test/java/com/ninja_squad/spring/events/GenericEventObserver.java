@@ -0,0 +1,42 @@
+package com.ninja_squad.spring.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Observer of generic events, used to test that events are only delivered to the observers of matching types
+ * @author JB Nizet
+ */
+public class GenericEventObserver {
+
+    private List<String> result = new ArrayList<String>();
+
+    @Observes
+    public void stringChanged(EntityChanged<String> event) {
+        result.add("stringChanged");
+    }
+
+    @Observes
+    public void integerChanged(EntityChanged<Integer> event) {
+        result.add("integerChanged");
+    }
+
+    @Observes
+    public void anyChanged(EntityChanged<?> event) {
+        result.add("anyChanged");
+    }
+
+    @Observes
+    public void stringHolder(Holder<String> event) {
+        result.add("stringHolder");
+    }
+
+    @Observes
+    public void integerHolder(Holder<Integer> event) {
+        result.add("integerHolder");
+    }
+
+    public List<String> getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,19 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Observer which isn't a bean, whose methods share a bulkhead group, used to test that the bulkhead is removed once
+ * all the observers of the group are unregistered
+ * @author JB Nizet
+ */
+public class GroupedBulkheadObserver {
+
+    @Observes
+    @Bulkhead(group = "grouped", maxConcurrentCalls = 1)
+    public void first(ScoredEvent event) {
+    }
+
+    @Observes
+    @Bulkhead(group = "grouped", maxConcurrentCalls = 1)
+    public void second(ScoredEvent event) {
+    }
+}
@@ -0,0 +1,8 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Generic event whose type argument can only be resolved from its subclasses
+ * @author JB Nizet
+ */
+public class Holder<T> {
+}
@@ -0,0 +1,48 @@
+package com.ninja_squad.spring.events;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Test for the in-memory event metrics
+ * @author JB Nizet
+ */
+public class InMemoryEventMetricsTest {
+
+    private final InMemoryEventMetrics metrics = new InMemoryEventMetrics();
+
+    @Test
+    public void shouldCountFiredEventsByClass() {
+        metrics.recordFire(FakeEvent.class);
+        metrics.recordFire(FakeEvent.class);
+        metrics.recordFire(String.class);
+
+        assertThat(metrics.getFireCount(FakeEvent.class)).isEqualTo(2L);
+        assertThat(metrics.getFireCount(Integer.class)).isEqualTo(0L);
+        assertThat(metrics.getFireCounts()).hasSize(2);
+        assertThat(metrics.getFireCounts().get(String.class)).isEqualTo(1L);
+
+        metrics.reset();
+        assertThat(metrics.getFireCount(FakeEvent.class)).isEqualTo(0L);
+        assertThat(metrics.getFireCounts()).isEmpty();
+    }
+
+    @Test
+    public void shouldNotPreventEventClassesFromBeingGarbageCollected() throws Exception {
+        WeakReference<ClassLoader> classLoader = recordFireOfDiscardedClass();
+
+        DiscardedEventClasses.assertCollected(classLoader);
+        assertThat(metrics.getFireCounts()).isEmpty();
+    }
+
+    private WeakReference<ClassLoader> recordFireOfDiscardedClass() throws Exception {
+        Class<?> eventClass = DiscardedEventClasses.load("public class DiscardedEvent {", "}");
+        metrics.recordFire(eventClass);
+        assertThat(metrics.getFireCounts()).isEqualTo(Collections.<Class<?>, Long>singletonMap(eventClass, 1L));
+        return new WeakReference<ClassLoader>(eventClass.getClassLoader());
+    }
+}
@@ -0,0 +1,24 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration containing an observer with an invalid condition, which must fail to start
+ * @author JB Nizet
+ */
+@Configuration
+@EnableEvents
+public class InvalidConditionConfig {
+
+    @Bean
+    public InvalidConditionObserver invalidConditionObserver() {
+        return new InvalidConditionObserver();
+    }
+
+    public static class InvalidConditionObserver {
+        @Observes(condition = "score >")
+        public void observe(ScoredEvent event) {
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * An event having a key and a sequence number, used to test partitioned and coalesced deliveries
+ * @author JB Nizet
+ */
+public class KeyedEvent {
+    private final String key;
+    private final int sequence;
+
+    public KeyedEvent(String key, int sequence) {
+        this.key = key;
+        this.sequence = sequence;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+}
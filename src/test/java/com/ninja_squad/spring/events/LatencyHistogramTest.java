@@ -0,0 +1,51 @@
+package com.ninja_squad.spring.events;
+
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Test for the lock-free latency histogram
+ * @author JB Nizet
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void shouldComputeBucketBoundsConsistently() {
+        for (long value : new long[] {0L, 1L, 7L, 8L, 15L, 16L, 17L, 1000L, 123456789L, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertThat(LatencyHistogram.lowestValueInBucket(index)).isLessThanOrEqualTo(value);
+            assertThat(LatencyHistogram.highestValueInBucket(index)).isGreaterThanOrEqualTo(value);
+        }
+        assertThat(LatencyHistogram.bucketIndex(16L)).isEqualTo(LatencyHistogram.bucketIndex(17L));
+        assertThat(LatencyHistogram.bucketIndex(7L)).isNotEqualTo(LatencyHistogram.bucketIndex(8L));
+    }
+
+    @Test
+    public void shouldComputePercentilesWithBoundedError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000L; value++) {
+            histogram.record(value * 1000L);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(1000L);
+        assertThat(histogram.getMax()).isEqualTo(1000000L);
+        assertThat(histogram.getMean()).isEqualTo(500500.0);
+        long median = histogram.getValueAtPercentile(50.0);
+        assertThat(median).isGreaterThanOrEqualTo(500000L).isLessThanOrEqualTo(562500L);
+        assertThat(histogram.getValueAtPercentile(100.0)).isEqualTo(1000000L);
+    }
+
+    @Test
+    public void shouldReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(42L);
+        histogram.record(-1L);
+        assertThat(histogram.getCount()).isEqualTo(2L);
+
+        histogram.reset();
+        assertThat(histogram.getCount()).isEqualTo(0L);
+        assertThat(histogram.getMax()).isEqualTo(0L);
+        assertThat(histogram.getValueAtPercentile(99.0)).isEqualTo(0L);
+    }
+}
@@ -0,0 +1,169 @@
+package com.ninja_squad.spring.events;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Test for the observer index generated by the annotation processor
+ * @author JB Nizet
+ */
+public class ObserverIndexTest {
+
+    private File sourceDir;
+    private File classesDir;
+
+    @Before
+    public void prepare() {
+        sourceDir = Files.createTempDir();
+        classesDir = Files.createTempDir();
+    }
+
+    @Test
+    public void shouldGenerateAndLoadIndex() throws Exception {
+        writeSource("test/BaseObserver.java",
+                    "package test;",
+                    "public class BaseObserver {",
+                    "    @com.ninja_squad.spring.events.Observes",
+                    "    void onString(String s) {}",
+                    "}");
+        writeSource("test/Observer.java",
+                    "package test;",
+                    "public class Observer extends BaseObserver {",
+                    "    @com.ninja_squad.spring.events.Observes",
+                    "    private void onList(java.util.List<String> list) {}",
+                    "    @com.ninja_squad.spring.events.Observes",
+                    "    public void onNested(Nested n) {}",
+                    "    public void notObserving(String s) {}",
+                    "    public static class Nested {}",
+                    "}");
+        assertThat(compile()).isTrue();
+
+        String index = Files.toString(new File(classesDir, ObserverIndex.INDEX_LOCATION), Charsets.UTF_8);
+        assertThat(index).contains("test.Observer onList java.util.List\n")
+                         .contains("test.Observer onNested test.Observer$Nested\n")
+                         .contains("test.BaseObserver onString java.lang.String\n");
+
+        ClassLoader classLoader = new URLClassLoader(new URL[] {classesDir.toURI().toURL()}, getClass().getClassLoader());
+        ObserverIndex observerIndex = ObserverIndex.load(classLoader);
+        List<Method> methods = observerIndex.getObserverMethods(classLoader.loadClass("test.Observer"));
+        assertThat(methods).hasSize(3);
+        assertThat(methods.get(2).getName()).isEqualTo("onString");
+        assertThat(observerIndex.getObserverMethods(Object.class)).isEmpty();
+    }
+
+    @Test
+    public void shouldRejectObserverWithoutSingleParameter() throws Exception {
+        writeSource("test/Observer.java",
+                    "package test;",
+                    "public class Observer {",
+                    "    @com.ninja_squad.spring.events.Observes",
+                    "    void observe(String s, String t) {}",
+                    "}");
+        assertThat(compile()).isFalse();
+    }
+
+    @Test
+    public void shouldRemoveEntriesOfRecompiledClassesWhichDontObserveAnymore() throws Exception {
+        File a = writeSource("test/A.java",
+                             "package test;",
+                             "public class A {",
+                             "    @com.ninja_squad.spring.events.Observes",
+                             "    public void onString(String s) {}",
+                             "}");
+        writeSource("test/B.java",
+                    "package test;",
+                    "public class B {",
+                    "    @com.ninja_squad.spring.events.Observes",
+                    "    public void onString(String s) {}",
+                    "}");
+        assertThat(compile()).isTrue();
+
+        // only A is compiled again, and the entry of B, which isn't compiled again, is kept
+        writeSource("test/A.java",
+                    "package test;",
+                    "public class A {",
+                    "    public void onString(String s) {}",
+                    "}");
+        assertThat(compile(Arrays.asList(a))).isTrue();
+
+        String index = Files.toString(new File(classesDir, ObserverIndex.INDEX_LOCATION), Charsets.UTF_8);
+        assertThat(index).doesNotContain("test.A ")
+                         .contains("test.B onString java.lang.String\n");
+    }
+
+    @Test
+    public void shouldIgnoreOutdatedEntriesOfMethodsWhichDontObserveAnymore() throws Exception {
+        writeSource("test/A.java",
+                    "package test;",
+                    "public class A {",
+                    "    public void onString(String s) {}",
+                    "}");
+        assertThat(compile()).isTrue();
+        File indexFile = new File(classesDir, ObserverIndex.INDEX_LOCATION);
+        Files.createParentDirs(indexFile);
+        Files.write("test.A onString java.lang.String\n", indexFile, Charsets.UTF_8);
+
+        ClassLoader classLoader =
+            new URLClassLoader(new URL[] {classesDir.toURI().toURL()}, getClass().getClassLoader());
+        ObserverIndex observerIndex = ObserverIndex.load(classLoader);
+        assertThat(observerIndex.getObserverMethods(classLoader.loadClass("test.A"))).isEmpty();
+    }
+
+    @Test
+    public void shouldReturnNullIfNoIndex() {
+        ClassLoader classLoader = new URLClassLoader(new URL[0], null);
+        assertThat(ObserverIndex.load(classLoader)).isNull();
+    }
+
+    private File writeSource(String path, String... lines) throws Exception {
+        File file = new File(sourceDir, path);
+        Files.createParentDirs(file);
+        StringBuilder builder = new StringBuilder();
+        for (String line : lines) {
+            builder.append(line).append('\n');
+        }
+        Files.write(builder, file, Charsets.UTF_8);
+        return file;
+    }
+
+    private boolean compile() throws Exception {
+        return compile(Files.fileTreeTraverser().preOrderTraversal(sourceDir).filter(Files.isFile()).toList());
+    }
+
+    /**
+     * Compiles the given sources, with the classes already compiled in the classpath, as an incremental build does
+     */
+    private boolean compile(List<File> sources) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, Charsets.UTF_8);
+        try {
+            String classpath = classesDir.getPath() + File.pathSeparator + System.getProperty("java.class.path");
+            List<String> options = Arrays.asList("-d", classesDir.getPath(),
+                                                 "-classpath", classpath,
+                                                 "-processor", ObserverIndexProcessor.class.getName(),
+                                                 "-processorpath", System.getProperty("java.class.path"));
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+            return compiler.getTask(null, fileManager, diagnostics, options, null,
+                                    fileManager.getJavaFileObjectsFromFiles(sources)).call();
+        }
+        finally {
+            fileManager.close();
+        }
+    }
+}
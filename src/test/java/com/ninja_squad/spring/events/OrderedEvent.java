@@ -0,0 +1,8 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Event observed by {@link OrderedEventObserver}
+ * @author JB Nizet
+ */
+public class OrderedEvent {
+}
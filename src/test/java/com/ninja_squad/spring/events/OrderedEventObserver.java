@@ -0,0 +1,48 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.core.annotation.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Observer having several ordered observer methods, in order to test that they're called in order
+ * @author JB Nizet
+ */
+@Order(10)
+public class OrderedEventObserver {
+
+    private List<String> result = new ArrayList<String>();
+
+    @Observes
+    public void classOrder(OrderedEvent event) {
+        result.add("classOrder");
+    }
+
+    @Observes(order = 20)
+    public void last(OrderedEvent event) {
+        result.add("last");
+    }
+
+    @Observes
+    @Order(5)
+    public void methodOrder(OrderedEvent event) {
+        result.add("methodOrder");
+    }
+
+    @Observes(order = -5)
+    public void first(Object event) {
+        if (event instanceof OrderedEvent) {
+            result.add("first");
+        }
+    }
+
+    @Observes(order = 10)
+    public void alsoClassOrder(OrderedEvent event) {
+        result.add("alsoClassOrder");
+    }
+
+    public List<String> getResult() {
+        return result;
+    }
+}
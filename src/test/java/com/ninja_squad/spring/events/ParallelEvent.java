@@ -0,0 +1,20 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Event observed by the parallel observers of {@link ParallelEventObserver}
+ * @author JB Nizet
+ */
+public class ParallelEvent {
+    private final boolean failing;
+
+    public ParallelEvent(boolean failing) {
+        this.failing = failing;
+    }
+
+    /**
+     * Tells if the parallel observers must throw an exception
+     */
+    public boolean isFailing() {
+        return failing;
+    }
+}
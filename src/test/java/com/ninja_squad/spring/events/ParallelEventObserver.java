@@ -0,0 +1,52 @@
+package com.ninja_squad.spring.events;
+
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Observer having two parallel observer methods, which can only complete if they're called concurrently, and a
+ * sequential one
+ * @author JB Nizet
+ */
+public class ParallelEventObserver {
+
+    private final CyclicBarrier barrier = new CyclicBarrier(2);
+    private final List<String> parallelThreads = new CopyOnWriteArrayList<String>();
+    private final List<String> sequentialThreads = new CopyOnWriteArrayList<String>();
+
+    @Observes(parallel = true)
+    public void first(ParallelEvent event) throws Exception {
+        observeInParallel(event, "first");
+    }
+
+    @Observes(parallel = true)
+    public void second(ParallelEvent event) throws Exception {
+        observeInParallel(event, "second");
+    }
+
+    @Observes
+    public void sequential(ParallelEvent event) {
+        sequentialThreads.add(Thread.currentThread().getName());
+    }
+
+    private void observeInParallel(ParallelEvent event, String name)
+        throws InterruptedException, BrokenBarrierException, TimeoutException {
+        barrier.await(5, TimeUnit.SECONDS);
+        parallelThreads.add(Thread.currentThread().getName());
+        if (event.isFailing()) {
+            throw new IllegalStateException(name);
+        }
+    }
+
+    public List<String> getParallelThreads() {
+        return parallelThreads;
+    }
+
+    public List<String> getSequentialThreads() {
+        return sequentialThreads;
+    }
+}
@@ -0,0 +1,35 @@
+package com.ninja_squad.spring.events;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimaps;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Observer of KeyedEvent partitioned by key, which records the sequence numbers received for each key
+ * @author JB Nizet
+ */
+public class PartitionedKeyedEventObserver {
+
+    private final ListMultimap<String, Integer> sequencesByKey =
+        Multimaps.synchronizedListMultimap(ArrayListMultimap.<String, Integer>create());
+
+    private volatile CountDownLatch latch = new CountDownLatch(0);
+
+    @Observes(async = true, partitionKey = "key", partitions = 4)
+    public void observe(KeyedEvent event) {
+        sequencesByKey.put(event.getKey(), event.getSequence());
+        latch.countDown();
+    }
+
+    public void expect(int count) {
+        latch = new CountDownLatch(count);
+    }
+
+    public ListMultimap<String, Integer> await() throws InterruptedException {
+        latch.await(5, TimeUnit.SECONDS);
+        return sequencesByKey;
+    }
+}
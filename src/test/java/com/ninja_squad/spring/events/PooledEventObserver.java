@@ -0,0 +1,58 @@
+package com.ninja_squad.spring.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Observer of pooled events, used to test that pooled events are only reused once all their observers have been
+ * called
+ * @author JB Nizet
+ */
+public class PooledEventObserver {
+
+    private List<Integer> inProgressPrices = new ArrayList<Integer>();
+    private List<Integer> afterCommitPrices = new ArrayList<Integer>();
+    private List<Integer> asyncPrices = Collections.synchronizedList(new ArrayList<Integer>());
+    private CountDownLatch asyncGate = new CountDownLatch(1);
+    private CountDownLatch asyncDone = new CountDownLatch(2);
+
+    @Observes
+    public void inProgress(PriceTick tick) {
+        inProgressPrices.add(tick.getPrice());
+    }
+
+    @Observes(when = EventMoment.AFTER_COMMIT)
+    public void afterCommit(PriceTick tick) {
+        afterCommitPrices.add(tick.getPrice());
+    }
+
+    @Observes(async = true, condition = "symbol == 'ASYNC'")
+    public void async(PriceTick tick) throws InterruptedException {
+        asyncGate.await(5L, TimeUnit.SECONDS);
+        asyncPrices.add(tick.getPrice());
+        asyncDone.countDown();
+    }
+
+    public List<Integer> getInProgressPrices() {
+        return inProgressPrices;
+    }
+
+    public List<Integer> getAfterCommitPrices() {
+        return afterCommitPrices;
+    }
+
+    public List<Integer> getAsyncPrices() {
+        return asyncPrices;
+    }
+
+    public void openAsyncGate() {
+        asyncGate.countDown();
+    }
+
+    public boolean awaitAsync() throws InterruptedException {
+        return asyncDone.await(5L, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,38 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Pooled event used to test the pooling of events
+ * @author JB Nizet
+ */
+public class PriceTick extends PooledEvent {
+    private String symbol;
+    private int price;
+    private int resetCount;
+
+    public PriceTick init(String symbol, int price) {
+        this.symbol = symbol;
+        this.price = price;
+        return this;
+    }
+
+    public String getSymbol() {
+        checkInUse();
+        return symbol;
+    }
+
+    public int getPrice() {
+        checkInUse();
+        return price;
+    }
+
+    public int getResetCount() {
+        return resetCount;
+    }
+
+    @Override
+    protected void reset() {
+        symbol = null;
+        price = 0;
+        resetCount++;
+    }
+}
@@ -0,0 +1,78 @@
+package com.ninja_squad.spring.events;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Tests for the priority event executor
+ * @author JB Nizet
+ */
+public class PriorityEventExecutorTest {
+
+    private PriorityEventExecutor executor;
+
+    @Before
+    public void prepare() {
+        executor = new PriorityEventExecutor(1, "priority-test-");
+    }
+
+    @After
+    public void cleanup() throws InterruptedException {
+        executor.destroy();
+    }
+
+    @Test
+    public void shouldRunWaitingTasksByPriorityThenInSubmissionOrder() throws InterruptedException {
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(5);
+        final List<String> result = new CopyOnWriteArrayList<String>();
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocker.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        executor.execute(new RecordingTask("bulk1", result, done));
+        executor.withPriority(100).execute(new RecordingTask("low", result, done));
+        executor.withPriority(0).execute(new RecordingTask("urgent1", result, done));
+        executor.execute(new RecordingTask("bulk2", result, done));
+        executor.withPriority(0).execute(new RecordingTask("urgent2", result, done));
+        assertThat(executor.getBacklog()).isEqualTo(5);
+
+        blocker.countDown();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(result).containsExactly("urgent1", "urgent2", "low", "bulk1", "bulk2");
+    }
+
+    private static class RecordingTask implements Runnable {
+        private final String name;
+        private final List<String> result;
+        private final CountDownLatch done;
+
+        public RecordingTask(String name, List<String> result, CountDownLatch done) {
+            this.name = name;
+            this.result = result;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            result.add(name);
+            done.countDown();
+        }
+    }
+}
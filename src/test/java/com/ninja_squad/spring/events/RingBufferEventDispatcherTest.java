@@ -0,0 +1,217 @@
+package com.ninja_squad.spring.events;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Test for the ring buffer dispatcher
+ * @author JB Nizet
+ */
+public class RingBufferEventDispatcherTest {
+
+    private static final int PRODUCER_COUNT = 4;
+    private static final int EVENT_COUNT_PER_PRODUCER = 50000;
+
+    @Test
+    public void shouldDeliverAllEventsInOrderWithMultipleProducers() throws Exception {
+        for (RingBufferEventDispatcher.WaitStrategy waitStrategy : RingBufferEventDispatcher.WaitStrategy.values()) {
+            RingBufferEventDispatcher dispatcher =
+                new RingBufferEventDispatcher(64, RingBufferEventDispatcher.ProducerType.MULTI, waitStrategy, "test");
+            try {
+                checkDelivery(dispatcher, PRODUCER_COUNT);
+            }
+            finally {
+                dispatcher.destroy();
+            }
+        }
+    }
+
+    @Test
+    public void shouldDeliverAllEventsInOrderWithSingleProducer() throws Exception {
+        RingBufferEventDispatcher dispatcher =
+            new RingBufferEventDispatcher(64,
+                                          RingBufferEventDispatcher.ProducerType.SINGLE,
+                                          RingBufferEventDispatcher.WaitStrategy.SLEEPING,
+                                          "test");
+        try {
+            checkDelivery(dispatcher, 1);
+        }
+        finally {
+            dispatcher.destroy();
+        }
+    }
+
+    @Test
+    public void shouldRunTasks() throws Exception {
+        RingBufferEventDispatcher dispatcher =
+            new RingBufferEventDispatcher(8,
+                                          RingBufferEventDispatcher.ProducerType.MULTI,
+                                          RingBufferEventDispatcher.WaitStrategy.BLOCKING,
+                                          "test");
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            dispatcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            });
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+        finally {
+            dispatcher.destroy();
+        }
+    }
+
+    @Test
+    public void shouldRejectPublisherWaitingForFullBufferOnceDestroyed() throws Exception {
+        final RingBufferEventDispatcher dispatcher =
+            new RingBufferEventDispatcher(2,
+                                          RingBufferEventDispatcher.ProducerType.MULTI,
+                                          RingBufferEventDispatcher.WaitStrategy.BLOCKING,
+                                          "test");
+        final CountDownLatch consumerEntered = new CountDownLatch(1);
+        final CountDownLatch consumerGate = new CountDownLatch(1);
+        final Runnable noop = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        // blocks the consumer, which doesn't free the slot of the task it runs, then fills the buffer
+        dispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                consumerEntered.countDown();
+                await(consumerGate);
+            }
+        });
+        assertThat(consumerEntered.await(5, TimeUnit.SECONDS)).isTrue();
+        dispatcher.execute(noop);
+
+        final AtomicBoolean rejected = new AtomicBoolean();
+        Thread publisher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    dispatcher.execute(noop);
+                }
+                catch (RejectedExecutionException e) {
+                    rejected.set(true);
+                }
+            }
+        });
+        publisher.start();
+        // waits for the publisher to claim its slot, and thus to wait for the consumer
+        while (dispatcher.getBacklog() < 3L) {
+            Thread.sleep(1L);
+        }
+        Thread destroyer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    dispatcher.destroy();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        destroyer.start();
+
+        publisher.join(5000L);
+        assertThat(publisher.isAlive()).isFalse();
+        assertThat(rejected.get()).isTrue();
+        consumerGate.countDown();
+        destroyer.join(5000L);
+    }
+
+    @Test
+    public void shouldDeliverEventsPublishedByConsumerThreadImmediately() throws Exception {
+        final RingBufferEventDispatcher dispatcher =
+            new RingBufferEventDispatcher(2,
+                                          RingBufferEventDispatcher.ProducerType.SINGLE,
+                                          RingBufferEventDispatcher.WaitStrategy.BLOCKING,
+                                          "test");
+        try {
+            final CountDownLatch latch = new CountDownLatch(10);
+            final AtomicBoolean otherThread = new AtomicBoolean();
+            final Thread[] consumerThread = new Thread[1];
+            dispatcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    consumerThread[0] = Thread.currentThread();
+                    // more events than the buffer can hold, which would deadlock if they waited for a free slot
+                    for (int i = 0; i < 10; i++) {
+                        dispatcher.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (Thread.currentThread() != consumerThread[0]) {
+                                    otherThread.set(true);
+                                }
+                                latch.countDown();
+                            }
+                        });
+                    }
+                }
+            });
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(otherThread.get()).isFalse();
+        }
+        finally {
+            dispatcher.destroy();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkDelivery(final RingBufferEventDispatcher dispatcher, int producerCount) throws Exception {
+        // the consumer thread is the only one accessing the last sequences
+        final int[] lastSequences = new int[producerCount];
+        final AtomicBoolean outOfOrder = new AtomicBoolean();
+        final CountDownLatch latch = new CountDownLatch(producerCount * EVENT_COUNT_PER_PRODUCER);
+        final ObserverInvoker invoker = new ObserverInvoker() {
+            @Override
+            public void invoke(Object event) {
+                int[] producerAndSequence = (int[]) event;
+                if (lastSequences[producerAndSequence[0]] != producerAndSequence[1] - 1) {
+                    outOfOrder.set(true);
+                }
+                lastSequences[producerAndSequence[0]] = producerAndSequence[1];
+                latch.countDown();
+            }
+        };
+
+        Thread[] producers = new Thread[producerCount];
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int sequence = 1; sequence <= EVENT_COUNT_PER_PRODUCER; sequence++) {
+                        dispatcher.publish(invoker, new int[] {producer, sequence});
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(outOfOrder.get()).isFalse();
+    }
+}
@@ -0,0 +1,21 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Event observed by the conditional observers of {@link ConditionalEventObserver}
+ * @author JB Nizet
+ */
+public class ScoredEvent {
+    private final int score;
+
+    public ScoredEvent(int score) {
+        this.score = score;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isEven() {
+        return score % 2 == 0;
+    }
+}
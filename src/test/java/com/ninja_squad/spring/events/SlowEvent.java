@@ -0,0 +1,17 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Event observed by the isolated observer of {@link BulkheadEventObserver}, which takes the given time to handle it
+ * @author JB Nizet
+ */
+public class SlowEvent {
+    private final long duration;
+
+    public SlowEvent(long duration) {
+        this.duration = duration;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+}
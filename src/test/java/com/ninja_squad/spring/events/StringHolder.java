@@ -0,0 +1,8 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * Subclass of Holder, whose type argument can be resolved from the class
+ * @author JB Nizet
+ */
+public class StringHolder extends Holder<String> {
+}
@@ -0,0 +1,35 @@
+package com.ninja_squad.spring.events;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Configuration containing an observer of a raw list, which must fail to start since the type of its events isn't
+ * specified
+ * @author JB Nizet
+ */
+@Configuration
+@EnableEvents
+public class UntypedListConfig {
+
+    @Bean
+    public RawListObserver rawListObserver() {
+        return new RawListObserver();
+    }
+
+    public static class RawListObserver {
+        @Observes
+        @SuppressWarnings("rawtypes")
+        public void observe(List events) {
+        }
+    }
+
+    public static class WildcardCollectionObserver {
+        @Observes
+        public void observe(Collection<?> events) {
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ninja_squad.spring.events;
+
+/**
+ * An event coalesced by equality, used to test the coalescing declared on the event class
+ * @author JB Nizet
+ */
+@Coalesce
+public class UpdatedEvent {
+    private final long id;
+
+    public UpdatedEvent(long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof UpdatedEvent && ((UpdatedEvent) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (id ^ (id >>> 32));
+    }
+}
@@ -0,0 +1,46 @@
+package com.ninja_squad.spring.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Observer of keyed events, used to test debounced and throttled deliveries
+ * @author JB Nizet
+ */
+public class WindowedEventObserver {
+
+    private List<Integer> debouncedSequences = Collections.synchronizedList(new ArrayList<Integer>());
+    private List<List<Integer>> throttledBatches = Collections.synchronizedList(new ArrayList<List<Integer>>());
+    private CountDownLatch done = new CountDownLatch(4);
+
+    @Observes(async = true, debounce = 100L, windowKey = "key", condition = "key.startsWith('window-')")
+    public void debounced(KeyedEvent event) {
+        debouncedSequences.add(event.getSequence());
+        done.countDown();
+    }
+
+    @Observes(async = true, throttle = 200L, condition = "key.startsWith('window-')")
+    public void throttled(List<KeyedEvent> events) {
+        List<Integer> sequences = new ArrayList<Integer>();
+        for (KeyedEvent event : events) {
+            sequences.add(event.getSequence());
+        }
+        throttledBatches.add(sequences);
+        done.countDown();
+    }
+
+    public List<Integer> getDebouncedSequences() {
+        return debouncedSequences;
+    }
+
+    public List<List<Integer>> getThrottledBatches() {
+        return throttledBatches;
+    }
+
+    public boolean await() throws InterruptedException {
+        return done.await(5L, TimeUnit.SECONDS);
+    }
+}
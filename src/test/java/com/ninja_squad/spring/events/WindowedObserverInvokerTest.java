@@ -0,0 +1,174 @@
+package com.ninja_squad.spring.events;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.*;
+
+/**
+ * Test for the debounced and throttled deliveries of windowed observers, and for the timer wheel closing the windows
+ * @author JB Nizet
+ */
+public class WindowedObserverInvokerTest {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private TimerWheel timerWheel;
+    private List<Object> deliveries;
+
+    @Before
+    public void prepare() {
+        timerWheel = new TimerWheel(5L, 8, "test-timer");
+        deliveries = Collections.synchronizedList(new ArrayList<Object>());
+    }
+
+    @After
+    public void shutdown() {
+        timerWheel.stop();
+    }
+
+    @Test
+    public void shouldDeliverTheLatestEventOnceTheQuietPeriodHasElapsed() throws Exception {
+        WindowedObserverInvoker invoker = debounced(null, false, 100L, 0L);
+        invoker.invoke("a");
+        invoker.invoke("b");
+        invoker.invoke("c");
+        assertThat(deliveries).isEmpty();
+
+        awaitDeliveries(1);
+        assertThat(deliveries).containsExactly("c");
+
+        invoker.invoke("d");
+        awaitDeliveries(2);
+        assertThat(deliveries).containsExactly("c", "d");
+    }
+
+    @Test
+    public void shouldDeliverAllTheEventsOfTheWindowToBatchObservers() throws Exception {
+        WindowedObserverInvoker invoker = debounced(null, true, 100L, 0L);
+        invoker.invoke("a");
+        invoker.invokeAll(Arrays.<Object>asList("b", "c"));
+
+        awaitDeliveries(1);
+        assertThat(deliveries).containsExactly(Arrays.asList("a", "b", "c"));
+    }
+
+    @Test
+    public void shouldDeliverOnceTheMaximumWaitHasElapsedEvenIfEventsKeepComing() throws Exception {
+        WindowedObserverInvoker invoker = debounced(null, false, 100L, 150L);
+        long start = System.nanoTime();
+        int sequence = 0;
+        while (deliveries.isEmpty() && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5L)) {
+            invoker.invoke(sequence++);
+            Thread.sleep(10L);
+        }
+        assertThat(deliveries).hasSize(1);
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(150L));
+    }
+
+    @Test
+    public void shouldUseOneWindowPerKey() throws Exception {
+        EventKeyExtractor keyExtractor = EventKeyExtractor.create(KeyedEvent.class, "key");
+        WindowedObserverInvoker invoker = debounced(keyExtractor, false, 50L, 0L);
+        KeyedEvent a2 = new KeyedEvent("a", 2);
+        KeyedEvent b3 = new KeyedEvent("b", 3);
+        invoker.invoke(new KeyedEvent("a", 1));
+        invoker.invoke(a2);
+        invoker.invoke(b3);
+
+        awaitDeliveries(2);
+        assertThat(deliveries).containsOnly(a2, b3);
+    }
+
+    @Test
+    public void shouldDeliverTheFirstEventImmediatelyAndTheLatestOneAtTheEndOfTheInterval() throws Exception {
+        WindowedObserverInvoker invoker =
+            new WindowedObserverInvoker(recorder(), DIRECT_EXECUTOR, timerWheel, null, false, 0L, 0L, millis(100L));
+        invoker.invoke("a");
+        assertThat(deliveries).containsExactly("a");
+        invoker.invoke("b");
+        invoker.invoke("c");
+        assertThat(deliveries).containsExactly("a");
+
+        awaitDeliveries(2);
+        assertThat(deliveries).containsExactly("a", "c");
+    }
+
+    @Test
+    public void shouldNeverRunTasksBeforeTheirDelay() throws Exception {
+        final long[] runTimes = new long[3];
+        long[] delays = new long[] { 0L, 30L, 100L };
+        long start = System.nanoTime();
+        for (int i = 0; i < delays.length; i++) {
+            final int index = i;
+            // the delays exceed a turn of the wheel, which has 8 buckets of 5 ms
+            timerWheel.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (runTimes) {
+                        runTimes[index] = System.nanoTime();
+                        runTimes.notifyAll();
+                    }
+                }
+            }, millis(delays[i]));
+        }
+        synchronized (runTimes) {
+            long end = System.currentTimeMillis() + 5000L;
+            while (runTimes[2] == 0L && System.currentTimeMillis() < end) {
+                runTimes.wait(100L);
+            }
+            for (int i = 0; i < delays.length; i++) {
+                assertThat(runTimes[i] - start).isGreaterThanOrEqualTo(millis(delays[i]));
+            }
+        }
+    }
+
+    private WindowedObserverInvoker debounced(EventKeyExtractor keyExtractor,
+                                              boolean batch,
+                                              long debounceMillis,
+                                              long maxWaitMillis) {
+        return new WindowedObserverInvoker(recorder(),
+                                           DIRECT_EXECUTOR,
+                                           timerWheel,
+                                           keyExtractor,
+                                           batch,
+                                           millis(debounceMillis),
+                                           millis(maxWaitMillis),
+                                           0L);
+    }
+
+    private ObserverInvoker recorder() {
+        return new ObserverInvoker() {
+            @Override
+            public void invoke(Object event) {
+                deliveries.add(event);
+            }
+        };
+    }
+
+    private void awaitDeliveries(int count) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000L;
+        while (deliveries.size() < count && System.currentTimeMillis() < end) {
+            Thread.sleep(10L);
+        }
+        // leaves some time for unexpected deliveries
+        Thread.sleep(50L);
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}